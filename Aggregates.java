@@ -0,0 +1,144 @@
+import java.util.*;
+
+// ==================== RUNNING AGGREGATES ====================
+
+/**
+ * Revenue and utilization totals kept current as allocations and
+ * multi-stop deliveries are recorded, so reports never rescan the history.
+ * Each record updates the overall total and one bucket per dimension:
+ * vehicle, vehicle type, city pair and day. That is a constant number of
+ * hash lookups per record.
+ *
+ * Utilization is cargo carried over vehicle capacity, averaged per trip.
+ * A delivery's city pair is its first and last stop.
+ */
+class Aggregates {
+    static class Stats {
+        long allocations, deliveries;
+        double revenue, maxCost, distance, loadFactorSum;
+
+        void add(double cost, double km, double cargo, double capacity, boolean delivery) {
+            if(delivery) deliveries++;
+            else allocations++;
+            revenue += cost;
+            if(cost > maxCost) maxCost = cost;
+            distance += km;
+            if(capacity > 0) loadFactorSum += cargo / capacity;
+        }
+
+        long count() {
+            return allocations + deliveries;
+        }
+
+        double averageCost() {
+            return count() == 0 ? 0 : revenue / count();
+        }
+
+        double utilization() {
+            return count() == 0 ? 0 : loadFactorSum / count();
+        }
+
+        Stats copy() {
+            return new Stats().merge(this);
+        }
+
+        Stats merge(Stats o) {
+            allocations += o.allocations;
+            deliveries += o.deliveries;
+            revenue += o.revenue;
+            maxCost = Math.max(maxCost, o.maxCost);
+            distance += o.distance;
+            loadFactorSum += o.loadFactorSum;
+            return this;
+        }
+    }
+
+    private final Stats allocationTotal = new Stats();
+    private final Stats deliveryTotal = new Stats();
+    private final Map<String, Stats> byVehicle = new HashMap<>();
+    private final Map<String, Stats> byType = new HashMap<>();
+    private final Map<String, Stats> byCityPair = new HashMap<>();
+    private final Map<Long, Stats> byDay = new HashMap<>();
+
+    synchronized void record(Allocation a) {
+        add(a.vehicle, cityPair(a.route.source, a.route.destination), a.timestamp,
+            a.cost, a.route.distance, a.cargo, false);
+    }
+
+    synchronized void record(MultiStopDelivery d) {
+        String pair = d.stops.isEmpty() ? "-"
+            : cityPair(d.stops.get(0).city, d.stops.get(d.stops.size() - 1).city);
+        add(d.vehicle, pair, d.timestamp, d.cost, d.totalDistance, d.totalCargo, true);
+    }
+
+    private void add(Vehicle v, String pair, long timestamp, double cost, double km, double cargo, boolean delivery) {
+        (delivery ? deliveryTotal : allocationTotal).add(cost, km, cargo, v.capacity, delivery);
+        byVehicle.computeIfAbsent(v.id, k -> new Stats()).add(cost, km, cargo, v.capacity, delivery);
+        byType.computeIfAbsent(v.getType(), k -> new Stats()).add(cost, km, cargo, v.capacity, delivery);
+        byCityPair.computeIfAbsent(pair, k -> new Stats()).add(cost, km, cargo, v.capacity, delivery);
+        byDay.computeIfAbsent(Timestamps.epochDay(timestamp), k -> new Stats()).add(cost, km, cargo, v.capacity, delivery);
+    }
+
+    private static String cityPair(String from, String to) {
+        return from + " → " + to;
+    }
+
+    // ---------- reads (copies, so reports don't hold the lock) ----------
+
+    synchronized Stats total() {
+        return allocationTotal.copy().merge(deliveryTotal);
+    }
+
+    synchronized Stats allocationTotal() {
+        return allocationTotal.copy();
+    }
+
+    synchronized Stats deliveryTotal() {
+        return deliveryTotal.copy();
+    }
+
+    /**
+     * The n buckets with the highest revenue, highest first.
+     */
+    synchronized List<Map.Entry<String, Stats>> topVehicles(int n) {
+        return top(byVehicle, n);
+    }
+
+    synchronized List<Map.Entry<String, Stats>> topCityPairs(int n) {
+        return top(byCityPair, n);
+    }
+
+    synchronized List<Map.Entry<String, Stats>> byVehicleType() {
+        return top(byType, byType.size());
+    }
+
+    /**
+     * Daily buckets for the last n days that had any activity, oldest first.
+     */
+    synchronized List<Map.Entry<Long, Stats>> recentDays(int n) {
+        PriorityQueue<Long> latest = new PriorityQueue<>();
+        for(long day : byDay.keySet()) {
+            latest.add(day);
+            if(latest.size() > n) latest.poll();
+        }
+        List<Map.Entry<Long, Stats>> out = new ArrayList<>(latest.size());
+        while(!latest.isEmpty()) {
+            long day = latest.poll();
+            out.add(Map.entry(day, byDay.get(day).copy()));
+        }
+        return out;
+    }
+
+    private static List<Map.Entry<String, Stats>> top(Map<String, Stats> buckets, int n) {
+        Comparator<Map.Entry<String, Stats>> byRevenue = Comparator.comparingDouble(e -> e.getValue().revenue);
+        PriorityQueue<Map.Entry<String, Stats>> best = new PriorityQueue<>(byRevenue);
+        for(Map.Entry<String, Stats> e : buckets.entrySet()) {
+            best.add(e);
+            if(best.size() > n) best.poll();
+        }
+        List<Map.Entry<String, Stats>> out = new ArrayList<>(best.size());
+        for(Map.Entry<String, Stats> e : best) out.add(Map.entry(e.getKey(), e.getValue().copy()));
+        out.sort(byRevenue.reversed());
+        return out;
+    }
+}
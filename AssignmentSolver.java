@@ -0,0 +1,453 @@
+import java.util.*;
+
+// ==================== BATCH ASSIGNMENT SOLVER ====================
+
+/**
+ * Solves the whole route set at once as a min-cost bipartite matching:
+ * every route gets at most one vehicle, every vehicle serves at most one
+ * route, and only pairs with capacity >= cargo are edges.
+ * Routes are augmented one at a time along the shortest alternating path
+ * (Dijkstra with potentials) in a residual graph stored in primitive arrays,
+ * then leftover routes are swapped in wherever that lowers the total. The
+ * result covers as many routes as the edges allow at minimum total cost.
+ *
+ * Small instances use every feasible pair and are exact. Larger ones keep
+ * candidateLimit edges per route: the vehicle a max-cardinality greedy gives
+ * it, a few of its cheapest feasible vehicles, and a window of the cost
+ * ranking around the route's distance rank (the k-th longest route gains
+ * most from roughly the k-th cheapest vehicle, so that is where the optimum
+ * tends to put it; surplus routes beyond the fleet size shift the ranks).
+ *
+ * An Availability filter drops pairs whose vehicle is booked during the
+ * route's window. Exact solves stay exact over the pairs left; the sparse
+ * seed is then only kept where it is free, so coverage may fall short of
+ * the maximum there.
+ */
+class AssignmentSolver {
+    static final long DENSE_PAIRS = 250_000;
+    static final int DEFAULT_CANDIDATES = 32;
+
+    interface Availability {
+        boolean isFree(int route, int vehicle);
+    }
+
+    static class Result {
+        int[] vehicleForRoute;     // index into the vehicle list, -1 if unassigned
+        double totalCost;
+        int assigned;
+        boolean exact;
+    }
+
+    /**
+     * All vehicles (exact) while routes x vehicles stays under DENSE_PAIRS,
+     * otherwise DEFAULT_CANDIDATES per route.
+     */
+    static int defaultCandidateLimit(int routeCount, int vehicleCount) {
+        if((long) routeCount * vehicleCount <= DENSE_PAIRS) return vehicleCount;
+        return DEFAULT_CANDIDATES;
+    }
+
+    static Result solve(List<Route> routes, List<Vehicle> vehicles, int candidateLimit) {
+        return solve(routes, vehicles, candidateLimit, (i, j) -> true);
+    }
+
+    /**
+     * As above, using only the route/vehicle pairs availability accepts
+     * (indices into routes and vehicles).
+     */
+    static Result solve(List<Route> routes, List<Vehicle> vehicles, int candidateLimit, Availability availability) {
+        int R = routes.size(), V = vehicles.size();
+        Result res = new Result();
+        res.vehicleForRoute = new int[R];
+        Arrays.fill(res.vehicleForRoute, -1);
+        res.exact = candidateLimit >= V;
+        if(R == 0 || V == 0) return res;
+
+        double[] capacity = new double[V];
+        double[] mileage = new double[V];
+        double[] rate = new double[V];
+        double[] costPerKm = new double[V];
+        for(int j = 0; j < V; j++) {
+            Vehicle v = vehicles.get(j);
+            capacity[j] = v.capacity;
+            mileage[j] = v.mileage;
+            rate[j] = v.rate;
+            costPerKm[j] = v.rate / v.mileage;
+        }
+        double[] distance = new double[R];
+        double[] cargo = new double[R];
+        for(int i = 0; i < R; i++) {
+            distance[i] = routes.get(i).distance;
+            cargo[i] = routes.get(i).cargoAmount;
+        }
+
+        // Cost per km ranks vehicles identically for every route.
+        int[] byCost = sortedIndex(costPerKm, false);
+        int[] byDistance = sortedIndex(distance, true);
+
+        // With more routes than vehicles the cheapest plan drops the longest
+        // routes, so the surplus longest routes are ranked last.
+        int surplus = Math.max(0, R - V);
+        int[] order = new int[R];
+        for(int k = 0; k < R; k++) {
+            order[k] = k < R - surplus ? byDistance[surplus + k] : byDistance[R - 1 - k];
+        }
+
+        int sink = R + V, nodes = R + V + 1;
+        int perRoute = Math.min(candidateLimit, V);
+        Graph g = new Graph(nodes, V + R * (perRoute + 1));
+
+        if(res.exact) {
+            for(int i = 0; i < R; i++) {
+                for(int k = 0; k < V; k++) {
+                    int j = byCost[k];
+                    if(capacity[j] >= cargo[i] && availability.isFree(i, j)) {
+                        g.addEdge(i, R + j, distance[i] / mileage[j] * rate[j]);
+                    }
+                }
+            }
+        } else {
+            int[] seed = cardinalitySeed(cargo, capacity, costPerKm);
+            int[] stamp = new int[V];
+            int cheapest = Math.max(1, perRoute / 4);
+            for(int rank = 0; rank < R; rank++) {
+                int i = byDistance[rank];
+                int taken = 0;
+                if(seed[i] >= 0 && availability.isFree(i, seed[i])) {
+                    stamp[seed[i]] = i + 1;
+                    g.addEdge(i, R + seed[i], distance[i] / mileage[seed[i]] * rate[seed[i]]);
+                    taken++;
+                }
+                for(int k = 0; k < V && taken < cheapest; k++) {
+                    int j = byCost[k];
+                    if(capacity[j] >= cargo[i] && stamp[j] != i + 1 && availability.isFree(i, j)) {
+                        stamp[j] = i + 1;
+                        g.addEdge(i, R + j, distance[i] / mileage[j] * rate[j]);
+                        taken++;
+                    }
+                }
+                int from = Math.max(0, Math.min(rank - surplus, V - 1) - perRoute / 4);
+                for(int step = 0; step < V && taken < perRoute; step++) {
+                    int j = byCost[(from + step) % V];
+                    if(capacity[j] >= cargo[i] && stamp[j] != i + 1 && availability.isFree(i, j)) {
+                        stamp[j] = i + 1;
+                        g.addEdge(i, R + j, distance[i] / mileage[j] * rate[j]);
+                        taken++;
+                    }
+                }
+            }
+        }
+        for(int j = 0; j < V; j++) g.addEdge(R + j, sink, 0);
+
+        // Longest kept routes first: they settle on the cheap vehicles early
+        // and later augmenting paths stay short.
+        int flow = 0;
+        for(int k = 0; k < R && flow < V; k++) {
+            if(g.augment(order[k], sink)) flow++;
+        }
+
+        // Routes left over could still displace a covered route more cheaply:
+        // cancel negative cycles through the route side until none remain.
+        boolean improved = flow > 0 && flow < R;
+        while(improved) {
+            improved = false;
+            double floor = Double.POSITIVE_INFINITY;
+            for(int i = 0; i < R; i++) {
+                if(g.isMatched(i)) floor = Math.min(floor, g.potential[i]);
+            }
+            for(int i = 0; i < R; i++) {
+                if(!g.isMatched(i) && g.potential[i] > floor && g.swapIn(i, R, floor)) improved = true;
+            }
+        }
+
+        for(int i = 0; i < R; i++) {
+            for(int e = g.head[i]; e != -1; e = g.next[e]) {
+                if((e & 1) == 0 && g.cap[e] == 0) {
+                    res.vehicleForRoute[i] = g.to[e] - R;
+                    res.totalCost += g.cost[e];
+                }
+            }
+        }
+        res.assigned = flow;
+        return res;
+    }
+
+    /**
+     * Maximum-cardinality assignment ignoring cost beyond tie-breaking.
+     * Feasible vehicle sets are nested by cargo, so taking routes heaviest
+     * first and giving each the cheapest vehicle that fits never blocks a
+     * later route. Keeping these edges guarantees the sparse graph loses
+     * no coverage.
+     */
+    static int[] cardinalitySeed(double[] cargo, double[] capacity, double[] costPerKm) {
+        int R = cargo.length, V = capacity.length;
+        int[] byCargo = sortedIndex(cargo, true);
+        int[] byCapacity = sortedIndex(capacity, true);
+        int[] seed = new int[R];
+        MinHeap open = new MinHeap(V);
+        int next = 0;
+        for(int i : byCargo) {
+            while(next < V && capacity[byCapacity[next]] >= cargo[i]) {
+                open.push(costPerKm[byCapacity[next]], byCapacity[next]);
+                next++;
+            }
+            seed[i] = open.isEmpty() ? -1 : open.pop();
+        }
+        return seed;
+    }
+
+    static int[] sortedIndex(double[] keys, boolean descending) {
+        Integer[] boxed = new Integer[keys.length];
+        for(int k = 0; k < keys.length; k++) boxed[k] = k;
+        Comparator<Integer> order = (a, b) -> Double.compare(keys[a], keys[b]);
+        Arrays.sort(boxed, descending ? order.reversed() : order);
+        int[] idx = new int[keys.length];
+        for(int k = 0; k < keys.length; k++) idx[k] = boxed[k];
+        return idx;
+    }
+
+    /**
+     * Per-route cheapest vehicle with no sharing constraint, for comparison
+     * with the batch plan. Vehicles may appear on several routes.
+     */
+    static double greedyTotal(List<Route> routes, FleetIndex fleet) {
+        double total = 0;
+        for(Route r : routes) {
+            Vehicle v = fleet.cheapestFor(r.cargoAmount);
+            if(v != null) total += r.distance / v.mileage * v.rate;
+        }
+        return total;
+    }
+
+    // Residual graph with paired edges (e, e ^ 1) held in primitive arrays.
+    static class Graph {
+        int[] head, next, to, cap;
+        double[] cost;
+        int edges;
+        final int n;
+
+        // Dijkstra state reused across augmentations
+        double[] potential, dist;
+        int[] prevEdge, touched;
+        boolean[] done;
+        int touchedCount;
+        MinHeap heap;
+
+        Graph(int n, int expectedArcs) {
+            this.n = n;
+            head = new int[n];
+            Arrays.fill(head, -1);
+            int m = 2 * Math.max(expectedArcs, 1);
+            next = new int[m];
+            to = new int[m];
+            cap = new int[m];
+            cost = new double[m];
+        }
+
+        void addEdge(int u, int v, double c) {
+            if(edges + 2 > to.length) grow();
+            push(u, v, 1, c);
+            push(v, u, 0, -c);
+        }
+
+        private void push(int u, int v, int capacity, double c) {
+            to[edges] = v;
+            cap[edges] = capacity;
+            cost[edges] = c;
+            next[edges] = head[u];
+            head[u] = edges++;
+        }
+
+        private void grow() {
+            int m = to.length * 2;
+            next = Arrays.copyOf(next, m);
+            to = Arrays.copyOf(to, m);
+            cap = Arrays.copyOf(cap, m);
+            cost = Arrays.copyOf(cost, m);
+        }
+
+        /**
+         * Pushes one unit from s to t along the cheapest residual path.
+         * Dijkstra stops once t is settled and only the nodes it touched are
+         * reset; potentials advance by min(dist, dist[t]) so reduced costs
+         * stay >= 0 for the next call.
+         */
+        boolean augment(int s, int t) {
+            if(potential == null) {
+                potential = new double[n];
+                dist = new double[n];
+                prevEdge = new int[n];
+                done = new boolean[n];
+                Arrays.fill(dist, Double.POSITIVE_INFINITY);
+                touched = new int[16];
+                heap = new MinHeap(16);
+            }
+            touchedCount = 0;
+            heap.clear();
+            relax(s, 0, -1);
+
+            while(!heap.isEmpty()) {
+                double d = heap.topKey();
+                int u = heap.pop();
+                if(done[u] || d > dist[u]) continue;
+                done[u] = true;
+                if(u == t) break;
+                for(int e = head[u]; e != -1; e = next[e]) {
+                    int v = to[e];
+                    if(cap[e] == 0 || done[v]) continue;
+                    double nd = d + cost[e] + potential[u] - potential[v];
+                    if(nd < dist[v]) relax(v, nd, e);
+                }
+            }
+
+            boolean found = done[t];
+            if(found) {
+                // Untouched nodes would all advance by dist[t]; shifting only
+                // the touched ones down by the same amount is equivalent.
+                double reach = dist[t];
+                for(int k = 0; k < touchedCount; k++) {
+                    int v = touched[k];
+                    if(done[v]) potential[v] += dist[v] - reach;
+                }
+                for(int v = t; v != s; v = to[prevEdge[v] ^ 1]) {
+                    cap[prevEdge[v]]--;
+                    cap[prevEdge[v] ^ 1]++;
+                }
+            }
+            for(int k = 0; k < touchedCount; k++) {
+                int v = touched[k];
+                dist[v] = Double.POSITIVE_INFINITY;
+                done[v] = false;
+            }
+            return found;
+        }
+
+        boolean isMatched(int route) {
+            for(int e = head[route]; e != -1; e = next[e]) {
+                if((e & 1) == 0 && cap[e] == 0) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Tries to route an unmatched route r into the plan by pushing out a
+         * matched route m (any m below R) whose alternating path r -> m has
+         * negative true cost. Cardinality is unchanged and total cost drops.
+         * The true cost of reaching m is dist[m] + potential[m] - potential[r],
+         * so with floor = min potential over matched routes the search stops
+         * once dist reaches potential[r] - floor.
+         */
+        boolean swapIn(int r, int R, double floor) {
+            double bound = potential[r] - floor;
+            touchedCount = 0;
+            heap.clear();
+            relax(r, 0, -1);
+            while(!heap.isEmpty()) {
+                double d = heap.topKey();
+                int u = heap.pop();
+                if(done[u] || d > dist[u]) continue;
+                if(d >= bound) break;
+                done[u] = true;
+                for(int e = head[u]; e != -1; e = next[e]) {
+                    int v = to[e];
+                    if(cap[e] == 0 || done[v]) continue;
+                    double nd = d + cost[e] + potential[u] - potential[v];
+                    if(nd < dist[v]) relax(v, nd, e);
+                }
+            }
+
+            int out = -1;
+            double gain = -1e-9;
+            for(int k = 0; k < touchedCount; k++) {
+                int m = touched[k];
+                if(m < R && m != r && done[m]) {
+                    double trueCost = dist[m] + potential[m] - potential[r];
+                    if(trueCost < gain) {
+                        gain = trueCost;
+                        out = m;
+                    }
+                }
+            }
+
+            if(out != -1) {
+                double reach = dist[out];
+                for(int k = 0; k < touchedCount; k++) {
+                    int v = touched[k];
+                    if(done[v] && dist[v] < reach) potential[v] += dist[v] - reach;
+                }
+                for(int v = out; v != r; v = to[prevEdge[v] ^ 1]) {
+                    cap[prevEdge[v]]--;
+                    cap[prevEdge[v] ^ 1]++;
+                }
+            }
+            for(int k = 0; k < touchedCount; k++) {
+                int v = touched[k];
+                dist[v] = Double.POSITIVE_INFINITY;
+                done[v] = false;
+            }
+            return out != -1;
+        }
+
+        private void relax(int v, double d, int e) {
+            if(dist[v] == Double.POSITIVE_INFINITY) {
+                if(touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                touched[touchedCount++] = v;
+            }
+            dist[v] = d;
+            prevEdge[v] = e;
+            heap.push(d, v);
+        }
+    }
+
+    // Binary min-heap of (double key, int node) with lazy deletion.
+    static class MinHeap {
+        double[] keys;
+        int[] vals;
+        int size;
+
+        MinHeap(int capacity) {
+            keys = new double[Math.max(capacity, 16)];
+            vals = new int[keys.length];
+        }
+
+        boolean isEmpty() { return size == 0; }
+        void clear() { size = 0; }
+        double topKey() { return keys[0]; }
+
+        void push(double k, int v) {
+            if(size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                vals = Arrays.copyOf(vals, size * 2);
+            }
+            int i = size++;
+            while(i > 0) {
+                int p = (i - 1) >>> 1;
+                if(keys[p] <= k) break;
+                keys[i] = keys[p];
+                vals[i] = vals[p];
+                i = p;
+            }
+            keys[i] = k;
+            vals[i] = v;
+        }
+
+        int pop() {
+            int top = vals[0];
+            double k = keys[--size];
+            int v = vals[size];
+            int i = 0;
+            while(true) {
+                int c = 2 * i + 1;
+                if(c >= size) break;
+                if(c + 1 < size && keys[c + 1] < keys[c]) c++;
+                if(keys[c] >= k) break;
+                keys[i] = keys[c];
+                vals[i] = vals[c];
+                i = c;
+            }
+            keys[i] = k;
+            vals[i] = v;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+import java.util.*;
+import java.util.function.Predicate;
+
+// ==================== BEST MATCH TABLE ====================
+
+/**
+ * Materialized cheapest-vehicle-per-route table, kept current as vehicles
+ * and routes are added instead of being recomputed on every planning pass.
+ * (Vehicles are never removed or edited in place anywhere in the system.)
+ *
+ * A route's best vehicle is the feasible one (capacity >= cargo) with the
+ * lowest cost per km, so entries are kept sorted by cargo: going down in
+ * cargo only adds feasible vehicles, so the best cost per km never rises.
+ * A new vehicle therefore walks down from the heaviest route it can carry
+ * and stops at the first route that already has one at least as cheap.
+ * Equal-cost ties keep the current vehicle.
+ */
+class BestMatchTable {
+    static class Entry {
+        final Route route;
+        Vehicle best;
+        double costPerKm;
+
+        Entry(Route route) {
+            this.route = route;
+        }
+    }
+
+    private Entry[] byCargo = new Entry[16];
+    private int size;
+    private final Map<Route, Entry> entries = new IdentityHashMap<>();
+    private final List<Vehicle> fleet = new ArrayList<>();
+    private FleetIndex index;
+
+    /**
+     * Builds the table with one full (parallel) matching pass.
+     */
+    BestMatchTable(List<Vehicle> vehicles, List<Route> routes) {
+        fleet.addAll(vehicles);
+        index = new FleetIndex(fleet);
+        Vehicle[] matches = MatchPlanner.computeBestMatches(routes, index);
+        Entry[] sorted = new Entry[Math.max(16, routes.size())];
+        for(int i = 0; i < routes.size(); i++) {
+            Route r = routes.get(i);
+            if(entries.containsKey(r)) continue;
+            Entry e = new Entry(r);
+            if(matches[i] != null) setBest(e, matches[i]);
+            entries.put(r, e);
+            sorted[size++] = e;
+        }
+        Arrays.sort(sorted, 0, size, Comparator.comparingDouble(e -> e.route.cargoAmount));
+        byCargo = sorted;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Best vehicle for one route (null if no vehicle can carry it).
+     */
+    synchronized Vehicle bestFor(Route r) {
+        Entry e = entries.get(r);
+        return e == null ? null : e.best;
+    }
+
+    /**
+     * Cheapest vehicle for the route among those passing the filter (null
+     * if none fits). The stored best is tried first.
+     */
+    synchronized Vehicle bestFor(Route r, Predicate<Vehicle> usable) {
+        Vehicle best = bestFor(r);
+        if(best == null || usable.test(best)) return best;
+        return index().cheapestFor(r.cargoAmount, usable);
+    }
+
+    /**
+     * Best vehicle for each of the given routes, in the same order (null
+     * where none fits).
+     */
+    synchronized Vehicle[] bestMatches(List<Route> routes) {
+        Vehicle[] out = new Vehicle[routes.size()];
+        for(int i = 0; i < out.length; i++) {
+            Route r = routes.get(i);
+            Entry e = entries.get(r);
+            if(e == null) e = insertRoute(r);
+            out[i] = e.best;
+        }
+        return out;
+    }
+
+    // ---------- routes ----------
+
+    synchronized void addRoute(Route r) {
+        if(!entries.containsKey(r)) insertRoute(r);
+    }
+
+    private Entry insertRoute(Route r) {
+        Entry e = new Entry(r);
+        Vehicle v = index().cheapestFor(r.cargoAmount);
+        if(v != null) setBest(e, v);
+        entries.put(r, e);
+
+        if(size == byCargo.length) byCargo = Arrays.copyOf(byCargo, size * 2);
+        int at = upperBound(r.cargoAmount);
+        System.arraycopy(byCargo, at, byCargo, at + 1, size - at);
+        byCargo[at] = e;
+        size++;
+        return e;
+    }
+
+    // ---------- vehicles ----------
+
+    synchronized void addVehicle(Vehicle v) {
+        fleet.add(v);
+        index = null;
+        improveWith(v);
+    }
+
+    // Offers v to every route it can carry, heaviest first, until it stops winning
+    private void improveWith(Vehicle v) {
+        double cpk = v.rate / v.mileage;
+        for(int i = upperBound(v.capacity) - 1; i >= 0; i--) {
+            Entry e = byCargo[i];
+            if(e.best == v) continue;
+            if(e.best != null && e.costPerKm <= cpk) break;
+            setBest(e, v);
+        }
+    }
+
+    private static void setBest(Entry e, Vehicle v) {
+        e.best = v;
+        e.costPerKm = v.rate / v.mileage;
+    }
+
+    private FleetIndex index() {
+        if(index == null) index = new FleetIndex(fleet);
+        return index;
+    }
+
+    // First slot whose cargo is greater than the given amount
+    private int upperBound(double cargo) {
+        int lo = 0, hi = size;
+        while(lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if(byCargo[mid].route.cargoAmount <= cargo) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
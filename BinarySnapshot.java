@@ -0,0 +1,281 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// ==================== BINARY SNAPSHOT ====================
+
+/**
+ * Compact binary copy of the CSV snapshot, read back with FileChannel.map
+ * so startup skips text parsing. Little-endian, column-oriented:
+ *
+ *   header       int magic 'TLSB', int version
+ *   dictionary   int count, int[count + 1] offsets, int byteLength, UTF-8 bytes
+ *   vehicles     int n, int[n] idRef, byte[n] type (0 Truck, 1 Van),
+ *                double[n] capacity, double[n] mileage, double[n] rate,
+ *                double[n] latitude, double[n] longitude (NaN if unknown)
+ *   routes       int n, int[n] idRef, int[n] sourceRef, int[n] destinationRef,
+ *                double[n] distance, double[n] cargo, long[n] departure (0 if unset)
+ *   allocations  int n, int[n] id, int[n] route, int[n] vehicle, long[n] timestamp,
+ *                double[n] cost, double[n] cargo, int[n] linkGroup
+ *   deliveries   int n, int[n] idRef, int[n] vehicle, long[n] timestamp, long[n] departure,
+ *                int[n + 1] firstStop, double[n] totalDistance, double[n] totalCargo,
+ *                double[n] cost, int[n] routesRef
+ *   stops        int m, int[m] cityRef, double[m] distance, double[m] cargo
+ *
+ * *Ref columns index the string dictionary (IDs and city names are stored
+ * once each); route/vehicle columns index the routes/vehicles sections.
+ * Timestamps are epoch millis. Older versions (1: text timestamps,
+ * 2: no split-load columns, 3: no vehicle locations, 4: no departures,
+ * 5: no delivery routes) are rejected and the CSV files are loaded instead.
+ * CSV stays the interchange format.
+ */
+class BinarySnapshot {
+    static final int MAGIC = 0x544C5342;
+    static final int VERSION = 6;
+
+    static class Data {
+        List<Vehicle> vehicles = new ArrayList<>();
+        List<Route> routes = new ArrayList<>();
+        List<Allocation> allocations = new ArrayList<>();
+        List<MultiStopDelivery> deliveries = new ArrayList<>();
+
+        long rows() {
+            return vehicles.size() + routes.size() + allocations.size() + deliveries.size();
+        }
+    }
+
+    // ---------- write ----------
+
+    /**
+     * Writes the snapshot to a temp file and renames it over path.
+     */
+    static void write(Path path, List<Vehicle> vehicles, List<Route> routes,
+                      List<Allocation> allocations, List<MultiStopDelivery> deliveries) throws IOException {
+        Map<String, Integer> dict = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        Map<Vehicle, Integer> vehicleIndex = new IdentityHashMap<>();
+        Map<Route, Integer> routeIndex = new IdentityHashMap<>();
+        for(int i = 0; i < vehicles.size(); i++) vehicleIndex.put(vehicles.get(i), i);
+        for(int i = 0; i < routes.size(); i++) routeIndex.put(routes.get(i), i);
+
+        int nv = vehicles.size(), nr = routes.size(), nd = deliveries.size();
+        List<Allocation> kept = new ArrayList<>(allocations.size());
+        for(Allocation a : allocations) {
+            if(routeIndex.containsKey(a.route) && vehicleIndex.containsKey(a.vehicle)) kept.add(a);
+        }
+        int na = kept.size();
+        int ns = 0;
+        for(MultiStopDelivery d : deliveries) ns += d.stops.size();
+
+        // Intern every string first so the dictionary can be written up front
+        int[] vId = new int[nv];
+        for(int i = 0; i < nv; i++) vId[i] = intern(vehicles.get(i).id, dict, strings);
+        int[] rId = new int[nr], rSrc = new int[nr], rDst = new int[nr];
+        for(int i = 0; i < nr; i++) {
+            Route r = routes.get(i);
+            rId[i] = intern(r.id, dict, strings);
+            rSrc[i] = intern(r.source, dict, strings);
+            rDst[i] = intern(r.destination, dict, strings);
+        }
+        int[] dId = new int[nd], dRoutes = new int[nd], sCity = new int[ns];
+        for(int i = 0, s = 0; i < nd; i++) {
+            MultiStopDelivery d = deliveries.get(i);
+            dId[i] = intern(d.deliveryId, dict, strings);
+            dRoutes[i] = intern(d.routes, dict, strings);
+            for(Stop stop : d.stops) sCity[s++] = intern(stop.city, dict, strings);
+        }
+
+        byte[][] encoded = new byte[strings.size()][];
+        long blob = 0;
+        for(int i = 0; i < encoded.length; i++) {
+            encoded[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+            blob += encoded[i].length;
+        }
+
+        long size = 8
+            + 4 + 4L * (encoded.length + 1) + 4 + blob
+            + 4 + nv * (4L + 1 + 8 * 5)
+            + 4 + nr * (4L * 3 + 8 * 3)
+            + 4 + na * (4L * 4 + 8 * 3)
+            + 4 + nd * (4L * 3 + 8 * 5) + 4L * (nd + 1)
+            + 4 + ns * (4L + 8 * 2);
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(MAGIC).putInt(VERSION);
+
+            buf.putInt(encoded.length);
+            int offset = 0;
+            for(byte[] e : encoded) {
+                buf.putInt(offset);
+                offset += e.length;
+            }
+            buf.putInt(offset);
+            buf.putInt(offset);
+            for(byte[] e : encoded) buf.put(e);
+
+            buf.putInt(nv);
+            for(int i = 0; i < nv; i++) buf.putInt(vId[i]);
+            for(Vehicle v : vehicles) buf.put((byte) (v instanceof Truck ? 0 : 1));
+            for(Vehicle v : vehicles) buf.putDouble(v.capacity);
+            for(Vehicle v : vehicles) buf.putDouble(v.mileage);
+            for(Vehicle v : vehicles) buf.putDouble(v.rate);
+            for(Vehicle v : vehicles) buf.putDouble(v.latitude);
+            for(Vehicle v : vehicles) buf.putDouble(v.longitude);
+
+            buf.putInt(nr);
+            for(int i = 0; i < nr; i++) buf.putInt(rId[i]);
+            for(int i = 0; i < nr; i++) buf.putInt(rSrc[i]);
+            for(int i = 0; i < nr; i++) buf.putInt(rDst[i]);
+            for(Route r : routes) buf.putDouble(r.distance);
+            for(Route r : routes) buf.putDouble(r.cargoAmount);
+            for(Route r : routes) buf.putLong(r.departure);
+
+            buf.putInt(na);
+            for(Allocation a : kept) buf.putInt(a.allocationId);
+            for(Allocation a : kept) buf.putInt(routeIndex.get(a.route));
+            for(Allocation a : kept) buf.putInt(vehicleIndex.get(a.vehicle));
+            for(Allocation a : kept) buf.putLong(a.timestamp);
+            for(Allocation a : kept) buf.putDouble(a.cost);
+            for(Allocation a : kept) buf.putDouble(a.cargo);
+            for(Allocation a : kept) buf.putInt(a.linkGroup);
+
+            buf.putInt(nd);
+            for(int i = 0; i < nd; i++) buf.putInt(dId[i]);
+            for(MultiStopDelivery d : deliveries) buf.putInt(vehicleIndex.getOrDefault(d.vehicle, -1));
+            for(MultiStopDelivery d : deliveries) buf.putLong(d.timestamp);
+            for(MultiStopDelivery d : deliveries) buf.putLong(d.departure);
+            int first = 0;
+            for(MultiStopDelivery d : deliveries) {
+                buf.putInt(first);
+                first += d.stops.size();
+            }
+            buf.putInt(first);
+            for(MultiStopDelivery d : deliveries) buf.putDouble(d.totalDistance);
+            for(MultiStopDelivery d : deliveries) buf.putDouble(d.totalCargo);
+            for(MultiStopDelivery d : deliveries) buf.putDouble(d.cost);
+            for(int i = 0; i < nd; i++) buf.putInt(dRoutes[i]);
+
+            buf.putInt(ns);
+            for(int i = 0; i < ns; i++) buf.putInt(sCity[i]);
+            for(MultiStopDelivery d : deliveries) for(Stop s : d.stops) buf.putDouble(s.distance);
+            for(MultiStopDelivery d : deliveries) for(Stop s : d.stops) buf.putDouble(s.cargo);
+
+            buf.force();
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int intern(String s, Map<String, Integer> dict, List<String> strings) {
+        Integer ref = dict.get(s);
+        if(ref == null) {
+            ref = strings.size();
+            dict.put(s, ref);
+            strings.add(s);
+        }
+        return ref;
+    }
+
+    // ---------- read ----------
+
+    static Data read(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            if(buf.getInt() != MAGIC) throw new IOException("not a snapshot file");
+            if(buf.getInt() != VERSION) throw new IOException("unsupported snapshot version");
+
+            String[] dict = new String[buf.getInt()];
+            int[] offsets = ints(buf, dict.length + 1);
+            byte[] bytes = new byte[buf.getInt()];
+            buf.get(bytes);
+            for(int i = 0; i < dict.length; i++) {
+                dict[i] = new String(bytes, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+            }
+
+            Data data = new Data();
+
+            int nv = buf.getInt();
+            int[] vId = ints(buf, nv);
+            byte[] vType = new byte[nv];
+            buf.get(vType);
+            double[] cap = doubles(buf, nv), mile = doubles(buf, nv), rate = doubles(buf, nv);
+            double[] lat = doubles(buf, nv), lon = doubles(buf, nv);
+            for(int i = 0; i < nv; i++) {
+                Vehicle v = vType[i] == 0
+                    ? new Truck(dict[vId[i]], cap[i], mile[i], rate[i])
+                    : new Van(dict[vId[i]], cap[i], mile[i], rate[i]);
+                data.vehicles.add(v.locate(lat[i], lon[i]));
+            }
+
+            int nr = buf.getInt();
+            int[] rId = ints(buf, nr), rSrc = ints(buf, nr), rDst = ints(buf, nr);
+            double[] dist = doubles(buf, nr), cargo = doubles(buf, nr);
+            long[] departure = longs(buf, nr);
+            for(int i = 0; i < nr; i++) {
+                Route r = new Route(dict[rId[i]], dist[i], cargo[i], dict[rSrc[i]], dict[rDst[i]]);
+                r.departure = departure[i];
+                data.routes.add(r);
+            }
+
+            int na = buf.getInt();
+            int[] aId = ints(buf, na), aRoute = ints(buf, na), aVehicle = ints(buf, na);
+            long[] aTs = longs(buf, na);
+            double[] aCost = doubles(buf, na), aCargo = doubles(buf, na);
+            int[] aLink = ints(buf, na);
+            for(int i = 0; i < na; i++) {
+                data.allocations.add(new Allocation(aId[i], data.routes.get(aRoute[i]),
+                    data.vehicles.get(aVehicle[i]), aCost[i], aTs[i], aCargo[i], aLink[i]));
+            }
+
+            int nd = buf.getInt();
+            int[] dId = ints(buf, nd), dVehicle = ints(buf, nd);
+            long[] dTs = longs(buf, nd), dDepart = longs(buf, nd);
+            int[] first = ints(buf, nd + 1);
+            double[] dDist = doubles(buf, nd), dCargo = doubles(buf, nd), dCost = doubles(buf, nd);
+            int[] dRoutes = ints(buf, nd);
+            int ns = buf.getInt();
+            int[] sCity = ints(buf, ns);
+            double[] sDist = doubles(buf, ns), sCargo = doubles(buf, ns);
+            for(int i = 0; i < nd; i++) {
+                if(dVehicle[i] < 0) continue;
+                List<Stop> stops = new ArrayList<>(first[i + 1] - first[i]);
+                for(int s = first[i]; s < first[i + 1]; s++) stops.add(new Stop(dict[sCity[s]], sDist[s], sCargo[s]));
+                MultiStopDelivery d = new MultiStopDelivery(dict[dId[i]], data.vehicles.get(dVehicle[i]), stops,
+                    dCargo[i], dDist[i], dCost[i], dTs[i], dDepart[i]);
+                d.routes = dict[dRoutes[i]];
+                data.deliveries.add(d);
+            }
+            return data;
+        } catch(BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("truncated or corrupt snapshot", e);
+        }
+    }
+
+    private static int[] ints(ByteBuffer buf, int n) {
+        int[] out = new int[n];
+        buf.asIntBuffer().get(out);
+        buf.position(buf.position() + 4 * n);
+        return out;
+    }
+
+    private static long[] longs(ByteBuffer buf, int n) {
+        long[] out = new long[n];
+        buf.asLongBuffer().get(out);
+        buf.position(buf.position() + 8 * n);
+        return out;
+    }
+
+    private static double[] doubles(ByteBuffer buf, int n) {
+        double[] out = new double[n];
+        buf.asDoubleBuffer().get(out);
+        buf.position(buf.position() + 8 * n);
+        return out;
+    }
+}
@@ -0,0 +1,99 @@
+import java.util.*;
+
+// ==================== VEHICLE BOOKINGS ====================
+
+/**
+ * Availability calendar: one interval tree of bookings per vehicle, filled
+ * from every confirmed allocation and multi-stop delivery (including the
+ * history loaded at startup). A trip occupies its vehicle from departure
+ * for distance / -Dbooking.speedKmh hours (default 50 km/h). A route with
+ * no departure set leaves when it is allocated.
+ *
+ * isFree is O(log n) in the vehicle's bookings, so matchers can filter to
+ * "free during [start, end)" per candidate however long the history is.
+ */
+class Bookings {
+    static double speedKmh = Double.parseDouble(System.getProperty("booking.speedKmh", "50"));
+
+    private final Map<String, IntervalTree<Object>> byVehicle = new HashMap<>();
+    private long total;
+
+    static long durationMillis(double km) {
+        return Math.max(1, Math.round(km / speedKmh * 3_600_000));
+    }
+
+    /**
+     * The window a route would occupy if allocated now: from its departure
+     * (or now) for its estimated duration.
+     */
+    static long[] window(Route r) {
+        long start = r.departure > 0 ? r.departure : Timestamps.now();
+        return new long[] {start, start + durationMillis(r.distance)};
+    }
+
+    synchronized void record(Allocation a) {
+        long start = start(a);
+        book(a.vehicle, start, start + durationMillis(a.route.distance), a);
+    }
+
+    private static long start(Allocation a) {
+        return a.route.departure > 0 ? a.route.departure : a.timestamp;
+    }
+
+    synchronized void record(MultiStopDelivery d) {
+        book(d.vehicle, d.departure, d.departure + durationMillis(d.totalDistance), d);
+    }
+
+    // The booking keeps the Allocation or MultiStopDelivery itself; describe() names it
+    private void book(Vehicle v, long start, long end, Object booking) {
+        book(v.id, start, end, booking);
+    }
+
+    /**
+     * Books a vehicle by ID, for callers without Vehicle objects (batch
+     * mode); booking is what describe() reports for it.
+     */
+    synchronized void book(String vehicleId, long start, long end, Object booking) {
+        byVehicle.computeIfAbsent(vehicleId, k -> new IntervalTree<>()).add(start, end, booking);
+        total++;
+    }
+
+    static String describe(IntervalTree.Interval<Object> booking) {
+        Object what = booking.value();
+        if(what instanceof Allocation a) return "allocation " + a.allocationId;
+        if(what instanceof MultiStopDelivery d) return "delivery " + d.deliveryId;
+        return String.valueOf(what);
+    }
+
+    synchronized long size() {
+        return total;
+    }
+
+    synchronized boolean isFree(Vehicle v, long start, long end) {
+        return conflict(v, start, end) == null;
+    }
+
+    /**
+     * The earliest booking of v overlapping [start, end), or null if v is free.
+     */
+    synchronized IntervalTree.Interval<Object> conflict(Vehicle v, long start, long end) {
+        return conflict(v.id, start, end);
+    }
+
+    synchronized IntervalTree.Interval<Object> conflict(String vehicleId, long start, long end) {
+        IntervalTree<Object> tree = byVehicle.get(vehicleId);
+        return tree == null ? null : tree.firstOverlap(start, end);
+    }
+
+    /**
+     * The earliest booking overlapping the trip record(a) would book, or null.
+     */
+    synchronized IntervalTree.Interval<Object> conflict(Allocation a) {
+        long start = start(a);
+        return conflict(a.vehicle, start, start + durationMillis(a.route.distance));
+    }
+
+    synchronized IntervalTree.Interval<Object> conflict(MultiStopDelivery d) {
+        return conflict(d.vehicle, d.departure, d.departure + durationMillis(d.totalDistance));
+    }
+}
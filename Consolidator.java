@@ -0,0 +1,471 @@
+import java.util.*;
+
+// ==================== ROUTE CONSOLIDATION ====================
+
+/**
+ * Packs routes that leave from the same city onto shared trips and returns
+ * each trip as a multi-stop plan. A trip can carry up to the largest
+ * vehicle's capacity and is costed on the cheapest vehicle (cost per km)
+ * able to carry its load while the trips are searched.
+ *
+ * First-fit decreasing by cargo: a route joins the first trip from its
+ * source where it fits and adding it costs less than running it alone,
+ * otherwise it opens a trip. Local search then relocates single routes and
+ * swaps pairs between trips while total cost drops, until nothing improves
+ * or the time budget (-Dconsolidate.millis) runs out. Tours are kept by
+ * cheapest insertion during the search and re-optimized with StopOptimizer
+ * at the end.
+ *
+ * The trips run at the same time, so each then gets a vehicle of its own:
+ * shared trips first, heavier loads first, each on the cheapest vehicle
+ * not already given to another trip and free for the trip (Availability).
+ * A trip left without one is reported in Result.noVehicle rather than
+ * planned on a vehicle that is taken.
+ *
+ * Leg distances come from the caller; an unknown leg between two stops is
+ * costed as going back through the source.
+ */
+class Consolidator {
+    static long budgetMillis = Long.getLong("consolidate.millis", 2000L);
+
+    private static final double EPS = 1e-9;
+
+    interface Distances {
+        /**
+         * Distance between two cities, or NaN if unknown.
+         */
+        double between(String a, String b);
+    }
+
+    interface Availability {
+        /**
+         * Whether v is free for a trip of the given length leaving now.
+         */
+        boolean isFree(Vehicle v, double distance);
+    }
+
+    static class Plan {
+        final String source;
+        final Vehicle vehicle;
+        final List<Route> routes;
+        final List<Stop> stops;     // leg distance from the previous stop, cargo dropped there
+        final double cargo, distance, cost;
+
+        Plan(String source, Vehicle vehicle, List<Route> routes, List<Stop> stops, double cargo, double distance, double cost) {
+            this.source = source;
+            this.vehicle = vehicle;
+            this.routes = routes;
+            this.stops = stops;
+            this.cargo = cargo;
+            this.distance = distance;
+            this.cost = cost;
+        }
+
+        boolean shared() {
+            return routes.size() > 1;
+        }
+    }
+
+    static class Result {
+        final List<Plan> plans = new ArrayList<>();
+        final List<Route> unplanned = new ArrayList<>();
+        final List<Route> noVehicle = new ArrayList<>();     // on trips no able vehicle was free for
+        double separateCost, consolidatedCost;
+        long millis;
+        boolean timedOut;
+    }
+
+    // ---------- model ----------
+
+    private static class Group {
+        final List<String> cities = new ArrayList<>();           // 0 = source
+        final Map<String, Integer> cityIndex = new HashMap<>();
+        final List<Double> direct = new ArrayList<>();           // shortest route distance from source
+        final List<Item> items = new ArrayList<>();
+        final List<Bin> bins = new ArrayList<>();
+        final Map<Long, Double> legs = new HashMap<>();
+
+        Group(String source) {
+            city(source, 0);
+        }
+
+        int city(String name, double fromSource) {
+            String key = name.toLowerCase();
+            Integer i = cityIndex.get(key);
+            if(i == null) {
+                i = cities.size();
+                cityIndex.put(key, i);
+                cities.add(name);
+                direct.add(fromSource);
+            } else if(fromSource < direct.get(i)) {
+                direct.set(i, fromSource);
+            }
+            return i;
+        }
+    }
+
+    private static class Item {
+        final Route route;
+        final int dest;
+        Bin bin;
+
+        Item(Route route, int dest) {
+            this.route = route;
+            this.dest = dest;
+        }
+
+        double cargo() {
+            return route.cargoAmount;
+        }
+    }
+
+    private static class Bin {
+        List<Item> items = new ArrayList<>();
+        int[] order = new int[4];    // distinct stops in visiting order
+        int stops;
+        double load, distance, cost;
+        Vehicle vehicle;
+
+        int count(int dest) {
+            int n = 0;
+            for(Item it : items) if(it.dest == dest) n++;
+            return n;
+        }
+
+        int position(int dest) {
+            for(int p = 0; p < stops; p++) if(order[p] == dest) return p;
+            return -1;
+        }
+
+        Bin copy() {
+            Bin b = new Bin();
+            b.items = new ArrayList<>(items);
+            b.order = order.clone();
+            b.stops = stops;
+            b.load = load;
+            b.distance = distance;
+            b.cost = cost;
+            b.vehicle = vehicle;
+            return b;
+        }
+
+        void restore(Bin b) {
+            items = b.items;
+            order = b.order;
+            stops = b.stops;
+            load = b.load;
+            distance = b.distance;
+            cost = b.cost;
+            vehicle = b.vehicle;
+            for(Item it : items) it.bin = this;
+        }
+    }
+
+    private final FleetIndex fleet;
+    private final Distances distances;
+    private final double maxCapacity;
+    private Group group;    // group being worked on, for leg lookups
+
+    private Consolidator(FleetIndex fleet, Distances distances) {
+        this.fleet = fleet;
+        this.distances = distances;
+        this.maxCapacity = fleet.size() == 0 ? 0 : fleet.capacity[fleet.size() - 1];
+    }
+
+    /**
+     * Consolidates the routes; routes heavier than every vehicle are returned unplanned.
+     */
+    static Result consolidate(List<Route> routes, FleetIndex fleet, Distances distances, Availability availability) {
+        long start = System.nanoTime();
+        long deadline = start + budgetMillis * 1_000_000L;
+        Consolidator c = new Consolidator(fleet, distances);
+        Result result = new Result();
+
+        Map<String, Group> groups = new LinkedHashMap<>();
+        for(Route r : routes) {
+            if(r.cargoAmount > c.maxCapacity) {
+                result.unplanned.add(r);
+                continue;
+            }
+            Group g = groups.computeIfAbsent(r.source.toLowerCase(), k -> new Group(r.source));
+            g.items.add(new Item(r, g.city(r.destination, r.distance)));
+            result.separateCost += c.costFor(r.cargoAmount, r.distance);
+        }
+
+        for(Group g : groups.values()) {
+            c.group = g;
+            c.firstFitDecreasing(g);
+        }
+        boolean improved = true;
+        while(improved && System.nanoTime() < deadline) {
+            improved = false;
+            for(Group g : groups.values()) {
+                c.group = g;
+                improved |= c.relocate(g, deadline);
+            }
+            if(improved) continue;
+            for(Group g : groups.values()) {
+                c.group = g;
+                improved |= c.swap(g, deadline);
+            }
+        }
+        result.timedOut = System.nanoTime() >= deadline;
+
+        List<Bin> trips = new ArrayList<>();
+        Map<Bin, Group> groupOf = new IdentityHashMap<>();
+        for(Group g : groups.values()) {
+            for(Bin b : g.bins) {
+                if(b.items.isEmpty()) continue;
+                trips.add(b);
+                groupOf.put(b, g);
+            }
+        }
+        trips.sort(Comparator.comparing((Bin b) -> b.items.size() < 2)
+            .thenComparing(Comparator.comparingDouble((Bin b) -> b.load).reversed()));
+        Set<Vehicle> used = Collections.newSetFromMap(new IdentityHashMap<>());
+        for(Bin b : trips) {
+            Vehicle v = fleet.cheapestFor(b.load, x -> !used.contains(x) && availability.isFree(x, b.distance));
+            if(v == null) {
+                for(Item it : b.items) {
+                    result.noVehicle.add(it.route);
+                    result.separateCost -= c.costFor(it.cargo(), it.route.distance);
+                }
+                continue;
+            }
+            used.add(v);
+            b.vehicle = v;
+            c.group = groupOf.get(b);
+            Plan p = c.toPlan(c.group, b);
+            result.plans.add(p);
+            result.consolidatedCost += p.cost;
+        }
+        result.millis = (System.nanoTime() - start) / 1_000_000;
+        return result;
+    }
+
+    // ---------- construction ----------
+
+    private void firstFitDecreasing(Group g) {
+        List<Item> sorted = new ArrayList<>(g.items);
+        sorted.sort(Comparator.comparingDouble(Item::cargo).reversed());
+        for(Item it : sorted) {
+            double alone = costFor(it.cargo(), leg(0, it.dest));
+            Bin target = null;
+            for(Bin b : g.bins) {
+                if(b.load + it.cargo() > maxCapacity) continue;
+                double added = costFor(b.load + it.cargo(), b.distance + insertionDelta(b, it.dest)) - b.cost;
+                if(added < alone - EPS) {
+                    target = b;
+                    break;
+                }
+            }
+            if(target == null) {
+                target = new Bin();
+                g.bins.add(target);
+            }
+            insert(target, it);
+        }
+    }
+
+    // ---------- local search ----------
+
+    // Moves single routes to the trip (or a new trip) where total cost drops most
+    private boolean relocate(Group g, long deadline) {
+        boolean improved = false;
+        for(Item it : g.items) {
+            if(System.nanoTime() >= deadline) return improved;
+            Bin from = it.bin;
+            double removed = from.items.size() == 1 ? -from.cost
+                : costFor(from.load - it.cargo(), from.distance + removalDelta(from, it)) - from.cost;
+
+            Bin best = null;
+            double bestDelta = -EPS;
+            if(from.items.size() > 1) {
+                double delta = removed + costFor(it.cargo(), leg(0, it.dest));
+                if(delta < bestDelta) bestDelta = delta;
+            }
+            boolean toNew = bestDelta < -EPS;
+            for(Bin b : g.bins) {
+                if(b == from || b.items.isEmpty() || b.load + it.cargo() > maxCapacity) continue;
+                double delta = removed + costFor(b.load + it.cargo(), b.distance + insertionDelta(b, it.dest)) - b.cost;
+                if(delta < bestDelta) {
+                    bestDelta = delta;
+                    best = b;
+                    toNew = false;
+                }
+            }
+            if(best == null && !toNew) continue;
+            remove(from, it);
+            if(best == null) {
+                best = new Bin();
+                g.bins.add(best);
+            }
+            insert(best, it);
+            improved = true;
+        }
+        g.bins.removeIf(b -> b.items.isEmpty());
+        return improved;
+    }
+
+    // Exchanges two routes between trips when that lowers the pair's cost
+    private boolean swap(Group g, long deadline) {
+        boolean improved = false;
+        List<Item> items = g.items;
+        for(int i = 0; i < items.size(); i++) {
+            if(System.nanoTime() >= deadline) return improved;
+            for(int j = i + 1; j < items.size(); j++) {
+                Item a = items.get(i), b = items.get(j);
+                Bin ba = a.bin, bb = b.bin;
+                if(ba == bb || a.dest == b.dest && a.cargo() == b.cargo()) continue;
+                if(ba.load - a.cargo() + b.cargo() > maxCapacity || bb.load - b.cargo() + a.cargo() > maxCapacity) continue;
+
+                double before = ba.cost + bb.cost;
+                Bin savedA = ba.copy(), savedB = bb.copy();
+                remove(ba, a);
+                remove(bb, b);
+                insert(ba, b);
+                insert(bb, a);
+                if(ba.cost + bb.cost < before - EPS) {
+                    improved = true;
+                } else {
+                    ba.restore(savedA);
+                    bb.restore(savedB);
+                }
+            }
+        }
+        return improved;
+    }
+
+    // ---------- tours ----------
+
+    private double leg(int a, int b) {
+        if(a == b) return 0;
+        if(a == 0) return group.direct.get(b);
+        if(b == 0) return group.direct.get(a);
+        long key = a < b ? (long) a << 32 | b : (long) b << 32 | a;
+        Double d = group.legs.get(key);
+        if(d == null) {
+            d = distances.between(group.cities.get(a), group.cities.get(b));
+            if(Double.isNaN(d)) d = group.direct.get(a) + group.direct.get(b);
+            group.legs.put(key, d);
+        }
+        return d;
+    }
+
+    // Extra distance for visiting dest, at its cheapest position in the tour
+    private double insertionDelta(Bin b, int dest) {
+        if(b.position(dest) >= 0) return 0;
+        double best = Double.POSITIVE_INFINITY;
+        int prev = 0;
+        for(int p = 0; p <= b.stops; p++) {
+            double delta = p == b.stops ? leg(prev, dest)
+                : leg(prev, dest) + leg(dest, b.order[p]) - leg(prev, b.order[p]);
+            if(delta < best) best = delta;
+            if(p < b.stops) prev = b.order[p];
+        }
+        return best;
+    }
+
+    // Distance saved by taking the item off (zero if its stop stays)
+    private double removalDelta(Bin b, Item it) {
+        if(b.count(it.dest) > 1) return 0;
+        int p = b.position(it.dest);
+        int prev = p == 0 ? 0 : b.order[p - 1];
+        if(p == b.stops - 1) return -leg(prev, it.dest);
+        int next = b.order[p + 1];
+        return leg(prev, next) - leg(prev, it.dest) - leg(it.dest, next);
+    }
+
+    private void insert(Bin b, Item it) {
+        if(b.position(it.dest) < 0) {
+            double best = Double.POSITIVE_INFINITY;
+            int at = 0, prev = 0;
+            for(int p = 0; p <= b.stops; p++) {
+                double delta = p == b.stops ? leg(prev, it.dest)
+                    : leg(prev, it.dest) + leg(it.dest, b.order[p]) - leg(prev, b.order[p]);
+                if(delta < best) {
+                    best = delta;
+                    at = p;
+                }
+                if(p < b.stops) prev = b.order[p];
+            }
+            if(b.stops == b.order.length) b.order = Arrays.copyOf(b.order, b.stops * 2);
+            System.arraycopy(b.order, at, b.order, at + 1, b.stops - at);
+            b.order[at] = it.dest;
+            b.stops++;
+            b.distance += best;
+        }
+        b.items.add(it);
+        it.bin = b;
+        reprice(b);
+    }
+
+    private void remove(Bin b, Item it) {
+        b.distance += removalDelta(b, it);
+        if(b.count(it.dest) == 1) {
+            int p = b.position(it.dest);
+            System.arraycopy(b.order, p + 1, b.order, p, b.stops - p - 1);
+            b.stops--;
+        }
+        b.items.remove(it);
+        if(b.items.isEmpty()) b.distance = 0;
+        reprice(b);
+    }
+
+    // Load is summed afresh so repeated moves can't drift past a capacity
+    private void reprice(Bin b) {
+        b.load = 0;
+        for(Item it : b.items) b.load += it.cargo();
+        if(b.items.isEmpty()) {
+            b.vehicle = null;
+            b.cost = 0;
+            return;
+        }
+        b.vehicle = fleet.cheapestFor(b.load);
+        b.cost = b.distance / b.vehicle.mileage * b.vehicle.rate;
+    }
+
+    private double costFor(double load, double distance) {
+        Vehicle v = fleet.cheapestFor(load);
+        return distance / v.mileage * v.rate;
+    }
+
+    // ---------- output ----------
+
+    private Plan toPlan(Group g, Bin b) {
+        int k = b.stops;
+        int[] order = Arrays.copyOf(b.order, k);
+        if(k > 2) {
+            double[][] dist = new double[k + 1][k + 1];
+            int[] city = new int[k + 1];
+            System.arraycopy(order, 0, city, 1, k);
+            for(int i = 0; i <= k; i++) {
+                for(int j = i + 1; j <= k; j++) dist[i][j] = dist[j][i] = leg(city[i], city[j]);
+            }
+            int[] tour = StopOptimizer.optimize(dist);
+            if(StopOptimizer.length(dist, tour) < b.distance - EPS) {
+                for(int i = 0; i < k; i++) order[i] = city[tour[i]];
+            }
+        }
+
+        List<Route> planned = new ArrayList<>(b.items.size());
+        List<Stop> stops = new ArrayList<>(k);
+        double distance = 0;
+        int prev = 0;
+        for(int dest : order) {
+            double cargo = 0;
+            for(Item it : b.items) {
+                if(it.dest != dest) continue;
+                cargo += it.cargo();
+                planned.add(it.route);
+            }
+            double legKm = leg(prev, dest);
+            stops.add(new Stop(g.cities.get(dest), legKm, cargo));
+            distance += legKm;
+            prev = dest;
+        }
+        Vehicle v = b.vehicle;
+        return new Plan(g.cities.get(0), v, planned, stops, b.load, distance,
+            distance / v.mileage * v.rate);
+    }
+}
@@ -0,0 +1,212 @@
+import java.util.*;
+
+// ==================== CSV FIELD SCANNER ====================
+
+/**
+ * Splits one CSV line on commas by hand (no regex, no String[] per line).
+ * Fields are kept as trimmed [start, end) offsets into the line; text()
+ * allocates only when a String is actually needed and number() parses
+ * plain decimals straight from the characters.
+ *
+ * A field starting with a double quote runs to the closing quote, commas
+ * included, with "" standing for one quote; quote() writes fields that way.
+ */
+class CsvFields {
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private String line;
+    private int[] start = new int[8];
+    private int[] end = new int[8];
+    private boolean[] quoted = new boolean[8];
+    private int count;
+
+    /**
+     * Scans a line and returns the number of fields found.
+     */
+    int parse(String line) {
+        this.line = line;
+        count = 0;
+        int from = 0, n = line.length();
+        while(true) {
+            int open = from;
+            while(open < n && line.charAt(open) <= ' ') open++;
+            if(open < n && line.charAt(open) == '"') {
+                int close = closingQuote(open + 1);
+                add(open + 1, close, true);
+                int comma = close < n ? line.indexOf(',', close + 1) : -1;
+                if(comma < 0) break;
+                from = comma + 1;
+                continue;
+            }
+            int comma = line.indexOf(',', from);
+            int to = comma < 0 ? n : comma;
+            add(from, to, false);
+            if(comma < 0) break;
+            from = comma + 1;
+        }
+        return count;
+    }
+
+    int count() {
+        return count;
+    }
+
+    String line() {
+        return line;
+    }
+
+    String text(int i) {
+        String s = line.substring(start[i], end[i]);
+        return quoted[i] ? s.replace("\"\"", "\"") : s;
+    }
+
+    boolean equalsIgnoreCase(int i, String s) {
+        if(quoted[i]) return text(i).equalsIgnoreCase(s);
+        return end[i] - start[i] == s.length() && line.regionMatches(true, start[i], s, 0, s.length());
+    }
+
+    /**
+     * s as a field parse() reads back unchanged: in quotes, with quotes
+     * doubled, if it holds a comma or quote or starts or ends with a blank.
+     * A line break can't be kept in a line-based file and becomes a space.
+     */
+    static String quote(String s) {
+        if(s.indexOf('\n') >= 0 || s.indexOf('\r') >= 0) s = s.replace('\r', ' ').replace('\n', ' ');
+        if(!needsQuotes(s, 0, s.length())) return s;
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    static boolean needsQuotes(CharSequence s, int from, int to) {
+        if(from == to) return false;
+        if(s.charAt(from) <= ' ' || s.charAt(to - 1) <= ' ') return true;
+        for(int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if(c == ',' || c == '"') return true;
+        }
+        return false;
+    }
+
+    /**
+     * Appends s as one element of a list packed into a field, with a
+     * backslash before each backslash and each separator character, so
+     * split() can tell an element's own '|' from the one between elements.
+     */
+    static StringBuilder escape(StringBuilder sb, String s, String separators) {
+        for(int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if(c == '\\' || separators.indexOf(c) >= 0) sb.append('\\');
+            sb.append(c);
+        }
+        return sb;
+    }
+
+    /**
+     * Splits a packed list on each sep not escaped by escape(). Escapes are
+     * kept, so a part can be split again on another separator before
+     * unescape(). Fields written before escaping have no backslashes and
+     * split as they always did.
+     */
+    static List<String> split(String s, char sep) {
+        List<String> parts = new ArrayList<>();
+        int from = 0;
+        for(int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if(c == '\\') i++;
+            else if(c == sep) {
+                parts.add(s.substring(from, i));
+                from = i + 1;
+            }
+        }
+        parts.add(s.substring(from));
+        return parts;
+    }
+
+    static String unescape(String s) {
+        if(s.indexOf('\\') < 0) return s;
+        StringBuilder sb = new StringBuilder(s.length());
+        for(int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if(c == '\\' && i + 1 < s.length()) c = s.charAt(++i);
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Parses field i as a double. Up to 15 significant digits with an
+     * optional sign and decimal point are converted exactly (long mantissa
+     * divided by an exact power of ten); anything else falls back to
+     * Double.parseDouble.
+     */
+    double number(int i) {
+        int p = start[i], e = end[i];
+        if(p == e) throw new NumberFormatException("empty field");
+
+        boolean negative = false;
+        char c = line.charAt(p);
+        if(c == '-' || c == '+') {
+            negative = c == '-';
+            p++;
+        }
+
+        long mantissa = 0;
+        int digits = 0, scale = 0;
+        boolean dot = false;
+        for(; p < e; p++) {
+            c = line.charAt(p);
+            if(c >= '0' && c <= '9') {
+                if(++digits > 15) return Double.parseDouble(text(i));
+                mantissa = mantissa * 10 + (c - '0');
+                if(dot) scale++;
+            } else if(c == '.' && !dot) {
+                dot = true;
+            } else {
+                return Double.parseDouble(text(i));
+            }
+        }
+        if(digits == 0) throw new NumberFormatException("For input string: \"" + text(i) + "\"");
+
+        double value = mantissa / POW10[scale];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Field i as a double, or missing when the row is shorter or the field
+     * is empty.
+     */
+    double numberOr(int i, double missing) {
+        return i >= count || start[i] == end[i] ? missing : number(i);
+    }
+
+    // Position of the quote closing a field whose text starts at from, or
+    // the line's end if it is never closed
+    private int closingQuote(int from) {
+        int n = line.length();
+        while(true) {
+            int q = line.indexOf('"', from);
+            if(q < 0) return n;
+            if(q + 1 < n && line.charAt(q + 1) == '"') from = q + 2;
+            else return q;
+        }
+    }
+
+    // Quoted text is kept as written, blanks included
+    private void add(int from, int to, boolean inQuotes) {
+        if(!inQuotes) {
+            while(from < to && line.charAt(from) <= ' ') from++;
+            while(to > from && line.charAt(to - 1) <= ' ') to--;
+        }
+        if(count == start.length) {
+            start = Arrays.copyOf(start, count * 2);
+            end = Arrays.copyOf(end, count * 2);
+            quoted = Arrays.copyOf(quoted, count * 2);
+        }
+        start[count] = from;
+        end[count] = to;
+        quoted[count] = inQuotes;
+        count++;
+    }
+}
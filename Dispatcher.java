@@ -0,0 +1,77 @@
+import java.util.function.Predicate;
+
+// ==================== DISPATCH ====================
+
+/**
+ * Nearest-vehicle dispatch over one fleet snapshot. A route's cost includes
+ * the empty (deadhead) run from the vehicle's location to the pickup city,
+ * taken as great-circle km. Only the nearest vehicles able to carry the
+ * cargo are priced (-Ddispatch.candidates, default 16), so a match costs a
+ * k-nearest query instead of a pass over the fleet; a cheap vehicle farther
+ * out than that is not considered.
+ *
+ * Vehicles without coordinates are not dispatched.
+ */
+class Dispatcher {
+    static int candidates = Integer.getInteger("dispatch.candidates", 16);
+
+    static class Match {
+        final Vehicle vehicle;
+        final double deadheadKm, cost;
+
+        Match(Vehicle vehicle, double deadheadKm, double cost) {
+            this.vehicle = vehicle;
+            this.deadheadKm = deadheadKm;
+            this.cost = cost;
+        }
+    }
+
+    final Vehicle[] fleet;
+    private final GeoIndex index;
+
+    Dispatcher(Vehicle[] fleet) {
+        this.fleet = fleet;
+        double[] lat = new double[fleet.length], lon = new double[fleet.length];
+        for(int i = 0; i < fleet.length; i++) {
+            lat[i] = fleet[i].latitude;
+            lon[i] = fleet[i].longitude;
+        }
+        index = new GeoIndex(lat, lon);
+    }
+
+    /**
+     * Vehicles with known coordinates.
+     */
+    int located() {
+        return index.size();
+    }
+
+    /**
+     * Cheapest of the nearest usable vehicles able to carry the route's
+     * cargo from (lat, lon), or null if no located vehicle can.
+     */
+    Match best(Route r, double lat, double lon, Predicate<Vehicle> usable) {
+        Match best = null;
+        for(int i : index.nearest(lat, lon, candidates, i -> fleet[i].capacity >= r.cargoAmount && usable.test(fleet[i]))) {
+            Vehicle v = fleet[i];
+            double deadhead = GeoIndex.km(v.latitude, v.longitude, lat, lon);
+            double cost = TransportLogisticSystem2.calculateCost(r, v, deadhead);
+            if(best == null || cost < best.cost) best = new Match(v, deadhead, cost);
+        }
+        return best;
+    }
+
+    /**
+     * Up to k vehicles nearest to (lat, lon), optionally within radiusKm
+     * (NaN for no limit), nearest first.
+     */
+    Vehicle[] nearby(double lat, double lon, int k, double radiusKm) {
+        int[] found = Double.isNaN(radiusKm)
+            ? index.nearest(lat, lon, k, null)
+            : index.within(lat, lon, radiusKm, null);
+        int n = Math.min(k, found.length);
+        Vehicle[] out = new Vehicle[n];
+        for(int i = 0; i < n; i++) out[i] = fleet[found[i]];
+        return out;
+    }
+}
@@ -0,0 +1,70 @@
+// ==================== BULK FLEET COSTING ====================
+
+/**
+ * Costs one route against a whole fleet given as capacity/mileage/rate
+ * columns: cost[i] = distance / mileage[i] * rate[i], the same expression
+ * as calculateCost, so results are bit-identical to it. Vehicles that can't
+ * carry the cargo are masked out with +Infinity, and the index of the
+ * cheapest remaining one (first on ties) is returned, or -1 if none fits.
+ *
+ * The work is pure arithmetic over flat arrays, so it runs on the
+ * jdk.incubator.vector API (VectorCosting) when the JVM was started with
+ * --add-modules jdk.incubator.vector, and on a scalar loop otherwise or
+ * with -Dcosting.vector=false. The kernel is picked once, reflectively,
+ * so nothing links against the incubator module when it is absent.
+ *
+ * This is a library entry point; route planning doesn't call it. The
+ * planner answers each route from a capacity index in O(log n) (FleetIndex,
+ * FleetStore.cheapest), which beats any O(n) pass however wide the vectors.
+ * costAll fits callers that need every vehicle's cost for one route, or
+ * whose columns change between queries and aren't worth indexing.
+ */
+class FleetCosting {
+    interface Kernel {
+        int costAll(double distance, double cargo, double[] capacity, double[] mileage, double[] rate,
+                    int n, double[] cost);
+    }
+
+    static String kernelKind = "scalar";
+    static final Kernel KERNEL = load();
+
+    private static Kernel load() {
+        if(!Boolean.parseBoolean(System.getProperty("costing.vector", "true"))) return FleetCosting::costScalar;
+        if(ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return FleetCosting::costScalar;
+        try {
+            Kernel k = (Kernel) Class.forName("VectorCosting").getDeclaredConstructor().newInstance();
+            kernelKind = k.toString();
+            return k;
+        } catch(ReflectiveOperationException | LinkageError e) {
+            return FleetCosting::costScalar;
+        }
+    }
+
+    /**
+     * Fills cost[0..n) for a route of the given distance and cargo and
+     * returns the cheapest index able to carry it, or -1.
+     */
+    static int costAll(double distance, double cargo, double[] capacity, double[] mileage, double[] rate,
+                       int n, double[] cost) {
+        return KERNEL.costAll(distance, cargo, capacity, mileage, rate, n, cost);
+    }
+
+    static int costScalar(double distance, double cargo, double[] capacity, double[] mileage, double[] rate,
+                          int n, double[] cost) {
+        int best = -1;
+        double bestCost = Double.POSITIVE_INFINITY;
+        for(int i = 0; i < n; i++) {
+            if(capacity[i] >= cargo) {
+                double c = distance / mileage[i] * rate[i];
+                cost[i] = c;
+                if(c < bestCost) {
+                    best = i;
+                    bestCost = c;
+                }
+            } else {
+                cost[i] = Double.POSITIVE_INFINITY;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,133 @@
+import java.util.*;
+import java.util.function.Predicate;
+
+// ==================== FLEET INDEX ====================
+
+/**
+ * Capacity-sorted view of the fleet used by route planning.
+ * Vehicles are ordered by capacity and each slot carries the precomputed
+ * cost per km (rate / mileage). Suffix arrays hold the cheapest and second
+ * cheapest vehicle among all vehicles at or above a slot, so
+ * "cheapest vehicle with capacity >= X" is one binary search. A segment
+ * tree over the slots finds the cheapest in any slot range, so filtered
+ * lookups walk vehicles in cost order instead of scanning.
+ */
+class FleetIndex {
+    final Vehicle[] byCapacity;
+    final double[] capacity;
+    final double[] costPerKm;
+    final int[] suffixBest;
+    final int[] suffixSecond;
+    final int[] minTree;        // node -> cheapest slot below it; leaves at size() + slot
+
+    FleetIndex(List<Vehicle> vehicles) {
+        int n = vehicles.size();
+        byCapacity = vehicles.toArray(new Vehicle[0]);
+        Arrays.sort(byCapacity, Comparator.comparingDouble(v -> v.capacity));
+
+        capacity = new double[n];
+        costPerKm = new double[n];
+        for(int i = 0; i < n; i++) {
+            capacity[i] = byCapacity[i].capacity;
+            costPerKm[i] = byCapacity[i].rate / byCapacity[i].mileage;
+        }
+
+        suffixBest = new int[n];
+        suffixSecond = new int[n];
+        int best = -1, second = -1;
+        for(int i = n - 1; i >= 0; i--) {
+            if(best == -1 || costPerKm[i] < costPerKm[best]) {
+                second = best;
+                best = i;
+            } else if(second == -1 || costPerKm[i] < costPerKm[second]) {
+                second = i;
+            }
+            suffixBest[i] = best;
+            suffixSecond[i] = second;
+        }
+
+        minTree = new int[2 * n];
+        for(int i = 0; i < n; i++) minTree[n + i] = i;
+        for(int i = n - 1; i > 0; i--) minTree[i] = cheaper(minTree[2 * i], minTree[2 * i + 1]);
+    }
+
+    // Ties go to the larger slot, as in the suffix arrays
+    private int cheaper(int a, int b) {
+        if(a == -1) return b;
+        if(b == -1) return a;
+        return costPerKm[a] < costPerKm[b] || costPerKm[a] == costPerKm[b] && a > b ? a : b;
+    }
+
+    /**
+     * Cheapest slot in [from, to), or -1 if the range is empty.
+     */
+    int cheapestIn(int from, int to) {
+        int best = -1, n = capacity.length;
+        for(int lo = from + n, hi = to + n; lo < hi; lo >>>= 1, hi >>>= 1) {
+            if((lo & 1) == 1) best = cheaper(best, minTree[lo++]);
+            if((hi & 1) == 1) best = cheaper(best, minTree[--hi]);
+        }
+        return best;
+    }
+
+    int size() {
+        return byCapacity.length;
+    }
+
+    /**
+     * Returns the first slot whose capacity covers the cargo, or size() if none does.
+     */
+    int firstFeasible(double cargo) {
+        int lo = 0, hi = capacity.length;
+        while(lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if(capacity[mid] >= cargo) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    int feasibleCount(double cargo) {
+        return capacity.length - firstFeasible(cargo);
+    }
+
+    /**
+     * Cheapest vehicle (lowest rate / mileage) able to carry the cargo, or null.
+     */
+    Vehicle cheapestFor(double cargo) {
+        int i = firstFeasible(cargo);
+        return i < capacity.length ? byCapacity[suffixBest[i]] : null;
+    }
+
+    /**
+     * Cheapest vehicle able to carry the cargo that passes the filter, or
+     * null. Feasible vehicles are tried in cost order: the cheapest slot of
+     * the cheapest open range is tested and, if rejected, its range is split
+     * around it. With k vehicles rejected first this costs O((k + 1) log n),
+     * not a scan of every feasible slot.
+     */
+    Vehicle cheapestFor(double cargo, Predicate<Vehicle> usable) {
+        int from = firstFeasible(cargo);
+        if(from >= capacity.length) return null;
+        // {from, to, cheapest slot in [from, to)}
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> a[2] == b[2] ? 0 : cheaper(a[2], b[2]) == a[2] ? -1 : 1);
+        ranges.add(new int[] {from, capacity.length, suffixBest[from]});
+        while(!ranges.isEmpty()) {
+            int[] r = ranges.poll();
+            int slot = r[2];
+            if(usable.test(byCapacity[slot])) return byCapacity[slot];
+            if(r[0] < slot) ranges.add(new int[] {r[0], slot, cheapestIn(r[0], slot)});
+            if(slot + 1 < r[1]) ranges.add(new int[] {slot + 1, r[1], cheapestIn(slot + 1, r[1])});
+        }
+        return null;
+    }
+
+    /**
+     * Runner-up to cheapestFor(cargo), or null when fewer than two vehicles fit.
+     */
+    Vehicle secondCheapestFor(double cargo) {
+        int i = firstFeasible(cargo);
+        if(i >= capacity.length || suffixSecond[i] == -1) return null;
+        return byCapacity[suffixSecond[i]];
+    }
+}
@@ -0,0 +1,315 @@
+import java.util.*;
+import java.util.function.IntPredicate;
+
+// ==================== COLUMNAR FLEET STORE ====================
+
+/**
+ * Struct-of-arrays fleet: one primitive array per attribute instead of one
+ * Truck/Van object per vehicle, so a million-vehicle fleet is a handful of
+ * flat arrays and matching never dereferences a Vehicle or calls getType().
+ * Vehicles are addressed by slot (insertion order); vehicle(slot) builds a
+ * Truck/Van view for code that needs one.
+ *
+ * Like FleetIndex, a capacity-sorted index with a suffix minimum of cost per
+ * km answers "cheapest vehicle that can carry X" with one binary search.
+ * It is rebuilt lazily after adds. Ties resolve as in FleetIndex, so both
+ * pick the same vehicle. A segment tree over the index answers filtered
+ * lookups cheapest-first, and a Picker is a copy of it that drops vehicles
+ * as they are used up.
+ */
+class FleetStore {
+    static final byte TRUCK = 0;
+    static final byte VAN = 1;
+
+    private String[] ids;
+    private byte[] type;
+    private double[] capacity, mileage, rate, costPerKm;
+    private int size;
+
+    // Capacity-sorted index: sortedCapacity[k] belongs to slot order[k];
+    // suffixBest[k] is the cheapest slot among order[k..]
+    private int[] order;
+    private double[] sortedCapacity;
+    private int[] suffixBest;
+    private int[] minTree;      // node -> cheapest index position below it; leaves at size + position
+    private int[] position;     // slot -> index position
+
+    FleetStore(int expected) {
+        int n = Math.max(16, expected);
+        ids = new String[n];
+        type = new byte[n];
+        capacity = new double[n];
+        mileage = new double[n];
+        rate = new double[n];
+        costPerKm = new double[n];
+    }
+
+    static FleetStore of(Collection<Vehicle> vehicles) {
+        FleetStore store = new FleetStore(vehicles.size());
+        for(Vehicle v : vehicles) store.add(v);
+        return store;
+    }
+
+    static byte typeCode(String type) {
+        return type.equalsIgnoreCase("Truck") ? TRUCK : VAN;
+    }
+
+    /**
+     * Appends a vehicle and returns its slot.
+     */
+    int add(String id, byte typeCode, double cap, double mile, double perLitre) {
+        if(size == ids.length) grow();
+        ids[size] = id;
+        type[size] = typeCode;
+        capacity[size] = cap;
+        mileage[size] = mile;
+        rate[size] = perLitre;
+        costPerKm[size] = perLitre / mile;
+        order = null;
+        return size++;
+    }
+
+    int add(Vehicle v) {
+        return add(v.id, typeCode(v.getType()), v.capacity, v.mileage, v.rate);
+    }
+
+    private void grow() {
+        int n = ids.length * 2;
+        ids = Arrays.copyOf(ids, n);
+        type = Arrays.copyOf(type, n);
+        capacity = Arrays.copyOf(capacity, n);
+        mileage = Arrays.copyOf(mileage, n);
+        rate = Arrays.copyOf(rate, n);
+        costPerKm = Arrays.copyOf(costPerKm, n);
+    }
+
+    int size() {
+        return size;
+    }
+
+    String id(int slot) {
+        return ids[slot];
+    }
+
+    double capacity(int slot) {
+        return capacity[slot];
+    }
+
+    double costPerKm(int slot) {
+        return costPerKm[slot];
+    }
+
+    /**
+     * Same formula as calculateCost: fuel needed times rate per litre.
+     */
+    double cost(int slot, double distance) {
+        return distance / mileage[slot] * rate[slot];
+    }
+
+    /**
+     * A Truck/Van copy of the slot, for display and allocation records.
+     */
+    Vehicle vehicle(int slot) {
+        return type[slot] == TRUCK
+            ? new Truck(ids[slot], capacity[slot], mileage[slot], rate[slot])
+            : new Van(ids[slot], capacity[slot], mileage[slot], rate[slot]);
+    }
+
+    // ---------- matching ----------
+
+    /**
+     * Cheapest slot able to carry the cargo (lowest cost per km), or -1.
+     * Uses the capacity index.
+     */
+    int cheapest(double cargo) {
+        index();
+        int lo = firstFeasible(cargo);
+        return lo < size ? suffixBest[lo] : -1;
+    }
+
+    /**
+     * Same answer as cheapest() from one pass over the columns, for a
+     * fleet that changes between queries and isn't worth indexing.
+     */
+    int cheapestScan(double cargo) {
+        int best = -1;
+        double bestCost = Double.POSITIVE_INFINITY, bestCapacity = Double.POSITIVE_INFINITY;
+        double[] cap = capacity, cpk = costPerKm;
+        for(int i = 0; i < size; i++) {
+            double c = cap[i];
+            if(c < cargo) continue;
+            double k = cpk[i];
+            // FleetIndex tie-break: equal cost goes to the larger capacity, then the later slot
+            if(k < bestCost || (k == bestCost && c >= bestCapacity)) {
+                best = i;
+                bestCost = k;
+                bestCapacity = c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Matches routes given as parallel cargo/distance arrays over [from, to):
+     * slotOut gets the cheapest slot (or -1) and costOut its trip cost.
+     */
+    void match(double[] cargo, double[] distance, int[] slotOut, double[] costOut, int from, int to) {
+        index();
+        double[] sorted = sortedCapacity;
+        int[] best = suffixBest;
+        int n = size;
+        for(int i = from; i < to; i++) {
+            double need = cargo[i];
+            int lo = 0, hi = n;
+            while(lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if(sorted[mid] >= need) hi = mid;
+                else lo = mid + 1;
+            }
+            if(lo == n) {
+                slotOut[i] = -1;
+                costOut[i] = Double.NaN;
+            } else {
+                int slot = best[lo];
+                slotOut[i] = slot;
+                costOut[i] = distance[i] / mileage[slot] * rate[slot];
+            }
+        }
+    }
+
+    /**
+     * Builds the capacity index if adds invalidated it. Adds are single-writer;
+     * any number of threads may match once adds are done.
+     */
+    synchronized void index() {
+        if(order != null) return;
+        int n = size;
+        int[] ord = new int[n];
+        for(int i = 0; i < n; i++) ord[i] = i;
+        sortByCapacity(ord, new int[n]);
+
+        double[] sorted = new double[n];
+        int[] suffix = new int[n];
+        int best = -1;
+        for(int k = n - 1; k >= 0; k--) {
+            int slot = ord[k];
+            sorted[k] = capacity[slot];
+            if(best == -1 || costPerKm[slot] < costPerKm[best]) best = slot;
+            suffix[k] = best;
+        }
+        int[] tree = new int[2 * n], pos = new int[n];
+        for(int k = 0; k < n; k++) {
+            tree[n + k] = k;
+            pos[ord[k]] = k;
+        }
+        sortedCapacity = sorted;
+        suffixBest = suffix;
+        position = pos;
+        order = ord;
+        for(int k = n - 1; k > 0; k--) tree[k] = cheaper(tree[2 * k], tree[2 * k + 1]);
+        minTree = tree;
+    }
+
+    // Of two index positions (-1 for none), the cheaper; ties go to the
+    // larger position, as in suffixBest
+    private int cheaper(int a, int b) {
+        if(a == -1) return b;
+        if(b == -1) return a;
+        double ca = costPerKm[order[a]], cb = costPerKm[order[b]];
+        return ca < cb || ca == cb && a > b ? a : b;
+    }
+
+    private int cheapestIn(int[] tree, int from, int to) {
+        int best = -1, n = size;
+        for(int lo = from + n, hi = to + n; lo < hi; lo >>>= 1, hi >>>= 1) {
+            if((lo & 1) == 1) best = cheaper(best, tree[lo++]);
+            if((hi & 1) == 1) best = cheaper(best, tree[--hi]);
+        }
+        return best;
+    }
+
+    int feasibleCount(double cargo) {
+        index();
+        return size - firstFeasible(cargo);
+    }
+
+    private int firstFeasible(double cargo) {
+        int lo = 0, hi = size;
+        while(lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if(sortedCapacity[mid] >= cargo) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    /**
+     * Cheapest slot able to carry the cargo that passes the filter, or -1.
+     * As FleetIndex.cheapestFor: feasible slots are tried in cost order by
+     * splitting ranges around rejected ones, O((k + 1) log n) with k rejected.
+     */
+    int cheapest(double cargo, IntPredicate usable) {
+        index();
+        return cheapest(minTree, cargo, usable);
+    }
+
+    private int cheapest(int[] tree, double cargo, IntPredicate usable) {
+        int from = firstFeasible(cargo);
+        int first = cheapestIn(tree, from, size);
+        if(first == -1) return -1;
+        // {from, to, cheapest position in [from, to)}
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> a[2] == b[2] ? 0 : cheaper(a[2], b[2]) == a[2] ? -1 : 1);
+        ranges.add(new int[] {from, size, first});
+        while(!ranges.isEmpty()) {
+            int[] r = ranges.poll();
+            int k = r[2];
+            if(usable.test(order[k])) return order[k];
+            int left = cheapestIn(tree, r[0], k), right = cheapestIn(tree, k + 1, r[1]);
+            if(left != -1) ranges.add(new int[] {r[0], k, left});
+            if(right != -1) ranges.add(new int[] {k + 1, r[1], right});
+        }
+        return -1;
+    }
+
+    /**
+     * Filtered cheapest-first lookups over a snapshot of the index from
+     * which used-up slots can be removed in O(log n), so later lookups
+     * never test them again. Not thread-safe; adds to the store after it
+     * was created are not seen.
+     */
+    class Picker {
+        private final int[] tree;
+
+        Picker() {
+            index();
+            tree = minTree.clone();
+        }
+
+        int cheapest(double cargo, IntPredicate usable) {
+            return FleetStore.this.cheapest(tree, cargo, usable);
+        }
+
+        void remove(int slot) {
+            int k = position[slot] + size;
+            tree[k] = -1;
+            for(k >>>= 1; k > 0; k >>>= 1) tree[k] = cheaper(tree[2 * k], tree[2 * k + 1]);
+        }
+    }
+
+    // Stable bottom-up merge sort of slots by capacity (same order as the
+    // stable object sort in FleetIndex), without boxing
+    private void sortByCapacity(int[] a, int[] tmp) {
+        int n = a.length;
+        for(int width = 1; width < n; width *= 2) {
+            for(int lo = 0; lo < n - width; lo += 2 * width) {
+                int mid = lo + width, hi = Math.min(lo + 2 * width, n);
+                if(capacity[a[mid - 1]] <= capacity[a[mid]]) continue;
+                int i = lo, j = mid, k = lo;
+                while(i < mid && j < hi) tmp[k++] = capacity[a[j]] < capacity[a[i]] ? a[j++] : a[i++];
+                while(i < mid) tmp[k++] = a[i++];
+                while(j < hi) tmp[k++] = a[j++];
+                System.arraycopy(tmp, lo, a, lo, hi - lo);
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+import java.util.*;
+import java.util.function.IntPredicate;
+
+// ==================== SPATIAL INDEX ====================
+
+/**
+ * Static k-d tree over latitude/longitude points for k-nearest and radius
+ * queries. Points are stored as unit vectors in 3D, where straight-line
+ * (chord) distance orders points exactly as great-circle distance does, so
+ * there are no seams at the poles or the date line and no projection error.
+ *
+ * The tree is implicit: the node for the index range [lo, hi) sits at
+ * (lo + hi) / 2 and splits on the axis with the widest spread. Queries are
+ * O(log n + k) on typical data. Callers refer to points by the index they
+ * passed in; a filter can skip points (e.g. vehicles too small for a load)
+ * without stopping the search short of k matches.
+ */
+class GeoIndex {
+    static final double EARTH_KM = 6371.0;
+
+    private final int[] point;          // tree order -> caller's index
+    private final double[] x, y, z;     // tree order
+    private final byte[] axis;          // split axis of the node at each position
+    private final int size;
+
+    /**
+     * Indexes the points whose coordinates are both known; NaN entries are
+     * left out.
+     */
+    GeoIndex(double[] lat, double[] lon) {
+        int n = 0;
+        for(int i = 0; i < lat.length; i++) if(!Double.isNaN(lat[i]) && !Double.isNaN(lon[i])) n++;
+        size = n;
+        point = new int[n];
+        x = new double[n];
+        y = new double[n];
+        z = new double[n];
+        axis = new byte[n];
+        int k = 0;
+        for(int i = 0; i < lat.length; i++) {
+            if(Double.isNaN(lat[i]) || Double.isNaN(lon[i])) continue;
+            point[k] = i;
+            double phi = Math.toRadians(lat[i]), lambda = Math.toRadians(lon[i]);
+            x[k] = Math.cos(phi) * Math.cos(lambda);
+            y[k] = Math.cos(phi) * Math.sin(lambda);
+            z[k] = Math.sin(phi);
+            k++;
+        }
+        build(0, n);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Great-circle distance in km.
+     */
+    static double km(double lat1, double lon1, double lat2, double lon2) {
+        double dPhi = Math.toRadians(lat2 - lat1), dLambda = Math.toRadians(lon2 - lon1);
+        double h = Math.sin(dPhi / 2) * Math.sin(dPhi / 2)
+            + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLambda / 2) * Math.sin(dLambda / 2);
+        return 2 * EARTH_KM * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    // ---------- build ----------
+
+    private void build(int lo, int hi) {
+        if(hi - lo <= 1) return;
+        double[] min = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        double[] max = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        for(int i = lo; i < hi; i++) {
+            for(int a = 0; a < 3; a++) {
+                double c = coord(a, i);
+                if(c < min[a]) min[a] = c;
+                if(c > max[a]) max[a] = c;
+            }
+        }
+        byte a = 0;
+        if(max[1] - min[1] > max[a] - min[a]) a = 1;
+        if(max[2] - min[2] > max[a] - min[a]) a = 2;
+        int mid = (lo + hi) >>> 1;
+        select(a, lo, hi - 1, mid);
+        axis[mid] = a;
+        build(lo, mid);
+        build(mid + 1, hi);
+    }
+
+    private double coord(int a, int i) {
+        return a == 0 ? x[i] : a == 1 ? y[i] : z[i];
+    }
+
+    // Quickselect: afterwards position k holds the k-th smallest on axis a,
+    // smaller-or-equal before it and greater-or-equal after
+    private void select(int a, int lo, int hi, int k) {
+        while(lo < hi) {
+            double pivot = coord(a, (lo + hi) >>> 1);
+            int i = lo, j = hi;
+            while(i <= j) {
+                while(coord(a, i) < pivot) i++;
+                while(coord(a, j) > pivot) j--;
+                if(i <= j) swap(i++, j--);
+            }
+            if(k <= j) hi = j;
+            else if(k >= i) lo = i;
+            else return;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int p = point[i]; point[i] = point[j]; point[j] = p;
+        double t = x[i]; x[i] = x[j]; x[j] = t;
+        t = y[i]; y[i] = y[j]; y[j] = t;
+        t = z[i]; z[i] = z[j]; z[j] = t;
+    }
+
+    // ---------- queries ----------
+
+    /**
+     * Up to k accepted points nearest to (lat, lon), nearest first.
+     */
+    int[] nearest(double lat, double lon, int k, IntPredicate accept) {
+        Search s = new Search(lat, lon, k, Double.POSITIVE_INFINITY, accept);
+        s.visit(0, size);
+        return s.sorted();
+    }
+
+    /**
+     * Every accepted point within km of (lat, lon), nearest first.
+     */
+    int[] within(double lat, double lon, double km, IntPredicate accept) {
+        double chord = 2 * Math.sin(Math.min(Math.PI, km / EARTH_KM) / 2);
+        Search s = new Search(lat, lon, Integer.MAX_VALUE, chord * chord, accept);
+        s.visit(0, size);
+        return s.sorted();
+    }
+
+    private class Search {
+        final double qx, qy, qz, radius2;
+        final int k;
+        final IntPredicate accept;
+        // Max-heap on squared chord distance over tree positions
+        int[] heap = new int[16];
+        double[] dist = new double[16];
+        int count;
+
+        Search(double lat, double lon, int k, double radius2, IntPredicate accept) {
+            double phi = Math.toRadians(lat), lambda = Math.toRadians(lon);
+            qx = Math.cos(phi) * Math.cos(lambda);
+            qy = Math.cos(phi) * Math.sin(lambda);
+            qz = Math.sin(phi);
+            this.k = k;
+            this.radius2 = radius2;
+            this.accept = accept;
+        }
+
+        double bound() {
+            return count < k ? radius2 : Math.min(radius2, dist[0]);
+        }
+
+        void visit(int lo, int hi) {
+            if(lo >= hi || k == 0) return;
+            int mid = (lo + hi) >>> 1;
+            double dx = x[mid] - qx, dy = y[mid] - qy, dz = z[mid] - qz;
+            double d = dx * dx + dy * dy + dz * dz;
+            if(d <= bound() && (accept == null || accept.test(point[mid]))) offer(mid, d);
+            if(hi - lo == 1) return;
+
+            int a = axis[mid];
+            double diff = a == 0 ? -dx : a == 1 ? -dy : -dz;   // query minus split
+            boolean leftFirst = diff <= 0;
+            visit(leftFirst ? lo : mid + 1, leftFirst ? mid : hi);
+            if(diff * diff <= bound()) visit(leftFirst ? mid + 1 : lo, leftFirst ? hi : mid);
+        }
+
+        void offer(int pos, double d) {
+            if(count == k) {
+                if(d >= dist[0]) return;
+                heap[0] = pos;
+                dist[0] = d;
+                siftDown(0);
+                return;
+            }
+            if(count == heap.length) {
+                heap = Arrays.copyOf(heap, count * 2);
+                dist = Arrays.copyOf(dist, count * 2);
+            }
+            int i = count++;
+            heap[i] = pos;
+            dist[i] = d;
+            while(i > 0) {
+                int parent = (i - 1) >>> 1;
+                if(dist[parent] >= dist[i]) break;
+                swapHeap(i, parent);
+                i = parent;
+            }
+        }
+
+        void siftDown(int i) {
+            while(true) {
+                int l = 2 * i + 1, r = l + 1, top = i;
+                if(l < count && dist[l] > dist[top]) top = l;
+                if(r < count && dist[r] > dist[top]) top = r;
+                if(top == i) return;
+                swapHeap(i, top);
+                i = top;
+            }
+        }
+
+        void swapHeap(int i, int j) {
+            int p = heap[i]; heap[i] = heap[j]; heap[j] = p;
+            double t = dist[i]; dist[i] = dist[j]; dist[j] = t;
+        }
+
+        int[] sorted() {
+            int[] out = new int[count];
+            for(int i = count - 1; i >= 0; i--) {
+                out[i] = point[heap[0]];
+                heap[0] = heap[count - 1];
+                dist[0] = dist[count - 1];
+                count--;
+                siftDown(0);
+            }
+            return out;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+import java.util.*;
+
+// ==================== HISTORY INDEX ====================
+
+/**
+ * Secondary indexes over every recorded allocation and multi-stop delivery,
+ * for filtered, paged history queries. Records are numbered in the order
+ * they arrive and kept column-wise (time, cost, kind, vehicle/route/city
+ * codes). The indexes are lists of record numbers in time order:
+ *
+ *   - the time index, over every record,
+ *   - posting lists per vehicle, route, source city, destination city and
+ *     kind (allocation or delivery).
+ *
+ * A query cuts each list it could start from to the time range by binary
+ * search, starts from the shortest and checks the remaining filters (cost
+ * range included) against the columns. It costs the size of that list, not
+ * of the history, and a query whose only filters that list covers is paged
+ * without a scan.
+ *
+ * A delivery's source is its first stop (as in Aggregates) and every stop
+ * counts as a destination. City names match case-insensitively, IDs
+ * exactly. A list that receives a record out of time order (e.g. deliveries
+ * loaded after allocations) is re-sorted on its next query, merging the
+ * runs that are already in order.
+ */
+class HistoryIndex {
+    static class Query {
+        String vehicle, route, source, destination;
+        boolean allocations = true, deliveries = true;
+        double minCost = Double.NEGATIVE_INFINITY, maxCost = Double.POSITIVE_INFINITY;
+        long from = Long.MIN_VALUE, to = Long.MAX_VALUE;    // [from, to), epoch millis
+        boolean newestFirst;
+        int offset, limit = 20;
+    }
+
+    static class Page {
+        final long total;
+        final List<Object> records;     // Allocation or MultiStopDelivery, in time order
+        final String plan;              // the candidate set the query started from
+        final int scanned;
+
+        Page(long total, List<Object> records, String plan, int scanned) {
+            this.total = total;
+            this.records = records;
+            this.plan = plan;
+            this.scanned = scanned;
+        }
+    }
+
+    private static final byte ALLOCATION = 0, DELIVERY = 1;
+    private static final int NONE = -1;
+
+    // ---------- columns, by record number ----------
+    private int size;
+    private Object[] record = new Object[1024];
+    private long[] time = new long[1024];
+    private double[] cost = new double[1024];
+    private byte[] kind = new byte[1024];
+    private int[] vehicle = new int[1024], route = new int[1024], source = new int[1024], destination = new int[1024];
+
+    // ---------- indexes: record numbers in time order ----------
+    private final IntList byTime = new IntList();
+    private final IntList[] byKind = {new IntList(), new IntList()};
+    private final Dimension vehicles = new Dimension(false), routes = new Dimension(false);
+    private final Dimension sources = new Dimension(true), destinations = new Dimension(true);
+
+    synchronized void add(Allocation a) {
+        int n = append(a, a.timestamp, a.cost, ALLOCATION);
+        vehicle[n] = vehicles.post(a.vehicle.id, n, a.timestamp);
+        route[n] = routes.post(a.route.id, n, a.timestamp);
+        source[n] = sources.post(a.route.source, n, a.timestamp);
+        destination[n] = destinations.post(a.route.destination, n, a.timestamp);
+    }
+
+    synchronized void add(MultiStopDelivery d) {
+        int n = append(d, d.timestamp, d.cost, DELIVERY);
+        vehicle[n] = vehicles.post(d.vehicle.id, n, d.timestamp);
+        route[n] = NONE;
+        source[n] = d.stops.isEmpty() ? NONE : sources.post(d.stops.get(0).city, n, d.timestamp);
+        destination[n] = NONE;
+        for(Stop stop : d.stops) destination[n] = destinations.post(stop.city, n, d.timestamp);
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private int append(Object r, long t, double c, byte k) {
+        if(size == record.length) {
+            int cap = size * 2;
+            record = Arrays.copyOf(record, cap);
+            time = Arrays.copyOf(time, cap);
+            cost = Arrays.copyOf(cost, cap);
+            kind = Arrays.copyOf(kind, cap);
+            vehicle = Arrays.copyOf(vehicle, cap);
+            route = Arrays.copyOf(route, cap);
+            source = Arrays.copyOf(source, cap);
+            destination = Arrays.copyOf(destination, cap);
+        }
+        int n = size++;
+        record[n] = r;
+        time[n] = t;
+        cost[n] = c;
+        kind[n] = k;
+        byTime.add(n, t);
+        byKind[k].add(n, t);
+        return n;
+    }
+
+    // ---------- queries ----------
+
+    synchronized Page query(Query q) {
+        if(!q.allocations && !q.deliveries) return new Page(0, List.of(), "no kinds", 0);
+        boolean timeFilter = q.from > Long.MIN_VALUE || q.to < Long.MAX_VALUE;
+        boolean costFilter = q.minCost > Double.NEGATIVE_INFINITY || q.maxCost < Double.POSITIVE_INFINITY;
+        boolean kindFilter = q.allocations != q.deliveries;
+
+        // ---------- pick the smallest candidate set ----------
+        // Each list is cut to the time range by binary search, so a list
+        // driving the query covers its own filter and the time filter
+        IntList driver = byTime;
+        String plan = timeFilter ? "time range" : "all records";
+        int filters = (costFilter ? 1 : 0) + (kindFilter ? 1 : 0);
+        String[] names = {"vehicle", "route", "source", "destination"};
+        String[] values = {q.vehicle, q.route, q.source, q.destination};
+        Dimension[] dimensions = {vehicles, routes, sources, destinations};
+        List<IntList> lists = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        for(int d = 0; d < dimensions.length; d++) {
+            if(values[d] == null) continue;
+            filters++;
+            IntList list = dimensions[d].postings(values[d]);
+            if(list == null) return new Page(0, List.of(), names[d] + " " + values[d] + ": no records", 0);
+            lists.add(list);
+            labels.add(names[d] + " " + values[d]);
+        }
+        if(kindFilter) {
+            lists.add(byKind[q.allocations ? ALLOCATION : DELIVERY]);
+            labels.add(q.allocations ? "allocations" : "deliveries");
+        }
+        int from = sorted(byTime).lowerBound(time, q.from), to = byTime.lowerBound(time, q.to);
+        for(int i = 0; i < lists.size(); i++) {
+            IntList list = sorted(lists.get(i));
+            // A posting list is never longer than the whole history, so check its size first
+            if(list.size >= to - from) continue;
+            int lo = list.lowerBound(time, q.from), hi = list.lowerBound(time, q.to);
+            if(hi - lo < to - from) {
+                driver = list;
+                from = lo;
+                to = hi;
+                plan = labels.get(i) + (timeFilter ? " in time range" : "");
+            }
+        }
+        if(driver != byTime) filters--;
+        int candidates = Math.max(0, to - from);
+
+        int vehicleCode = vehicles.code(q.vehicle), routeCode = routes.code(q.route);
+        int sourceCode = sources.code(q.source), destinationCode = destinations.code(q.destination);
+        List<Object> page = new ArrayList<>(Math.min(q.limit, 1024));
+
+        // ---------- nothing left to check: page the candidates directly ----------
+        if(filters == 0) {
+            for(int i = q.offset; i < candidates && page.size() < q.limit; i++) {
+                page.add(record[driver.items[q.newestFirst ? to - 1 - i : from + i]]);
+            }
+            return new Page(candidates, page, plan, page.size());
+        }
+
+        // ---------- scan the candidates, checking the other filters ----------
+        int matched = 0;
+        for(int i = 0; i < candidates; i++) {
+            int n = driver.items[q.newestFirst ? to - 1 - i : from + i];
+            if(costFilter && (cost[n] < q.minCost || cost[n] > q.maxCost)) continue;
+            if(kindFilter && kind[n] != (q.allocations ? ALLOCATION : DELIVERY)) continue;
+            if(vehicleCode != NONE && vehicle[n] != vehicleCode) continue;
+            if(routeCode != NONE && route[n] != routeCode) continue;
+            if(sourceCode != NONE && source[n] != sourceCode) continue;
+            if(destinationCode != NONE && destination[n] != destinationCode && !stopsAt(n, q.destination)) continue;
+            if(matched++ >= q.offset && page.size() < q.limit) page.add(record[n]);
+        }
+        return new Page(matched, page, plan, candidates);
+    }
+
+    // The destination column holds a delivery's last stop; earlier stops are checked here
+    private boolean stopsAt(int n, String city) {
+        if(kind[n] != DELIVERY) return false;
+        for(Stop stop : ((MultiStopDelivery) record[n]).stops) {
+            if(stop.city.trim().equalsIgnoreCase(city.trim())) return true;
+        }
+        return false;
+    }
+
+    private IntList sorted(IntList list) {
+        if(!list.inOrder) {
+            sortByTime(list.items, 0, list.size);
+            list.inOrder = true;
+        }
+        return list;
+    }
+
+    // Stable merge sort of record numbers by time; runs already in order
+    // are merged without work, so a mostly sorted index sorts in near-linear time
+    private void sortByTime(int[] a, int from, int to) {
+        if(to - from < 2) return;
+        int[] buf = new int[to - from];
+        for(int width = 1; width < to - from; width *= 2) {
+            for(int lo = from; lo < to - width; lo += 2 * width) {
+                int mid = lo + width, hi = Math.min(to, lo + 2 * width);
+                if(time[a[mid - 1]] <= time[a[mid]]) continue;
+                int i = lo, j = mid, k = 0;
+                while(i < mid && j < hi) buf[k++] = time[a[j]] < time[a[i]] ? a[j++] : a[i++];
+                while(i < mid) buf[k++] = a[i++];
+                while(j < hi) buf[k++] = a[j++];
+                System.arraycopy(buf, 0, a, lo, k);
+            }
+        }
+    }
+
+    // ---------- posting lists ----------
+
+    /**
+     * Record numbers kept in time order: appended while times arrive in
+     * order, re-sorted on the next query after one arrives early.
+     */
+    private static class IntList {
+        int[] items = new int[4];
+        int size;
+        long last = Long.MIN_VALUE;
+        boolean inOrder = true;
+
+        void add(int n, long t) {
+            if(size > 0 && items[size - 1] == n) return;    // a delivery stopping twice at one city
+            if(size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = n;
+            if(t < last) inOrder = false;
+            else last = t;
+        }
+
+        // First position whose time is >= t; the list must be in order
+        int lowerBound(long[] time, long t) {
+            int lo = 0, hi = size;
+            while(lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if(time[items[mid]] < t) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * Interns one attribute's values to codes and keeps a posting list per
+     * value.
+     */
+    private static class Dimension {
+        final boolean ignoreCase;
+        final Map<String, Integer> codes = new HashMap<>();
+        final List<IntList> postings = new ArrayList<>();
+
+        Dimension(boolean ignoreCase) {
+            this.ignoreCase = ignoreCase;
+        }
+
+        int post(String value, int n, long t) {
+            Integer code = codes.computeIfAbsent(key(value), k -> {
+                postings.add(new IntList());
+                return postings.size() - 1;
+            });
+            postings.get(code).add(n, t);
+            return code;
+        }
+
+        int code(String value) {
+            if(value == null) return NONE;
+            Integer code = codes.get(key(value));
+            return code == null ? NONE : code;
+        }
+
+        IntList postings(String value) {
+            int code = code(value);
+            return code == NONE ? null : postings.get(code);
+        }
+
+        private String key(String value) {
+            return ignoreCase ? value.trim().toLowerCase(Locale.ROOT) : value;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+// ==================== INTERVAL TREE ====================
+
+/**
+ * Half-open [start, end) intervals in an AVL tree ordered by start, each
+ * node also holding the largest end in its subtree. "Does anything overlap
+ * [from, to)?" then skips every subtree whose largest end is at or before
+ * from and every right subtree once starts reach to, so it costs O(log n)
+ * whatever the number of intervals. Insertion is O(log n) too; intervals
+ * are never removed.
+ */
+class IntervalTree<T> {
+    record Interval<T>(long start, long end, T value) {}
+
+    private static class Node<T> {
+        final Interval<T> interval;
+        Node<T> left, right;
+        long maxEnd;
+        int height = 1;
+
+        Node(Interval<T> interval) {
+            this.interval = interval;
+            this.maxEnd = interval.end();
+        }
+    }
+
+    private Node<T> root;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    void add(long start, long end, T value) {
+        root = insert(root, new Node<>(new Interval<>(start, end, value)));
+        size++;
+    }
+
+    /**
+     * The earliest-starting interval overlapping [from, to), or null.
+     */
+    Interval<T> firstOverlap(long from, long to) {
+        Node<T> n = root;
+        while(n != null) {
+            // Anything overlapping in the left subtree starts earlier, so it wins
+            if(n.left != null && n.left.maxEnd > from) {
+                n = n.left;
+                continue;
+            }
+            Interval<T> i = n.interval;
+            if(i.start() >= to) return null;
+            if(i.end() > from) return i;
+            n = n.right;
+        }
+        return null;
+    }
+
+    // ---------- AVL ----------
+
+    private Node<T> insert(Node<T> n, Node<T> add) {
+        if(n == null) return add;
+        if(add.interval.start() < n.interval.start()) n.left = insert(n.left, add);
+        else n.right = insert(n.right, add);
+        return balance(n);
+    }
+
+    private static int height(Node<?> n) {
+        return n == null ? 0 : n.height;
+    }
+
+    private static <T> void update(Node<T> n) {
+        n.height = 1 + Math.max(height(n.left), height(n.right));
+        long max = n.interval.end();
+        if(n.left != null && n.left.maxEnd > max) max = n.left.maxEnd;
+        if(n.right != null && n.right.maxEnd > max) max = n.right.maxEnd;
+        n.maxEnd = max;
+    }
+
+    private Node<T> balance(Node<T> n) {
+        update(n);
+        int skew = height(n.left) - height(n.right);
+        if(skew > 1) {
+            if(height(n.left.left) < height(n.left.right)) n.left = rotateLeft(n.left);
+            return rotateRight(n);
+        }
+        if(skew < -1) {
+            if(height(n.right.right) < height(n.right.left)) n.right = rotateRight(n.right);
+            return rotateLeft(n);
+        }
+        return n;
+    }
+
+    private Node<T> rotateRight(Node<T> n) {
+        Node<T> l = n.left;
+        n.left = l.right;
+        l.right = n;
+        update(n);
+        update(l);
+        return l;
+    }
+
+    private Node<T> rotateLeft(Node<T> n) {
+        Node<T> r = n.right;
+        n.right = r.left;
+        r.left = n;
+        update(n);
+        update(r);
+        return r;
+    }
+}
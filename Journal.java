@@ -0,0 +1,265 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+// ==================== APPEND-ONLY JOURNAL ====================
+
+/**
+ * Write-ahead log of everything confirmed since the last CSV snapshot.
+ * Each record is one CSV line written with a single append:
+ *
+ *   V,id,type,capacity,mileage,rate,latitude,longitude
+ *   R,id,distance,cargo,source,destination,departure
+ *   A,allocationId,routeId,vehicleId,cost,timestamp,cargo,linkGroup
+ *   M,deliveryId,vehicleId,totalDistance,totalCargo,cost,timestamp,stopCount,(city,distance,cargo)*,departure,routes
+ *
+ * IDs and city names go through CsvFields.quote, so a comma in one can't
+ * shift the fields that follow it. Numbers are written with full
+ * precision. Group commit: the channel is forced to disk every syncEvery
+ * records or syncMillis milliseconds, whichever comes first
+ * (-Djournal.syncEvery, -Djournal.syncMillis); a timer armed by the first
+ * unsynced append keeps the deadline when no further append comes.
+ *
+ * Compaction rotates the live file to <file>.compacting, the caller writes
+ * a fresh snapshot, then discardRotated() deletes it. Startup replays the
+ * rotated file first (left over if a snapshot never finished) and then the
+ * live one; replay is idempotent against the snapshot.
+ */
+class Journal implements Closeable {
+    static int syncEvery = Integer.getInteger("journal.syncEvery", 16);
+    static long syncMillis = Long.getLong("journal.syncMillis", 1000L);
+
+    final Path file;
+    final Path rotated;
+    private FileChannel channel;
+    private int unsynced;
+    private long lastSync = System.currentTimeMillis();
+    private long records;
+    private ScheduledExecutorService compactor;
+    private ScheduledExecutorService syncer;
+    private boolean syncArmed;
+
+    static final Metrics.Counter RECORDS = Metrics.counter("tls_journal_records_total",
+            "Records appended to the journal");
+    static final Metrics.Histogram SYNC_SECONDS = Metrics.timer("tls_journal_sync_seconds",
+            "Time spent forcing the journal to disk");
+
+    private Journal(Path file) throws IOException {
+        this.file = file;
+        this.rotated = file.resolveSibling(file.getFileName() + ".compacting");
+        this.channel = openChannel();
+    }
+
+    static Journal open(String file) throws IOException {
+        return new Journal(Paths.get(file));
+    }
+
+    private FileChannel openChannel() throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // ---------- appends ----------
+
+    void appendVehicle(Vehicle v) {
+        append("V," + CsvFields.quote(v.id) + "," + v.getType() + "," + v.capacity + "," + v.mileage + "," + v.rate
+            + "," + v.latitude + "," + v.longitude);
+    }
+
+    void appendRoute(Route r) {
+        append("R," + CsvFields.quote(r.id) + "," + r.distance + "," + r.cargoAmount + "," + CsvFields.quote(r.source)
+            + "," + CsvFields.quote(r.destination) + "," + TransportLogisticSystem2.formatDeparture(r.departure));
+    }
+
+    void appendAllocation(Allocation a) {
+        append("A," + a.allocationId + "," + CsvFields.quote(a.route.id) + "," + CsvFields.quote(a.vehicle.id) + ","
+            + a.cost + "," + Timestamps.format(a.timestamp) + "," + a.cargo + "," + a.linkGroup);
+    }
+
+    void appendDelivery(MultiStopDelivery d) {
+        StringBuilder sb = new StringBuilder("M,");
+        sb.append(CsvFields.quote(d.deliveryId)).append(',').append(CsvFields.quote(d.vehicle.id)).append(',')
+          .append(d.totalDistance).append(',').append(d.totalCargo).append(',')
+          .append(d.cost).append(',').append(Timestamps.format(d.timestamp)).append(',').append(d.stops.size());
+        for(Stop s : d.stops) {
+            sb.append(',').append(CsvFields.quote(s.city)).append(',').append(s.distance).append(',').append(s.cargo);
+        }
+        sb.append(',').append(Timestamps.format(d.departure)).append(',').append(CsvFields.quote(d.routes));
+        append(sb.toString());
+    }
+
+    private synchronized void append(String record) {
+        try {
+            ByteBuffer buf = ByteBuffer.wrap((record + "\n").getBytes(StandardCharsets.UTF_8));
+            while(buf.hasRemaining()) channel.write(buf);
+            records++;
+            unsynced++;
+            RECORDS.inc();
+            long now = System.currentTimeMillis();
+            if(unsynced >= syncEvery || now - lastSync >= syncMillis) {
+                sync(now);
+            } else if(!syncArmed) {
+                syncArmed = true;
+                syncer().schedule(this::syncDue, lastSync + syncMillis - now, TimeUnit.MILLISECONDS);
+            }
+        } catch(IOException e) {
+            System.out.println("❌ Journal write failed: " + e.getMessage());
+        }
+    }
+
+    private void sync(long now) throws IOException {
+        long start = Metrics.start();
+        channel.force(false);
+        SYNC_SECONDS.recordSince(start);
+        unsynced = 0;
+        lastSync = now;
+    }
+
+    // Timer side of group commit: forces records still unsynced at the deadline
+    private synchronized void syncDue() {
+        syncArmed = false;
+        if(unsynced == 0 || !channel.isOpen()) return;
+        try {
+            sync(System.currentTimeMillis());
+        } catch(IOException e) {
+            System.out.println("❌ Journal sync failed: " + e.getMessage());
+        }
+    }
+
+    private ScheduledExecutorService syncer() {
+        if(syncer == null) syncer = daemonScheduler("journal-sync");
+        return syncer;
+    }
+
+    private static ScheduledExecutorService daemonScheduler(String name) {
+        return Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Records appended since the journal was opened or last rotated.
+     */
+    synchronized long pendingRecords() {
+        return records;
+    }
+
+    // ---------- compaction ----------
+
+    /**
+     * Moves the live journal aside and starts an empty one. Call while the
+     * in-memory state is frozen so the snapshot and the rotation agree.
+     * If an earlier rotation was never discarded, the live records are
+     * appended to it instead so nothing is dropped.
+     */
+    synchronized void rotate() throws IOException {
+        channel.force(false);
+        channel.close();
+        if(Files.exists(rotated)) {
+            try (FileChannel out = FileChannel.open(rotated, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                 FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                long pos = 0, size = in.size();
+                while(pos < size) pos += in.transferTo(pos, size - pos, out);
+                out.force(false);
+            }
+            Files.delete(file);
+        } else {
+            Files.move(file, rotated, StandardCopyOption.ATOMIC_MOVE);
+        }
+        channel = openChannel();
+        records = 0;
+        unsynced = 0;
+    }
+
+    /**
+     * Drops the rotated journal once its records are safely in the snapshot.
+     */
+    void discardRotated() throws IOException {
+        Files.deleteIfExists(rotated);
+    }
+
+    /**
+     * Runs task every intervalSeconds on a daemon thread.
+     */
+    void startCompaction(long intervalSeconds, Runnable task) {
+        if(intervalSeconds <= 0) return;
+        compactor = daemonScheduler("journal-compactor");
+        compactor.scheduleWithFixedDelay(task, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    void stopCompaction() {
+        if(compactor == null) return;
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        stopCompaction();
+        synchronized(this) {
+            if(syncer != null) syncer.shutdownNow();
+            if(channel.isOpen()) {
+                channel.force(false);
+                channel.close();
+            }
+        }
+    }
+
+    // ---------- replay ----------
+
+    /**
+     * Feeds every record from the rotated and live journal files, in that
+     * order, to the handler. Returns the number of records read.
+     */
+    static long replay(String file, Consumer<CsvFields> handler) {
+        Path live = Paths.get(file);
+        Path rotated = live.resolveSibling(live.getFileName() + ".compacting");
+        return replayFile(rotated, handler) + replayFile(live, handler);
+    }
+
+    private static long replayFile(Path path, Consumer<CsvFields> handler) {
+        long count = 0;
+        if(!Files.exists(path)) return count;
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            CsvFields row = new CsvFields();
+            String line;
+            while((line = in.readLine()) != null) {
+                if(line.isEmpty()) continue;
+                row.parse(line);
+                handler.accept(row);
+                count++;
+            }
+        } catch(IOException e) {
+            System.out.println("⚠ Could not read " + path + ": " + e.getMessage());
+        }
+        return count;
+    }
+
+    /**
+     * Highest allocation ID recorded in the journal files, 0 if none.
+     */
+    static int lastAllocationId(String file) {
+        int[] last = {0};
+        replay(file, row -> {
+            if(row.count() >= 2 && row.equalsIgnoreCase(0, "A")) {
+                try {
+                    last[0] = Math.max(last[0], (int) row.number(1));
+                } catch(NumberFormatException e) {
+                    // Torn or malformed record; replay skips it too
+                }
+            }
+        });
+        return last[0];
+    }
+}
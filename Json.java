@@ -0,0 +1,183 @@
+import java.util.*;
+
+// ==================== MINIMAL JSON ====================
+
+/**
+ * Just enough JSON for the HTTP API: request bodies are flat objects of
+ * strings, numbers, booleans and nulls; responses are built with quote()
+ * and the object()/array() helpers.
+ */
+class Json {
+    /**
+     * Parses a flat JSON object. Strings come back as String, numbers as
+     * Double, booleans as Boolean, null as null.
+     */
+    static Map<String, Object> parseObject(String text) {
+        Parser p = new Parser(text);
+        Map<String, Object> out = p.object();
+        p.skipSpace();
+        if(p.pos != text.length()) throw p.error("trailing characters");
+        return out;
+    }
+
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for(int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch(c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if(c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Builds an object from alternating keys and values. Values that are
+     * already JSON (nested objects/arrays) must be wrapped with raw().
+     */
+    static String object(Object... keysAndValues) {
+        StringBuilder sb = new StringBuilder("{");
+        for(int i = 0; i < keysAndValues.length; i += 2) {
+            if(i > 0) sb.append(',');
+            sb.append(quote((String) keysAndValues[i])).append(':').append(value(keysAndValues[i + 1]));
+        }
+        return sb.append('}').toString();
+    }
+
+    static String array(List<String> jsonValues) {
+        return "[" + String.join(",", jsonValues) + "]";
+    }
+
+    static Raw raw(String json) {
+        return new Raw(json);
+    }
+
+    record Raw(String json) {}
+
+    private static String value(Object v) {
+        if(v == null) return "null";
+        if(v instanceof Raw r) return r.json();
+        if(v instanceof Number n) {
+            double d = n.doubleValue();
+            if(Double.isNaN(d) || Double.isInfinite(d)) return "null";
+            return d == Math.rint(d) && Math.abs(d) < 1e15 ? Long.toString((long) d) : Double.toString(d);
+        }
+        if(v instanceof Boolean) return v.toString();
+        return quote(v.toString());
+    }
+
+    private static class Parser {
+        final String s;
+        int pos;
+
+        Parser(String s) {
+            this.s = s;
+        }
+
+        Map<String, Object> object() {
+            skipSpace();
+            expect('{');
+            Map<String, Object> out = new LinkedHashMap<>();
+            skipSpace();
+            if(peek() == '}') {
+                pos++;
+                return out;
+            }
+            while(true) {
+                skipSpace();
+                String key = string();
+                skipSpace();
+                expect(':');
+                skipSpace();
+                out.put(key, value());
+                skipSpace();
+                char c = next();
+                if(c == '}') return out;
+                if(c != ',') throw error("expected , or }");
+            }
+        }
+
+        Object value() {
+            char c = peek();
+            if(c == '"') return string();
+            if(c == '-' || (c >= '0' && c <= '9')) return number();
+            if(s.startsWith("true", pos)) { pos += 4; return Boolean.TRUE; }
+            if(s.startsWith("false", pos)) { pos += 5; return Boolean.FALSE; }
+            if(s.startsWith("null", pos)) { pos += 4; return null; }
+            throw error("nested or unsupported value");
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while(true) {
+                char c = next();
+                if(c == '"') return sb.toString();
+                if(c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char e = next();
+                switch(e) {
+                    case '"', '\\', '/' -> sb.append(e);
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'u' -> {
+                        if(pos + 4 > s.length()) throw error("bad \\u escape");
+                        try {
+                            sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                        } catch(NumberFormatException ex) {
+                            throw error("bad \\u escape");
+                        }
+                        pos += 4;
+                    }
+                    default -> throw error("bad escape");
+                }
+            }
+        }
+
+        Double number() {
+            int start = pos;
+            while(pos < s.length() && "+-0123456789.eE".indexOf(s.charAt(pos)) >= 0) pos++;
+            try {
+                return Double.parseDouble(s.substring(start, pos));
+            } catch(NumberFormatException e) {
+                throw error("bad number");
+            }
+        }
+
+        void skipSpace() {
+            while(pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+        }
+
+        char peek() {
+            if(pos >= s.length()) throw error("unexpected end");
+            return s.charAt(pos);
+        }
+
+        char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        void expect(char c) {
+            if(next() != c) throw error("expected " + c);
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("invalid JSON at " + pos + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+// ==================== PARALLEL MATCH PLANNER ====================
+
+/**
+ * Compute phase of route planning: finds the cheapest vehicle for every route
+ * with no I/O, splitting the route array across a ForkJoinPool. Routes are
+ * independent, so each task writes only its own slots of the result array.
+ * Parallelism comes from -Dplanner.parallelism (default: all cores); 1 runs
+ * the plain sequential loop. The clock is read per chunk of up to CHUNK
+ * routes, never per route, so the inner loop stays free of clock reads;
+ * per-route values go through a chunk-local buffer merged once per chunk.
+ */
+class MatchPlanner {
+    static final int CHUNK = 512;
+    static int parallelism = Integer.getInteger("planner.parallelism",
+            Runtime.getRuntime().availableProcessors());
+
+    private static ForkJoinPool pool;
+
+    static final Metrics.Histogram PASS_SECONDS = Metrics.timer("tls_match_pass_seconds",
+            "Time to compute best matches for a whole route list");
+    static final Metrics.Histogram CHUNK_SECONDS = Metrics.timer("tls_match_chunk_seconds",
+            "Time to find the best vehicles for one chunk of up to " + CHUNK + " routes");
+    static final Metrics.Histogram ROUTE_SECONDS = Metrics.timer("tls_match_route_seconds",
+            "Estimated time to match one route: its chunk's time over the routes in it");
+    static final Metrics.Histogram FEASIBLE = Metrics.histogram("tls_match_feasible_vehicles",
+            "Vehicles with enough capacity, per matched route");
+    static final Metrics.Counter ROUTES = Metrics.counter("tls_routes_matched_total",
+            "Routes run through best-match");
+    static final Metrics.Gauge ROUTES_PER_SECOND = Metrics.gauge("tls_match_routes_per_second",
+            "Throughput of the last best-match pass");
+
+    /**
+     * Returns the cheapest vehicle per route (same order); null where none fits.
+     * Trip costs are left to the caller (calculateCost), so a pass allocates
+     * nothing per route.
+     */
+    static Vehicle[] computeBestMatches(List<Route> routes, FleetIndex fleet) {
+        long start = Metrics.start();
+        Route[] rs = routes.toArray(new Route[0]);
+        Vehicle[] best = new Vehicle[rs.length];
+        if(threadsFor(rs.length) == 1) {
+            match(rs, fleet, best, 0, rs.length);
+        } else {
+            pool().invoke(new MatchTask(rs, fleet, best, 0, rs.length));
+        }
+        if(Metrics.ENABLED) {
+            long nanos = System.nanoTime() - start;
+            PASS_SECONDS.record(nanos);
+            ROUTES.add(rs.length);
+            ROUTES_PER_SECOND.set(rs.length / Math.max(nanos / 1e9, 1e-9));
+        }
+        return best;
+    }
+
+    /**
+     * Columnar variant for a FleetStore: routes come in as cargo/distance
+     * arrays and results go to slot/cost arrays (slot -1 where no vehicle fits).
+     */
+    static void computeBestMatches(double[] cargo, double[] distance, int count, FleetStore fleet,
+                                   int[] slot, double[] cost) {
+        long start = Metrics.start();
+        fleet.index();
+        if(threadsFor(count) == 1) {
+            match(cargo, distance, fleet, slot, cost, 0, count);
+        } else {
+            pool().invoke(new StoreMatchTask(cargo, distance, fleet, slot, cost, 0, count));
+        }
+        if(Metrics.ENABLED) {
+            long nanos = System.nanoTime() - start;
+            PASS_SECONDS.record(nanos);
+            ROUTES.add(count);
+            ROUTES_PER_SECOND.set(count / Math.max(nanos / 1e9, 1e-9));
+        }
+    }
+
+    /**
+     * Threads a pass over routeCount routes will use; small passes stay on the caller.
+     */
+    static int threadsFor(int routeCount) {
+        return routeCount <= CHUNK ? 1 : Math.max(1, parallelism);
+    }
+
+    static void match(Route[] rs, FleetIndex fleet, Vehicle[] best, int from, int to) {
+        long start = Metrics.start();
+        for(int i = from; i < to; i++) best[i] = fleet.cheapestFor(rs[i].cargoAmount);
+        if(Metrics.ENABLED && from < to) {
+            recordChunk(start, to - from);
+            Metrics.Histogram.Buffer feasible = FEASIBLE.buffer();
+            for(int i = from; i < to; i++) feasible.record(fleet.feasibleCount(rs[i].cargoAmount));
+            feasible.flush();
+        }
+    }
+
+    static void match(double[] cargo, double[] distance, FleetStore fleet, int[] slot, double[] cost, int from, int to) {
+        long start = Metrics.start();
+        fleet.match(cargo, distance, slot, cost, from, to);
+        if(Metrics.ENABLED && from < to) {
+            recordChunk(start, to - from);
+            Metrics.Histogram.Buffer feasible = FEASIBLE.buffer();
+            for(int i = from; i < to; i++) feasible.record(fleet.feasibleCount(cargo[i]));
+            feasible.flush();
+        }
+    }
+
+    // Taken before the feasible counts, so the estimate covers matching only
+    private static void recordChunk(long start, int routes) {
+        long nanos = System.nanoTime() - start;
+        CHUNK_SECONDS.record(nanos);
+        ROUTE_SECONDS.record(nanos / routes, routes);
+    }
+
+    private static synchronized ForkJoinPool pool() {
+        if(pool == null || pool.getParallelism() != parallelism) {
+            if(pool != null) pool.shutdown();
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+
+    @SuppressWarnings("serial")     // fork/join tasks are never serialized
+    static class MatchTask extends RecursiveAction {
+        final Route[] rs;
+        final FleetIndex fleet;
+        final Vehicle[] best;
+        final int from, to;
+
+        MatchTask(Route[] rs, FleetIndex fleet, Vehicle[] best, int from, int to) {
+            this.rs = rs;
+            this.fleet = fleet;
+            this.best = best;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= CHUNK) {
+                match(rs, fleet, best, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new MatchTask(rs, fleet, best, from, mid),
+                      new MatchTask(rs, fleet, best, mid, to));
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static class StoreMatchTask extends RecursiveAction {
+        final double[] cargo, distance, cost;
+        final FleetStore fleet;
+        final int[] slot;
+        final int from, to;
+
+        StoreMatchTask(double[] cargo, double[] distance, FleetStore fleet, int[] slot, double[] cost, int from, int to) {
+            this.cargo = cargo;
+            this.distance = distance;
+            this.fleet = fleet;
+            this.slot = slot;
+            this.cost = cost;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= CHUNK) {
+                match(cargo, distance, fleet, slot, cost, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new StoreMatchTask(cargo, distance, fleet, slot, cost, from, mid),
+                      new StoreMatchTask(cargo, distance, fleet, slot, cost, mid, to));
+        }
+    }
+}
@@ -0,0 +1,446 @@
+import com.sun.net.httpserver.*;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.util.*;
+import java.util.concurrent.*;
+
+// ==================== HTTP MATCHING SERVICE ====================
+
+/**
+ * Embedded JSON API over the shared store (java --serve[=PORT]):
+ *
+ *   POST /routes               {"id","source","destination","cargo","distance"?,"departure"?}
+ *   GET  /routes/{id}
+ *   POST /vehicles             {"id","type","capacity","mileage","rate","latitude"?,"longitude"?}
+ *   GET  /vehicles             ?offset=&limit=
+ *   GET  /vehicles/{id}
+ *   GET  /best-match/{routeId} ?dispatch=true prices the deadhead run from the nearest vehicles
+ *   GET  /nearby               ?city= or ?lat=&lon=, k=, radiusKm=
+ *   POST /allocations          {"routeId","vehicleId"?}  (best match if no vehicle given)
+ *   POST /allocations          {"routeId","split":true}  (linked allocations over several vehicles)
+ *   GET  /allocations          ?routeId=&vehicleId=&source=&destination=&minCost=&maxCost=
+ *                              &from=&to=&order=newest&offset=&limit=  (indexed, see HistoryIndex)
+ *   GET  /deliveries           same filters except routeId
+ *   GET  /metrics              Prometheus text
+ *
+ * Writes go through the same confirm* methods as the menu, so they are
+ * journaled. Matching only offers vehicles free for the route's window
+ * (see Bookings); allocating a booked vehicle is a 409. Requests run on virtual threads when the JDK has them
+ * (looked up reflectively), otherwise on a bounded worker pool.
+ * Route distance may be omitted when the road network connects the cities.
+ */
+class MatchingService {
+    static final int DEFAULT_PORT = 8080;
+    static final int BACKLOG = 4096;
+    static final int MAX_PAGE = 1000;
+
+    static final Metrics.Counter REQUESTS = Metrics.counter("tls_http_requests_total",
+            "HTTP requests handled");
+    static final Metrics.Counter ERRORS = Metrics.counter("tls_http_errors_total",
+            "HTTP requests answered with a 4xx or 5xx status");
+    static final Metrics.Histogram LATENCY = Metrics.timer("tls_http_request_seconds",
+            "HTTP request handling time");
+
+    static String executorKind;
+
+    static HttpServer start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        server.createContext("/routes", ex -> handle(ex, MatchingService::routes));
+        server.createContext("/vehicles", ex -> handle(ex, MatchingService::vehicles));
+        server.createContext("/best-match", ex -> handle(ex, MatchingService::bestMatch));
+        server.createContext("/allocations", ex -> handle(ex, MatchingService::allocations));
+        server.createContext("/deliveries", ex -> handle(ex, MatchingService::deliveries));
+        server.createContext("/nearby", ex -> handle(ex, MatchingService::nearby));
+        server.createContext("/metrics", ex -> handle(ex, MatchingService::metrics));
+        server.setExecutor(requestExecutor());
+        server.start();
+        return server;
+    }
+
+    /**
+     * Virtual-thread-per-request when available (JDK 21+), else a fixed pool.
+     */
+    static ExecutorService requestExecutor() {
+        try {
+            ExecutorService vt = (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            executorKind = "virtual threads";
+            return vt;
+        } catch(ReflectiveOperationException e) {
+            int threads = Integer.getInteger("http.threads", Math.max(16, 4 * Runtime.getRuntime().availableProcessors()));
+            executorKind = threads + " worker threads";
+            return Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "http-worker");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // ---------- plumbing ----------
+
+    record Response(int status, String contentType, String body) {
+        static Response json(int status, String body) {
+            return new Response(status, "application/json; charset=utf-8", body);
+        }
+    }
+
+    interface Handler {
+        Response apply(HttpExchange ex) throws IOException;
+    }
+
+    @SuppressWarnings("serial")     // thrown and caught within a request, never serialized
+    static class HttpError extends RuntimeException {
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private static void handle(HttpExchange ex, Handler handler) throws IOException {
+        long start = Metrics.start();
+        Response res;
+        try {
+            res = handler.apply(ex);
+        } catch(HttpError e) {
+            res = error(e.status, e.getMessage());
+        } catch(IllegalArgumentException e) {
+            res = error(400, e.getMessage());
+        } catch(RuntimeException e) {
+            res = error(500, "internal error: " + e);
+        }
+        byte[] body = res.body().getBytes(StandardCharsets.UTF_8);
+        try (ex) {
+            ex.getResponseHeaders().set("Content-Type", res.contentType());
+            ex.sendResponseHeaders(res.status(), body.length == 0 ? -1 : body.length);
+            if(body.length > 0) ex.getResponseBody().write(body);
+        }
+        REQUESTS.inc();
+        if(res.status() >= 400) ERRORS.inc();
+        LATENCY.recordSince(start);
+    }
+
+    private static Response error(int status, String message) {
+        return Response.json(status, Json.object("error", message));
+    }
+
+    // Path segment after the context, e.g. "R1" for /routes/R1; "" for /routes
+    private static String pathId(HttpExchange ex) {
+        String path = ex.getRequestURI().getPath();
+        String rest = path.substring(ex.getHttpContext().getPath().length());
+        if(rest.startsWith("/")) rest = rest.substring(1);
+        if(rest.endsWith("/")) rest = rest.substring(0, rest.length() - 1);
+        return URLDecoder.decode(rest, StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> query(HttpExchange ex) {
+        Map<String, String> out = new HashMap<>();
+        String q = ex.getRequestURI().getRawQuery();
+        if(q == null || q.isEmpty()) return out;
+        for(String pair : q.split("&")) {
+            int eq = pair.indexOf('=');
+            String k = eq < 0 ? pair : pair.substring(0, eq);
+            String v = eq < 0 ? "" : pair.substring(eq + 1);
+            out.put(URLDecoder.decode(k, StandardCharsets.UTF_8), URLDecoder.decode(v, StandardCharsets.UTF_8));
+        }
+        return out;
+    }
+
+    private static Map<String, Object> body(HttpExchange ex) throws IOException {
+        try (InputStream in = ex.getRequestBody()) {
+            return Json.parseObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String text(Map<String, Object> body, String key, boolean required) {
+        Object v = body.get(key);
+        if(v == null) {
+            if(required) throw new HttpError(400, "missing field: " + key);
+            return null;
+        }
+        String s = v.toString().trim();
+        if(s.isEmpty() || s.indexOf(',') >= 0) throw new HttpError(400, "invalid " + key + ": must be non-empty, no commas");
+        return s;
+    }
+
+    private static double positive(Map<String, Object> body, String key) {
+        Object v = body.get(key);
+        if(!(v instanceof Double d)) throw new HttpError(400, "missing or non-numeric field: " + key);
+        if(!(d > 0) || d.isInfinite()) throw new HttpError(400, key + " must be positive");
+        return d;
+    }
+
+    private static int intParam(Map<String, String> q, String key, int def, int max) {
+        String v = q.get(key);
+        if(v == null || v.isEmpty()) return def;
+        try {
+            int n = Integer.parseInt(v);
+            if(n < 0) throw new HttpError(400, key + " must not be negative");
+            return Math.min(n, max);
+        } catch(NumberFormatException e) {
+            throw new HttpError(400, "invalid " + key);
+        }
+    }
+
+    private static void requireMethod(HttpExchange ex, String... allowed) {
+        for(String m : allowed) if(m.equals(ex.getRequestMethod())) return;
+        throw new HttpError(405, "method not allowed");
+    }
+
+    // ---------- JSON views ----------
+
+    static String routeJson(Route r) {
+        return Json.object("id", r.id, "source", r.source, "destination", r.destination,
+            "distance", r.distance, "cargo", r.cargoAmount,
+            "departure", r.departure > 0 ? Timestamps.format(r.departure) : null);
+    }
+
+    static String vehicleJson(Vehicle v) {
+        return Json.object("id", v.id, "type", v.getType(), "capacity", v.capacity,
+            "mileage", v.mileage, "rate", v.rate, "latitude", v.latitude, "longitude", v.longitude);
+    }
+
+    static String allocationJson(Allocation a) {
+        return Json.object("id", a.allocationId, "routeId", a.route.id, "vehicleId", a.vehicle.id,
+            "cost", Math.round(a.cost * 100) / 100.0, "timestamp", Timestamps.format(a.timestamp),
+            "cargo", a.cargo, "linkGroup", a.linkGroup);
+    }
+
+    static String deliveryJson(MultiStopDelivery d) {
+        List<String> stops = new ArrayList<>();
+        for(Stop s : d.stops) stops.add(Json.object("city", s.city, "distance", s.distance, "cargo", s.cargo));
+        return Json.object("id", d.deliveryId, "vehicleId", d.vehicle.id, "stops", Json.raw(Json.array(stops)),
+            "distance", d.totalDistance, "cargo", d.totalCargo, "cost", Math.round(d.cost * 100) / 100.0,
+            "timestamp", Timestamps.format(d.timestamp), "departure", Timestamps.format(d.departure));
+    }
+
+    // ---------- handlers ----------
+
+    static Response routes(HttpExchange ex) throws IOException {
+        String id = pathId(ex);
+        if(!id.isEmpty()) {
+            requireMethod(ex, "GET");
+            Route r = TransportLogisticSystem2.routesById.get(id);
+            if(r == null) throw new HttpError(404, "unknown route: " + id);
+            return Response.json(200, routeJson(r));
+        }
+        requireMethod(ex, "POST");
+        Map<String, Object> b = body(ex);
+        String routeId = text(b, "id", true);
+        String src = text(b, "source", true);
+        String dst = text(b, "destination", true);
+        double cargo = positive(b, "cargo");
+        double distance;
+        if(b.get("distance") != null) {
+            distance = positive(b, "distance");
+        } else {
+            distance = TransportLogisticSystem2.roadGraph.distance(src, dst);
+            if(Double.isNaN(distance) || distance <= 0) {
+                throw new HttpError(400, "distance is required: no road connection " + src + " -> " + dst);
+            }
+        }
+        Route r = new Route(routeId, distance, cargo, src, dst);
+        String departure = text(b, "departure", false);
+        if(departure != null) {
+            try {
+                r.departure = Timestamps.parse(departure);
+            } catch(DateTimeException e) {
+                throw new HttpError(400, "departure must be yyyy-MM-dd HH:mm:ss");
+            }
+        }
+        if(!TransportLogisticSystem2.confirmRoute(r)) throw new HttpError(409, "route ID already exists: " + routeId);
+        return Response.json(201, routeJson(r));
+    }
+
+    static Response vehicles(HttpExchange ex) throws IOException {
+        String id = pathId(ex);
+        if(!id.isEmpty()) {
+            requireMethod(ex, "GET");
+            Vehicle v = TransportLogisticSystem2.vehiclesById.get(id);
+            if(v == null) throw new HttpError(404, "unknown vehicle: " + id);
+            return Response.json(200, vehicleJson(v));
+        }
+        if(ex.getRequestMethod().equals("GET")) {
+            Map<String, String> q = query(ex);
+            int offset = intParam(q, "offset", 0, Integer.MAX_VALUE);
+            int limit = intParam(q, "limit", 100, MAX_PAGE);
+            Vehicle[] fleet = TransportLogisticSystem2.fleetSnapshot();
+            List<String> page = new ArrayList<>();
+            for(int i = offset; i < fleet.length && page.size() < limit; i++) page.add(vehicleJson(fleet[i]));
+            return Response.json(200, Json.object("total", fleet.length, "offset", offset,
+                "vehicles", Json.raw(Json.array(page))));
+        }
+        requireMethod(ex, "POST");
+        Map<String, Object> b = body(ex);
+        String vehicleId = text(b, "id", true);
+        String type = text(b, "type", true);
+        double cap = positive(b, "capacity");
+        double mileage = positive(b, "mileage");
+        double rate = positive(b, "rate");
+        Vehicle v;
+        if(type.equalsIgnoreCase("Truck")) v = new Truck(vehicleId, cap, mileage, rate);
+        else if(type.equalsIgnoreCase("Van")) v = new Van(vehicleId, cap, mileage, rate);
+        else throw new HttpError(400, "type must be Truck or Van");
+        if(b.get("latitude") != null || b.get("longitude") != null) {
+            v.locate(coordinate(b.get("latitude"), "latitude", 90), coordinate(b.get("longitude"), "longitude", 180));
+        }
+        if(!TransportLogisticSystem2.confirmVehicle(v)) throw new HttpError(409, "vehicle ID already exists: " + vehicleId);
+        return Response.json(201, vehicleJson(v));
+    }
+
+    static Response bestMatch(HttpExchange ex) {
+        requireMethod(ex, "GET");
+        String id = pathId(ex);
+        Route r = TransportLogisticSystem2.routesById.get(id);
+        if(r == null) throw new HttpError(404, "unknown route: " + id);
+        if("true".equals(query(ex).get("dispatch"))) {
+            double[] at = TransportLogisticSystem2.cityLocation(r.source);
+            if(at == null) throw new HttpError(422, "no coordinates for " + r.source);
+            Dispatcher.Match m = TransportLogisticSystem2.dispatcher().best(r, at[0], at[1],
+                TransportLogisticSystem2.freeDuring(Bookings.window(r)));
+            if(m == null) throw new HttpError(422, "no located vehicle has sufficient capacity for " + id);
+            return Response.json(200, Json.object("routeId", r.id, "vehicleId", m.vehicle.id,
+                "vehicleType", m.vehicle.getType(), "deadheadKm", Math.round(m.deadheadKm * 10) / 10.0,
+                "cost", Math.round(m.cost * 100) / 100.0));
+        }
+        Vehicle best = TransportLogisticSystem2.bestAvailable(r);
+        if(best == null) throw new HttpError(422, "no free vehicle has sufficient capacity for " + id);
+        double cost = TransportLogisticSystem2.calculateCost(r, best);
+        return Response.json(200, Json.object("routeId", r.id, "vehicleId", best.id,
+            "vehicleType", best.getType(), "cost", Math.round(cost * 100) / 100.0));
+    }
+
+    static Response allocations(HttpExchange ex) throws IOException {
+        if(ex.getRequestMethod().equals("GET")) {
+            HistoryIndex.Query q = historyQuery(query(ex));
+            q.deliveries = false;
+            HistoryIndex.Page found = TransportLogisticSystem2.history.query(q);
+            List<String> page = new ArrayList<>();
+            for(Object a : found.records) page.add(allocationJson((Allocation) a));
+            return Response.json(200, Json.object("total", found.total, "offset", q.offset,
+                "allocations", Json.raw(Json.array(page))));
+        }
+        requireMethod(ex, "POST");
+        Map<String, Object> b = body(ex);
+        String routeId = text(b, "routeId", true);
+        String vehicleId = text(b, "vehicleId", false);
+        Route r = TransportLogisticSystem2.routesById.get(routeId);
+        if(r == null) throw new HttpError(404, "unknown route: " + routeId);
+        if(Boolean.TRUE.equals(b.get("split"))) return splitAllocation(r);
+        Allocation a;
+        if(vehicleId == null) {
+            // A concurrent request may book the match first; it is then no
+            // longer free, so the next bestAvailable moves on to another vehicle
+            do {
+                Vehicle v = TransportLogisticSystem2.bestAvailable(r);
+                if(v == null) throw new HttpError(422, "no free vehicle has sufficient capacity for " + routeId + " (split: true plans several)");
+                a = new Allocation(r, v, TransportLogisticSystem2.calculateCost(r, v));
+            } while(TransportLogisticSystem2.confirmIfFree(List.of(a)) != null);
+        } else {
+            Vehicle v = TransportLogisticSystem2.vehiclesById.get(vehicleId);
+            if(v == null) throw new HttpError(404, "unknown vehicle: " + vehicleId);
+            if(v.capacity < r.cargoAmount) throw new HttpError(422, vehicleId + " cannot carry " + r.cargoAmount + " kg");
+            a = new Allocation(r, v, TransportLogisticSystem2.calculateCost(r, v));
+            IntervalTree.Interval<Object> busy = TransportLogisticSystem2.confirmIfFree(List.of(a));
+            if(busy != null) throw new HttpError(409, vehicleId + " is booked (" + Bookings.describe(busy) + ") until " + Timestamps.format(busy.end()));
+        }
+        return Response.json(201, allocationJson(a));
+    }
+
+    static Response splitAllocation(Route r) {
+        SplitLoadPlanner.Plan plan;
+        List<Allocation> split;
+        // Re-plan over the vehicles still free if a concurrent request books one first
+        do {
+            plan = SplitLoadPlanner.plan(r, TransportLogisticSystem2.freeFleet(Bookings.window(r)));
+            if(plan == null) throw new HttpError(422, "the free vehicles cannot carry " + r.cargoAmount + " kg for " + r.id);
+            split = Allocation.split(r, plan);
+        } while(TransportLogisticSystem2.confirmIfFree(split) != null);
+        List<String> parts = new ArrayList<>(plan.size());
+        for(Allocation a : split) parts.add(allocationJson(a));
+        return Response.json(201, Json.object("linkGroup", split.get(0).linkGroup,
+            "cost", Math.round(plan.totalCost * 100) / 100.0, "allocations", Json.raw(Json.array(parts))));
+    }
+
+    static Response nearby(HttpExchange ex) {
+        requireMethod(ex, "GET");
+        Map<String, String> q = query(ex);
+        double lat, lon;
+        if(q.get("city") != null) {
+            double[] at = TransportLogisticSystem2.cityLocation(q.get("city"));
+            if(at == null) throw new HttpError(404, "no coordinates for " + q.get("city"));
+            lat = at[0];
+            lon = at[1];
+        } else {
+            lat = coordinate(q.get("lat"), "lat", 90);
+            lon = coordinate(q.get("lon"), "lon", 180);
+        }
+        int k = intParam(q, "k", 10, MAX_PAGE);
+        double radius = Double.NaN;
+        if(q.get("radiusKm") != null) {
+            radius = coordinate(q.get("radiusKm"), "radiusKm", Double.MAX_VALUE);
+            if(radius < 0) throw new HttpError(400, "radiusKm must not be negative");
+        }
+        List<String> found = new ArrayList<>();
+        for(Vehicle v : TransportLogisticSystem2.dispatcher().nearby(lat, lon, k, radius)) {
+            found.add(Json.object("id", v.id, "type", v.getType(), "capacity", v.capacity,
+                "distanceKm", Math.round(GeoIndex.km(lat, lon, v.latitude, v.longitude) * 10) / 10.0));
+        }
+        return Response.json(200, Json.object("latitude", lat, "longitude", lon, "vehicles", Json.raw(Json.array(found))));
+    }
+
+    static Response deliveries(HttpExchange ex) {
+        requireMethod(ex, "GET");
+        HistoryIndex.Query q = historyQuery(query(ex));
+        if(q.route != null) throw new HttpError(400, "deliveries have no routeId");
+        q.allocations = false;
+        HistoryIndex.Page found = TransportLogisticSystem2.history.query(q);
+        List<String> page = new ArrayList<>();
+        for(Object d : found.records) page.add(deliveryJson((MultiStopDelivery) d));
+        return Response.json(200, Json.object("total", found.total, "offset", q.offset,
+            "deliveries", Json.raw(Json.array(page))));
+    }
+
+    // History filters shared by GET /allocations and /deliveries
+    private static HistoryIndex.Query historyQuery(Map<String, String> params) {
+        HistoryIndex.Query q = new HistoryIndex.Query();
+        q.vehicle = params.get("vehicleId");
+        q.route = params.get("routeId");
+        q.source = params.get("source");
+        q.destination = params.get("destination");
+        if(params.get("minCost") != null) q.minCost = coordinate(params.get("minCost"), "minCost", Double.MAX_VALUE);
+        if(params.get("maxCost") != null) q.maxCost = coordinate(params.get("maxCost"), "maxCost", Double.MAX_VALUE);
+        try {
+            if(params.get("from") != null) q.from = TransportLogisticSystem2.parseSearchTime(params.get("from"), false);
+            if(params.get("to") != null) q.to = TransportLogisticSystem2.parseSearchTime(params.get("to"), true);
+        } catch(DateTimeException e) {
+            throw new HttpError(400, "invalid from/to: use yyyy-MM-dd or yyyy-MM-dd HH:mm:ss");
+        }
+        q.newestFirst = "newest".equals(params.get("order"));
+        q.offset = intParam(params, "offset", 0, Integer.MAX_VALUE);
+        q.limit = intParam(params, "limit", 100, MAX_PAGE);
+        return q;
+    }
+
+    // A number from a JSON body or query string, within [-limit, limit]
+    private static double coordinate(Object value, String key, double limit) {
+        double d;
+        try {
+            d = value instanceof Double n ? n : Double.parseDouble(String.valueOf(value));
+        } catch(NumberFormatException e) {
+            throw new HttpError(400, "missing or non-numeric field: " + key);
+        }
+        if(Double.isNaN(d) || Math.abs(d) > limit) throw new HttpError(400, key + " out of range");
+        return d;
+    }
+
+    static Response metrics(HttpExchange ex) {
+        requireMethod(ex, "GET");
+        return new Response(200, "text/plain; version=0.0.4; charset=utf-8", Metrics.prometheusText());
+    }
+}
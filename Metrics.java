@@ -0,0 +1,302 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+// ==================== METRICS ====================
+
+/**
+ * In-process metrics: counters, gauges and log-linear latency histograms.
+ * Switched off with -Dmetrics.enabled=false; ENABLED is a constant, so the
+ * JIT drops the guarded recording code entirely when off.
+ *
+ * Histograms bucket values HDR-style: exact below 16, then 16 linear
+ * sub-buckets per power of two (percentiles within ~6%). Time histograms
+ * record nanoseconds and export seconds.
+ *
+ * dump() writes the Prometheus text format (histograms as summaries).
+ */
+class Metrics {
+    static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("metrics.enabled", "true"));
+    static final String DUMP_FILE = System.getProperty("metrics.file", "metrics.prom");
+
+    private static final Map<String, Metric> registry = new LinkedHashMap<>();
+
+    abstract static class Metric {
+        final String name, help;
+
+        Metric(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+    }
+
+    static class Counter extends Metric {
+        private final LongAdder value = new LongAdder();
+
+        Counter(String name, String help) {
+            super(name, help);
+        }
+
+        void inc() {
+            if(ENABLED) value.increment();
+        }
+
+        void add(long n) {
+            if(ENABLED) value.add(n);
+        }
+
+        long get() {
+            return value.sum();
+        }
+    }
+
+    static class Gauge extends Metric {
+        private final DoubleSupplier supplier;
+        private volatile double value;
+
+        Gauge(String name, String help, DoubleSupplier supplier) {
+            super(name, help);
+            this.supplier = supplier;
+        }
+
+        void set(double v) {
+            if(ENABLED) value = v;
+        }
+
+        double get() {
+            return supplier != null ? supplier.getAsDouble() : value;
+        }
+    }
+
+    static class Histogram extends Metric {
+        static final int SUB = 16;
+        static final int BUCKETS = SUB + (63 - 4) * SUB;
+
+        final double scale;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private volatile long max;
+
+        Histogram(String name, String help, double scale) {
+            super(name, help);
+            this.scale = scale;
+        }
+
+        void record(long v) {
+            record(v, 1);
+        }
+
+        /**
+         * Records v n times, e.g. a per-item estimate taken once for a batch.
+         */
+        void record(long v, long n) {
+            if(!ENABLED || n <= 0) return;
+            if(v < 0) v = 0;
+            counts.addAndGet(bucket(v), n);
+            count.add(n);
+            sum.add(v * n);
+            raiseMax(v);
+        }
+
+        private void raiseMax(long v) {
+            if(v > max) {
+                synchronized(this) {
+                    if(v > max) max = v;
+                }
+            }
+        }
+
+        Buffer buffer() {
+            return new Buffer();
+        }
+
+        /**
+         * Single-thread staging for a hot loop: record() is plain array
+         * arithmetic, and flush() merges into the histogram with one atomic
+         * add per bucket used instead of several per value.
+         */
+        final class Buffer {
+            private final long[] buckets = new long[BUCKETS];
+            private long n, total, top;
+
+            void record(long v) {
+                if(v < 0) v = 0;
+                buckets[bucket(v)]++;
+                n++;
+                total += v;
+                if(v > top) top = v;
+            }
+
+            void flush() {
+                if(!ENABLED || n == 0) return;
+                for(int i = 0; i < BUCKETS; i++) {
+                    if(buckets[i] != 0) counts.addAndGet(i, buckets[i]);
+                }
+                count.add(n);
+                sum.add(total);
+                raiseMax(top);
+                Arrays.fill(buckets, 0);
+                n = total = top = 0;
+            }
+        }
+
+        /**
+         * Records the time since startNanos, as returned by Metrics.start().
+         */
+        void recordSince(long startNanos) {
+            if(ENABLED) record(System.nanoTime() - startNanos);
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        double sum() {
+            return sum.sum() * scale;
+        }
+
+        double max() {
+            return max * scale;
+        }
+
+        /**
+         * Upper bound of the bucket holding quantile q (0..1), capped at the max seen.
+         */
+        double quantile(double q) {
+            long total = 0;
+            long[] snapshot = new long[BUCKETS];
+            for(int i = 0; i < BUCKETS; i++) total += snapshot[i] = counts.get(i);
+            if(total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(q * total));
+            long seen = 0;
+            for(int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if(seen >= rank) return Math.min(upperBound(i), max) * scale;
+            }
+            return max * scale;
+        }
+
+        static int bucket(long v) {
+            if(v < SUB) return (int) v;
+            int k = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) (v >>> (k - 4)) & (SUB - 1);
+            return SUB + (k - 4) * SUB + sub;
+        }
+
+        static long upperBound(int index) {
+            if(index < SUB) return index;
+            int k = (index - SUB) / SUB + 4, sub = (index - SUB) % SUB;
+            long low = (long) (SUB + sub) << (k - 4);
+            return low + (1L << (k - 4)) - 1;
+        }
+    }
+
+    // ---------- registry ----------
+
+    static synchronized Counter counter(String name, String help) {
+        return (Counter) registry.computeIfAbsent(name, n -> new Counter(n, help));
+    }
+
+    static synchronized Gauge gauge(String name, String help) {
+        return (Gauge) registry.computeIfAbsent(name, n -> new Gauge(n, help, null));
+    }
+
+    static synchronized Gauge gauge(String name, String help, DoubleSupplier supplier) {
+        return (Gauge) registry.computeIfAbsent(name, n -> new Gauge(n, help, supplier));
+    }
+
+    static synchronized Histogram timer(String name, String help) {
+        return (Histogram) registry.computeIfAbsent(name, n -> new Histogram(n, help, 1e-9));
+    }
+
+    static synchronized Histogram histogram(String name, String help) {
+        return (Histogram) registry.computeIfAbsent(name, n -> new Histogram(n, help, 1));
+    }
+
+    /**
+     * Start timestamp for Histogram.recordSince; 0 when metrics are off.
+     */
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    private static synchronized List<Metric> all() {
+        return new ArrayList<>(registry.values());
+    }
+
+    // ---------- output ----------
+
+    static void print() {
+        if(!ENABLED) {
+            System.out.println("ℹ Metrics are disabled (-Dmetrics.enabled=false)");
+            return;
+        }
+        System.out.println("\n" + "=".repeat(96));
+        System.out.println("METRICS");
+        System.out.println("=".repeat(96));
+        System.out.printf("%-40s | %-9s | %s%n", "Name", "Type", "Value");
+        System.out.println("-".repeat(96));
+        for(Metric m : all()) {
+            if(m instanceof Counter c) {
+                System.out.printf("%-40s | %-9s | %d%n", m.name, "counter", c.get());
+            } else if(m instanceof Gauge g) {
+                System.out.printf("%-40s | %-9s | %.2f%n", m.name, "gauge", g.get());
+            } else if(m instanceof Histogram h) {
+                boolean time = h.scale != 1;
+                String unit = time ? " ms" : "";
+                double f = time ? 1000 : 1;
+                System.out.printf("%-40s | %-9s | n=%d p50=%.4f%s p99=%.4f%s max=%.4f%s%n",
+                    m.name, time ? "timer" : "histogram", h.count(),
+                    h.quantile(0.5) * f, unit, h.quantile(0.99) * f, unit, h.max() * f, unit);
+            }
+        }
+        System.out.println("=".repeat(96));
+    }
+
+    /**
+     * Writes every metric in Prometheus text exposition format to DUMP_FILE.
+     */
+    static boolean dump() {
+        if(!ENABLED) return false;
+        Path target = Paths.get(DUMP_FILE);
+        Path tmp = Paths.get(DUMP_FILE + ".tmp");
+        try {
+            try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                out.write(prometheusText());
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch(IOException e) {
+            System.out.println("⚠ Could not write " + DUMP_FILE + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    static String prometheusText() {
+        StringBuilder sb = new StringBuilder(4096);
+        for(Metric m : all()) {
+            sb.append("# HELP ").append(m.name).append(' ').append(m.help).append('\n');
+            if(m instanceof Counter c) {
+                sb.append("# TYPE ").append(m.name).append(" counter\n");
+                sb.append(m.name).append(' ').append(c.get()).append('\n');
+            } else if(m instanceof Gauge g) {
+                sb.append("# TYPE ").append(m.name).append(" gauge\n");
+                sb.append(m.name).append(' ').append(g.get()).append('\n');
+            } else if(m instanceof Histogram h) {
+                sb.append("# TYPE ").append(m.name).append(" summary\n");
+                for(double q : new double[] {0.5, 0.9, 0.99, 0.999}) {
+                    sb.append(m.name).append("{quantile=\"").append(q).append("\"} ")
+                      .append(h.quantile(q)).append('\n');
+                }
+                sb.append(m.name).append("_sum ").append(h.sum()).append('\n');
+                sb.append(m.name).append("_count ").append(h.count()).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+}
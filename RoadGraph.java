@@ -0,0 +1,238 @@
+import java.util.*;
+
+// ==================== ROAD NETWORK ====================
+
+/**
+ * Undirected city graph built from road segments (roads.csv). Cities are
+ * interned to int IDs (case-insensitive) and the adjacency is packed into
+ * compressed arrays on first query. Shortest distances come from Dijkstra
+ * with an early exit once the requested targets are settled; results are
+ * kept in an LRU cache of city pairs (-Droads.cacheSize, default 100000).
+ *
+ * Unknown cities and unreachable pairs report NaN.
+ */
+class RoadGraph {
+    static int cacheSize = Integer.getInteger("roads.cacheSize", 100_000);
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    // Segments as loaded; packed into offsets/adjacent/length by build()
+    private int[] edgeFrom = new int[16], edgeTo = new int[16];
+    private double[] edgeLength = new double[16];
+    private int edgeCount;
+    private boolean built;
+
+    private int[] offsets = new int[1];
+    private int[] adjacent = new int[0];
+    private double[] length = new double[0];
+
+    // Dijkstra scratch; a node's dist is valid only when mark[node] == epoch
+    private double[] dist = new double[0];
+    private int[] mark = new int[0];
+    private boolean[] settled = new boolean[0];
+    private boolean[] isTarget = new boolean[0];
+    private int epoch;
+    private final AssignmentSolver.MinHeap heap = new AssignmentSolver.MinHeap(64);
+
+    private final LinkedHashMap<Long, Double> cache = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Double> eldest) {
+            return size() > cacheSize;
+        }
+    };
+    private long hits, misses;
+
+    synchronized void addRoad(String from, String to, double km) {
+        int a = intern(from), b = intern(to);
+        if(edgeCount == edgeFrom.length) {
+            edgeFrom = Arrays.copyOf(edgeFrom, edgeCount * 2);
+            edgeTo = Arrays.copyOf(edgeTo, edgeCount * 2);
+            edgeLength = Arrays.copyOf(edgeLength, edgeCount * 2);
+        }
+        edgeFrom[edgeCount] = a;
+        edgeTo[edgeCount] = b;
+        edgeLength[edgeCount] = km;
+        edgeCount++;
+        built = false;
+        cache.clear();
+    }
+
+    synchronized int cityCount() {
+        return names.size();
+    }
+
+    synchronized int roadCount() {
+        return edgeCount;
+    }
+
+    synchronized boolean knows(String city) {
+        return ids.containsKey(key(city));
+    }
+
+    synchronized long cacheHits() {
+        return hits;
+    }
+
+    synchronized long cacheMisses() {
+        return misses;
+    }
+
+    /**
+     * Shortest road distance between two cities, NaN if either is unknown
+     * or they are not connected.
+     */
+    synchronized double distance(String from, String to) {
+        Integer a = ids.get(key(from)), b = ids.get(key(to));
+        if(a == null || b == null) return Double.NaN;
+        if(a.intValue() == b.intValue()) return 0;
+
+        Double cached = cache.get(pairKey(a, b));
+        if(cached != null) {
+            hits++;
+            return cached;
+        }
+        misses++;
+        return distancesFrom(a, new int[] {b})[0];
+    }
+
+    /**
+     * Distances from one city to each target, sharing a single search.
+     * Entries are NaN for unknown or unreachable targets.
+     */
+    synchronized double[] distances(String from, String[] targets) {
+        double[] out = new double[targets.length];
+        Integer a = ids.get(key(from));
+        if(a == null) {
+            Arrays.fill(out, Double.NaN);
+            return out;
+        }
+
+        int[] pending = new int[targets.length];
+        int[] slot = new int[targets.length];
+        int np = 0;
+        for(int i = 0; i < targets.length; i++) {
+            Integer b = ids.get(key(targets[i]));
+            if(b == null) {
+                out[i] = Double.NaN;
+            } else if(b.intValue() == a.intValue()) {
+                out[i] = 0;
+            } else {
+                Double cached = cache.get(pairKey(a, b));
+                if(cached != null) {
+                    hits++;
+                    out[i] = cached;
+                } else {
+                    misses++;
+                    pending[np] = b;
+                    slot[np++] = i;
+                }
+            }
+        }
+        if(np > 0) {
+            double[] found = distancesFrom(a, Arrays.copyOf(pending, np));
+            for(int k = 0; k < np; k++) out[slot[k]] = found[k];
+        }
+        return out;
+    }
+
+    // Dijkstra from source until every target is settled; caches each result.
+    private double[] distancesFrom(int source, int[] targets) {
+        if(!built) build();
+        if(++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(mark, 0);
+            epoch = 1;
+        }
+
+        int remaining = 0;
+        for(int t : targets) {
+            if(!isTarget[t]) {
+                isTarget[t] = true;
+                remaining++;
+            }
+        }
+
+        heap.clear();
+        visit(source, 0);
+        heap.push(0, source);
+        while(!heap.isEmpty() && remaining > 0) {
+            double d = heap.topKey();
+            int u = heap.pop();
+            if(settled[u] || d > dist[u]) continue;
+            settled[u] = true;
+            if(isTarget[u]) remaining--;
+            for(int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = adjacent[e];
+                double nd = d + length[e];
+                if(mark[v] != epoch) {
+                    visit(v, nd);
+                    heap.push(nd, v);
+                } else if(!settled[v] && nd < dist[v]) {
+                    dist[v] = nd;
+                    heap.push(nd, v);
+                }
+            }
+        }
+
+        double[] out = new double[targets.length];
+        for(int i = 0; i < targets.length; i++) {
+            int t = targets[i];
+            isTarget[t] = false;
+            boolean reached = mark[t] == epoch && settled[t];
+            cache.put(pairKey(source, t), reached ? dist[t] : Double.NaN);
+            out[i] = reached ? dist[t] : Double.NaN;
+        }
+        return out;
+    }
+
+    private void visit(int node, double d) {
+        mark[node] = epoch;
+        dist[node] = d;
+        settled[node] = false;
+    }
+
+    private void build() {
+        int n = names.size();
+        offsets = new int[n + 1];
+        for(int e = 0; e < edgeCount; e++) {
+            offsets[edgeFrom[e] + 1]++;
+            offsets[edgeTo[e] + 1]++;
+        }
+        for(int i = 0; i < n; i++) offsets[i + 1] += offsets[i];
+        adjacent = new int[2 * edgeCount];
+        length = new double[2 * edgeCount];
+        int[] fill = Arrays.copyOf(offsets, n);
+        for(int e = 0; e < edgeCount; e++) {
+            int a = edgeFrom[e], b = edgeTo[e];
+            adjacent[fill[a]] = b;
+            length[fill[a]++] = edgeLength[e];
+            adjacent[fill[b]] = a;
+            length[fill[b]++] = edgeLength[e];
+        }
+        dist = new double[n];
+        mark = new int[n];
+        settled = new boolean[n];
+        isTarget = new boolean[n];
+        epoch = 0;
+        built = true;
+    }
+
+    private int intern(String city) {
+        String k = key(city);
+        Integer id = ids.get(k);
+        if(id == null) {
+            id = names.size();
+            ids.put(k, id);
+            names.add(city);
+        }
+        return id;
+    }
+
+    private static String key(String city) {
+        return city.trim().toLowerCase();
+    }
+
+    private static long pairKey(int a, int b) {
+        return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+}
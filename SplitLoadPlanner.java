@@ -0,0 +1,268 @@
+import java.util.*;
+
+// ==================== SPLIT-LOAD PLANNING ====================
+
+/**
+ * Covers a cargo too large for any single vehicle with the cheapest set of
+ * vehicles, each used once. Every vehicle in the set drives the whole route,
+ * so the cost is the sum of calculateCost over the set, and only the total
+ * capacity has to reach the cargo.
+ *
+ * An optimal set never holds more than ceil(cargo / w) vehicles of one
+ * capacity w (one of them could be dropped), so only that many of the
+ * cheapest per capacity are candidates. When at most EXACT_CANDIDATES
+ * remain, a branch-and-bound search returns the optimum.
+ *
+ * Otherwise a min-cost covering knapsack over capacity buckets plans it:
+ * dp[c] is the cheapest cost per km of a set covering at least c buckets,
+ * capped at the cargo. The bucket size is 1 kg up to BUCKETS buckets and
+ * grows beyond that. The DP runs twice: with capacities rounded down
+ * (always fits) and rounded up (a lower bound, topped up if a few kg
+ * short), and the cheaper plan is kept. For whole-kg capacities and cargo
+ * up to BUCKETS kg both are exact. Above that it is an approximation: the
+ * top-up can cost more than the optimum saves (a few percent in random
+ * tests). The same per-capacity cut, on bucket capacities, bounds the DP's
+ * candidates by about BUCKETS * ln(BUCKETS) whatever the fleet size.
+ */
+class SplitLoadPlanner {
+    static final int BUCKETS = 2048;
+    static final int EXACT_CANDIDATES = 24;
+
+    static class Plan {
+        final List<Vehicle> vehicles;
+        final double[] cargo;       // load per vehicle, largest vehicle first
+        final double[] cost;        // calculateCost per vehicle
+        final double capacity, totalCost;
+
+        Plan(List<Vehicle> vehicles, double[] cargo, double[] cost, double capacity, double totalCost) {
+            this.vehicles = vehicles;
+            this.cargo = cargo;
+            this.cost = cost;
+            this.capacity = capacity;
+            this.totalCost = totalCost;
+        }
+
+        int size() {
+            return vehicles.size();
+        }
+    }
+
+    /**
+     * Cheapest set of vehicles whose capacities add up to the route's cargo,
+     * or null if the whole fleet can't carry it.
+     */
+    static Plan plan(Route r, Vehicle[] fleet) {
+        double cargo = r.cargoAmount;
+        double total = 0;
+        for(Vehicle v : fleet) total += v.capacity;
+        if(fleet.length == 0 || total < cargo) return null;
+
+        List<Vehicle> chosen = exact(fleet, cargo);
+        if(chosen == null) {
+            double bucket = Math.max(1.0, cargo / BUCKETS);
+            int target = Math.max(1, (int) Math.ceil(cargo / bucket));
+
+            // Rounded down, every DP answer fits but a tight fit can be missed;
+            // rounded up, the DP answer is at least as cheap as the optimum but
+            // may fall a few kg short and gets topped up. The cheaper one wins.
+            List<Vehicle> safe = cover(fleet, bucket, target, false);
+            List<Vehicle> tight = topUp(cover(fleet, bucket, target, true), fleet, cargo);
+            chosen = safe == null || perKm(tight) < perKm(safe) ? tight : safe;
+            dropSpare(chosen, cargo);
+        }
+
+        // ---------- loads: fill the largest vehicles first ----------
+        chosen.sort(Comparator.comparingDouble((Vehicle v) -> v.capacity).reversed());
+        double[] load = new double[chosen.size()];
+        double[] cost = new double[chosen.size()];
+        double left = cargo, capacity = 0, totalCost = 0;
+        for(int i = 0; i < chosen.size(); i++) {
+            Vehicle v = chosen.get(i);
+            load[i] = Math.min(v.capacity, left);
+            left -= load[i];
+            cost[i] = TransportLogisticSystem2.calculateCost(r, v);
+            capacity += v.capacity;
+            totalCost += cost[i];
+        }
+        return new Plan(chosen, load, cost, capacity, totalCost);
+    }
+
+    private static double costPerKm(Vehicle v) {
+        return v.rate / v.mileage;
+    }
+
+    private static double perKm(List<Vehicle> set) {
+        double sum = 0;
+        for(Vehicle v : set) sum += costPerKm(v);
+        return sum;
+    }
+
+    // ---------- exact search ----------
+
+    /**
+     * Cheapest set carrying the cargo, or null if more than EXACT_CANDIDATES
+     * vehicles are left after the per-capacity cut.
+     */
+    private static List<Vehicle> exact(Vehicle[] fleet, double cargo) {
+        Comparator<Vehicle> dearestFirst = Comparator.comparingDouble(SplitLoadPlanner::costPerKm).reversed();
+        Map<Double, PriorityQueue<Vehicle>> byCapacity = new HashMap<>();
+        int candidates = 0;
+        for(Vehicle v : fleet) {
+            if(v.capacity <= 0) continue;
+            int keep = (int) Math.min(Integer.MAX_VALUE, Math.ceil(cargo / v.capacity));
+            PriorityQueue<Vehicle> kept = byCapacity.computeIfAbsent(v.capacity, k -> new PriorityQueue<>(dearestFirst));
+            if(kept.size() < keep) {
+                kept.add(v);
+                if(++candidates > EXACT_CANDIDATES) return null;
+            } else if(dearestFirst.compare(v, kept.peek()) > 0) {
+                kept.poll();
+                kept.add(v);
+            }
+        }
+        Vehicle[] items = new Vehicle[candidates];
+        int n = 0;
+        for(PriorityQueue<Vehicle> kept : byCapacity.values()) for(Vehicle v : kept) items[n++] = v;
+        Arrays.sort(items, Comparator.comparingDouble((Vehicle v) -> v.capacity).reversed());
+        double[] capacityFrom = new double[n + 1];
+        for(int i = n - 1; i >= 0; i--) capacityFrom[i] = capacityFrom[i + 1] + items[i].capacity;
+
+        boolean[] take = new boolean[n], best = new boolean[n];
+        if(search(items, capacityFrom, 0, cargo, 0, 0, take, best, Double.POSITIVE_INFINITY) == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+        List<Vehicle> chosen = new ArrayList<>();
+        for(int i = 0; i < n; i++) if(best[i]) chosen.add(items[i]);
+        return chosen;
+    }
+
+    // Depth-first over the candidates, largest first, taking or skipping each.
+    // A branch stops once it carries the cargo, once it can't beat the best
+    // set found, or once the capacity left can't make up the rest.
+    private static double search(Vehicle[] items, double[] capacityFrom, int i, double cargo, double carried,
+                                 double cost, boolean[] take, boolean[] best, double bestCost) {
+        if(cost >= bestCost) return bestCost;
+        if(carried >= cargo) {
+            System.arraycopy(take, 0, best, 0, take.length);
+            return cost;
+        }
+        if(i == items.length || carried + capacityFrom[i] < cargo) return bestCost;
+        take[i] = true;
+        bestCost = search(items, capacityFrom, i + 1, cargo, carried + items[i].capacity,
+            cost + costPerKm(items[i]), take, best, bestCost);
+        take[i] = false;
+        return search(items, capacityFrom, i + 1, cargo, carried, cost, take, best, bestCost);
+    }
+
+    // ---------- bucket DP ----------
+
+    private static int width(Vehicle v, double bucket, int target, boolean roundUp) {
+        double w = v.capacity / bucket;
+        return (int) Math.min(target, roundUp ? Math.ceil(w) : Math.floor(w));
+    }
+
+    /**
+     * Cheapest set covering target buckets with capacities rounded down or
+     * up, or null if there is none.
+     */
+    private static List<Vehicle> cover(Vehicle[] fleet, double bucket, int target, boolean roundUp) {
+        // ---------- candidates: the cheapest ceil(target / w) per bucket capacity w ----------
+        Comparator<Vehicle> dearestFirst = Comparator.comparingDouble(SplitLoadPlanner::costPerKm).reversed();
+        Map<Integer, PriorityQueue<Vehicle>> byWidth = new HashMap<>();
+        for(Vehicle v : fleet) {
+            int w = width(v, bucket, target, roundUp);
+            if(w <= 0) continue;
+            int keep = (target + w - 1) / w;
+            PriorityQueue<Vehicle> kept = byWidth.computeIfAbsent(w, k -> new PriorityQueue<>(dearestFirst));
+            if(kept.size() < keep) {
+                kept.add(v);
+            } else if(dearestFirst.compare(v, kept.peek()) > 0) {
+                kept.poll();
+                kept.add(v);
+            }
+        }
+        List<Vehicle> items = new ArrayList<>();
+        for(PriorityQueue<Vehicle> kept : byWidth.values()) items.addAll(kept);
+        int n = items.size();
+
+        // ---------- 0/1 covering DP ----------
+        // took[i] marks the states item i last improved; fromTop[i] is the
+        // state it came from when it improved the capped state target
+        double[] dp = new double[target + 1];
+        Arrays.fill(dp, Double.POSITIVE_INFINITY);
+        dp[0] = 0;
+        int words = (target + 64) >>> 6;
+        long[][] took = new long[n][];
+        int[] fromTop = new int[n];
+        int[] width = new int[n];
+        for(int i = 0; i < n; i++) {
+            Vehicle v = items.get(i);
+            int w = width(v, bucket, target, roundUp);
+            double k = costPerKm(v);
+            long[] bits = new long[words];
+            width[i] = w;
+            for(int c = target - 1; c >= 0; c--) {
+                if(dp[c] == Double.POSITIVE_INFINITY) continue;
+                int to = Math.min(target, c + w);
+                double cost = dp[c] + k;
+                if(cost < dp[to]) {
+                    dp[to] = cost;
+                    bits[to >>> 6] |= 1L << to;
+                    if(to == target) fromTop[i] = c;
+                }
+            }
+            took[i] = bits;
+        }
+        if(dp[target] == Double.POSITIVE_INFINITY) return null;
+
+        List<Vehicle> chosen = new ArrayList<>();
+        int c = target;
+        for(int i = n - 1; i >= 0 && c > 0; i--) {
+            if((took[i][c >>> 6] & (1L << c)) == 0) continue;
+            chosen.add(items.get(i));
+            c = c == target ? fromTop[i] : c - width[i];
+        }
+        return chosen;
+    }
+
+    /**
+     * Adds vehicles until the set really carries the cargo: the cheapest one
+     * covering the shortfall, else the largest left. The fleet as a whole
+     * carries the cargo, so this ends.
+     */
+    private static List<Vehicle> topUp(List<Vehicle> chosen, Vehicle[] fleet, double cargo) {
+        List<Vehicle> set = chosen == null ? new ArrayList<>() : chosen;
+        Set<Vehicle> used = Collections.newSetFromMap(new IdentityHashMap<>());
+        used.addAll(set);
+        double shortfall = cargo;
+        for(Vehicle v : set) shortfall -= v.capacity;
+        while(shortfall > 0) {
+            Vehicle cheapest = null, largest = null;
+            for(Vehicle v : fleet) {
+                if(used.contains(v)) continue;
+                if(v.capacity >= shortfall && (cheapest == null || costPerKm(v) < costPerKm(cheapest))) cheapest = v;
+                if(largest == null || v.capacity > largest.capacity) largest = v;
+            }
+            Vehicle add = cheapest != null ? cheapest : largest;
+            set.add(add);
+            used.add(add);
+            shortfall -= add.capacity;
+        }
+        return set;
+    }
+
+    /**
+     * Drops the dearest vehicles the rest can do without.
+     */
+    private static void dropSpare(List<Vehicle> set, double cargo) {
+        double capacity = 0;
+        for(Vehicle v : set) capacity += v.capacity;
+        set.sort(Comparator.comparingDouble(SplitLoadPlanner::costPerKm).reversed());
+        for(Iterator<Vehicle> it = set.iterator(); it.hasNext(); ) {
+            Vehicle v = it.next();
+            if(capacity - v.capacity >= cargo) {
+                capacity -= v.capacity;
+                it.remove();
+            }
+        }
+    }
+}
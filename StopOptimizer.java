@@ -0,0 +1,161 @@
+import java.util.*;
+
+// ==================== STOP ORDER OPTIMIZER ====================
+
+/**
+ * Reorders the stops of a multi-stop delivery to shorten the tour.
+ * Works on an open path over a symmetric distance matrix where index 0 is
+ * the depot (fixed start) and 1..n are the stops; the tour ends at the last
+ * stop. Nearest-neighbour construction, or the given order if that is
+ * already shorter, then 2-opt and Or-opt (segments of 1-3 stops, either
+ * direction) until no move improves or the time budget runs out. Moves
+ * only ever shorten the tour, so the result is never longer than either.
+ */
+class StopOptimizer {
+    static long budgetMillis = Long.getLong("stops.optimizeMillis", 200L);
+
+    private static final double EPS = 1e-9;
+
+    /**
+     * Returns the visiting order of the stops (values 1..n, depot excluded).
+     */
+    static int[] optimize(double[][] dist) {
+        int n = dist.length - 1;
+        int[] tour = nearestNeighbour(dist), given = new int[n + 1];
+        for(int i = 0; i <= n; i++) given[i] = i;
+        // Both include the depot at 0, which adds nothing to the length
+        if(length(dist, given) < length(dist, tour)) tour = given;
+        if(n < 3) return Arrays.copyOfRange(tour, 1, n + 1);
+
+        long deadline = System.nanoTime() + budgetMillis * 1_000_000L;
+        boolean improved = true;
+        while(improved && System.nanoTime() < deadline) {
+            improved = twoOpt(tour, dist, deadline);
+            improved |= orOpt(tour, dist, deadline);
+        }
+        return Arrays.copyOfRange(tour, 1, n + 1);
+    }
+
+    /**
+     * Length of the open path depot -> order[0] -> ... -> order[n-1].
+     */
+    static double length(double[][] dist, int[] order) {
+        double total = 0;
+        int prev = 0;
+        for(int stop : order) {
+            total += dist[prev][stop];
+            prev = stop;
+        }
+        return total;
+    }
+
+    static int[] nearestNeighbour(double[][] dist) {
+        int n = dist.length - 1;
+        int[] tour = new int[n + 1];
+        boolean[] used = new boolean[n + 1];
+        used[0] = true;
+        for(int pos = 1; pos <= n; pos++) {
+            int from = tour[pos - 1], next = -1;
+            for(int c = 1; c <= n; c++) {
+                if(!used[c] && (next == -1 || dist[from][c] < dist[from][next])) next = c;
+            }
+            tour[pos] = next;
+            used[next] = true;
+        }
+        return tour;
+    }
+
+    // Reverse tour[i..j]; the open end means a segment ending at n has no right neighbour.
+    static boolean twoOpt(int[] tour, double[][] dist, long deadline) {
+        int n = tour.length - 1;
+        boolean any = false;
+        for(int i = 1; i < n; i++) {
+            if(System.nanoTime() > deadline) return any;
+            for(int j = i + 1; j <= n; j++) {
+                int a = tour[i - 1], b = tour[i], c = tour[j];
+                double delta = dist[a][c] - dist[a][b];
+                if(j < n) {
+                    int d = tour[j + 1];
+                    delta += dist[b][d] - dist[c][d];
+                }
+                if(delta < -EPS) {
+                    for(int lo = i, hi = j; lo < hi; lo++, hi--) {
+                        int t = tour[lo];
+                        tour[lo] = tour[hi];
+                        tour[hi] = t;
+                    }
+                    any = true;
+                }
+            }
+        }
+        return any;
+    }
+
+    // Move tour[i..i+len-1] between tour[k] and tour[k+1], optionally reversed.
+    static boolean orOpt(int[] tour, double[][] dist, long deadline) {
+        int n = tour.length - 1;
+        boolean any = false;
+        for(int len = 1; len <= 3; len++) {
+            for(int i = 1; i + len - 1 <= n; i++) {
+                if(System.nanoTime() > deadline) return any;
+                int end = i + len - 1;
+                int prev = tour[i - 1], first = tour[i], last = tour[end];
+                double removeGain = dist[prev][first];
+                if(end < n) {
+                    int next = tour[end + 1];
+                    removeGain += dist[last][next] - dist[prev][next];
+                }
+
+                int bestK = -1;
+                boolean bestReversed = false;
+                double bestDelta = -EPS;
+                for(int k = 0; k <= n; k++) {
+                    if(k >= i - 1 && k <= end) continue;
+                    int left = tour[k];
+                    boolean open = k == n;
+                    int right = open ? -1 : tour[k + 1];
+                    double base = open ? 0 : dist[left][right];
+                    double forward = dist[left][first] + (open ? 0 : dist[last][right]) - base;
+                    double backward = dist[left][last] + (open ? 0 : dist[first][right]) - base;
+                    if(forward - removeGain < bestDelta) {
+                        bestDelta = forward - removeGain;
+                        bestK = k;
+                        bestReversed = false;
+                    }
+                    if(len > 1 && backward - removeGain < bestDelta) {
+                        bestDelta = backward - removeGain;
+                        bestK = k;
+                        bestReversed = true;
+                    }
+                }
+                if(bestK >= 0) {
+                    moveSegment(tour, i, end, bestK, bestReversed);
+                    any = true;
+                }
+            }
+        }
+        return any;
+    }
+
+    private static void moveSegment(int[] tour, int i, int end, int k, boolean reversed) {
+        int len = end - i + 1;
+        int[] segment = Arrays.copyOfRange(tour, i, end + 1);
+        if(reversed) {
+            for(int lo = 0, hi = len - 1; lo < hi; lo++, hi--) {
+                int t = segment[lo];
+                segment[lo] = segment[hi];
+                segment[hi] = t;
+            }
+        }
+        int[] rest = new int[tour.length - len];
+        int at = 0, insertAt = -1;
+        for(int p = 0; p < tour.length; p++) {
+            if(p >= i && p <= end) continue;
+            rest[at++] = tour[p];
+            if(p == k) insertAt = at;
+        }
+        System.arraycopy(rest, 0, tour, 0, insertAt);
+        System.arraycopy(segment, 0, tour, insertAt, len);
+        System.arraycopy(rest, insertAt, tour, insertAt + len, rest.length - insertAt);
+    }
+}
@@ -0,0 +1,51 @@
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+
+// ==================== TIMESTAMPS ====================
+
+/**
+ * Records keep their time as epoch millis and only become text when shown
+ * or saved, in the local "yyyy-MM-dd HH:mm:ss" form the CSV files use.
+ * The formatter is shared and the last formatted second is cached, so a
+ * batch confirming thousands of allocations a second formats once.
+ */
+class Timestamps {
+    static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private record Second(long epochSecond, String text) {}
+
+    private static volatile Second last = new Second(Long.MIN_VALUE, "");
+
+    static long now() {
+        return System.currentTimeMillis();
+    }
+
+    static String format(long epochMillis) {
+        long second = Math.floorDiv(epochMillis, 1000);
+        Second cached = last;
+        if(cached.epochSecond() == second) return cached.text();
+        String text = FORMAT.format(LocalDateTime.ofInstant(Instant.ofEpochSecond(second), ZONE));
+        last = new Second(second, text);
+        return text;
+    }
+
+    /**
+     * Local calendar day of the timestamp, as LocalDate.toEpochDay().
+     */
+    static long epochDay(long epochMillis) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(epochMillis), ZONE).toEpochDay();
+    }
+
+    static String formatDay(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).toString();
+    }
+
+    /**
+     * Parses the saved form back to epoch millis.
+     * Throws DateTimeException on anything else.
+     */
+    static long parse(String text) {
+        return LocalDateTime.parse(text, FORMAT).atZone(ZONE).toInstant().toEpochMilli();
+    }
+}
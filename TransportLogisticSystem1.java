@@ -1,27 +1,114 @@
 import java.util.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.DateTimeException;
+import java.time.LocalDate;
 import java.io.*;
 import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import com.sun.net.httpserver.HttpServer;
 
-public class TransportLogisticSystem2 {
+class TransportLogisticSystem2 {
     static List<Route> routes = new ArrayList<>();
     static List<Vehicle> vehicles = new ArrayList<>();
     static List<Allocation> allocations = new ArrayList<>();
     static List<MultiStopDelivery> multiStopDeliveries = new ArrayList<>();
     
+    // Revenue/utilization totals, updated by addAllocationRecord/addDeliveryRecord
+    static final Aggregates aggregates = new Aggregates();
+    
+    // Per-vehicle booking calendar, also filled by addAllocationRecord/addDeliveryRecord
+    static final Bookings bookings = new Bookings();
+    
+    // Secondary indexes for history search, also filled by addAllocationRecord/addDeliveryRecord
+    static final HistoryIndex history = new HistoryIndex();
+    
+    // ID indexes, kept in sync with routes/vehicles by addRouteRecord/addVehicleRecord.
+    // Concurrent so HTTP handlers can look up by ID without taking dataLock.
+    static Map<String, Route> routesById = new ConcurrentHashMap<>();
+    static Map<String, Vehicle> vehiclesById = new ConcurrentHashMap<>();
+    
+    // Copy-on-write view of the fleet for lock-free readers, rebuilt on the
+    // first read after a vehicle is added
+    private static volatile Vehicle[] fleetView = new Vehicle[0];
+    private static volatile boolean fleetViewStale;
+    
+    // Cheapest vehicle per route; built by the first planning pass, then kept
+    // current by addRouteRecord/addVehicleRecord
+    static BestMatchTable matchTable;
+    
     static final String VEHICLES_CSV = "Vehicle.csv";
     static final String ROUTES_CSV = "outes.csv";
     static final String ALLOCATIONS_CSV = "allocations.csv";
     static final String MULTI_DELIVERY_CSV = "multi_stop_deliveries.csv";
+    static final String VEHICLES_HEADER = "ID,Type,Capacity,Mileage,Rate,Latitude,Longitude";
+    static final String ROUTES_HEADER = "ID,Distance,Cargo,Source,Destination,Departure";
+    static final String ALLOCATIONS_HEADER = "ID,RouteID,VehicleID,Cost,Timestamp,Cargo,LinkGroup";
+    static final String DELIVERIES_HEADER = "DeliveryID,VehicleID,Stops,TotalDistance,TotalCargo,Cost,Timestamp,Departure,Routes";
+    static final String JOURNAL_FILE = "journal.log";
+    static final String ROADS_CSV = "roads.csv";
+    static final String CITIES_CSV = "cities.csv";
+    static final String SNAPSHOT_BIN = "snapshot.bin";
+    static final boolean BINARY_SNAPSHOT = Boolean.parseBoolean(System.getProperty("snapshot.binary", "true"));
+    static final long COMPACT_SECONDS = Long.getLong("journal.compactSeconds", 300L);
+    
+    // Confirmed work is journaled as it happens; the CSV files are the compacted snapshot.
+    // dataLock guards the lists against the background compactor.
+    static Journal journal;
+    static final Object dataLock = new Object();
+    
+    // Road segments between cities; fills in distances the operator would otherwise look up
+    static RoadGraph roadGraph = new RoadGraph();
+    
+    // City coordinates (lowercase name -> {lat, lon}) for dispatch; read-only after startup
+    static final Map<String, double[]> cityLocations = new HashMap<>();
+    private static volatile Dispatcher dispatcher;
+    
+    static final Metrics.Histogram LOAD_SECONDS = Metrics.timer("tls_load_seconds", 
+        "Time to load the snapshot at startup");
+    static final Metrics.Counter LOAD_ROWS = Metrics.counter("tls_load_rows_total", 
+        "Rows loaded from the snapshot");
+    static final Metrics.Histogram SAVE_SECONDS = Metrics.timer("tls_save_seconds", 
+        "Time to write the CSV and binary snapshot");
+    static final Metrics.Counter SAVE_BYTES = Metrics.counter("tls_save_bytes_total", 
+        "Bytes written by snapshot saves");
+    static final Metrics.Gauge LAST_SAVE_BYTES = Metrics.gauge("tls_save_bytes_last", 
+        "Bytes written by the last snapshot save");
+    static {
+        Metrics.gauge("tls_vehicles", "Vehicles in the fleet", () -> vehicles.size());
+        Metrics.gauge("tls_routes", "Routes loaded or added", () -> routes.size());
+        Metrics.gauge("tls_allocations", "Confirmed allocations", () -> allocations.size());
+        Metrics.gauge("tls_multi_stop_deliveries", "Confirmed multi-stop deliveries", 
+            () -> multiStopDeliveries.size());
+        Metrics.gauge("tls_bookings", "Vehicle bookings in the availability calendar", () -> bookings.size());
+    }
     
     public static void main(String[] args) {
+        if(args.length > 0 && args[0].equals("--batch")) {
+            runBatch(args);
+            return;
+        }
+        if(args.length > 0 && args[0].startsWith("--generate=")) {
+            WorkloadGenerator.run(args);
+            return;
+        }
+        if(args.length > 0 && args[0].startsWith("--serve")) {
+            runServer(args[0]);
+            return;
+        }
+        
         Scanner sc = new Scanner(System.in);
         System.out.println("╔════════════════════════════════════════╗");
         System.out.println("║      Transport Logistics System        ║");
         System.out.println("╚════════════════════════════════════════╝\n");
         
         loadDataFromCSV();
+        openJournal();
+        loadRoadGraph();
+        loadCityLocations();
         
         boolean running = true;
         while(running) {
@@ -41,16 +128,23 @@ public class TransportLogisticSystem2 {
                     case 7 -> viewMultiStopDeliveries();
                     case 8 -> {
                         saveAllDataToCSV();
+                        Metrics.dump();
                         System.out.println("✅ Data saved to CSV files. System terminated. Goodbye!");
                         running = false;
                     }
-                    default -> System.out.println("❌ Invalid choice (1-8). Please try again.");
+                    case 9 -> batchAssignment(sc);
+                    case 10 -> showMetrics();
+                    case 11 -> viewRevenueReport();
+                    case 12 -> consolidateRoutes(sc);
+                    case 13 -> searchHistory(sc);
+                    default -> System.out.println("❌ Invalid choice (1-13). Please try again.");
                 }
             } else {
-                System.out.println("❌ Invalid input. Please enter a number (1-8).");
+                System.out.println("❌ Invalid input. Please enter a number (1-13).");
                 sc.nextLine();
             }
         }
+        closeJournal();
         sc.close();
     }
     
@@ -60,7 +154,10 @@ public class TransportLogisticSystem2 {
         System.out.println("3. Add Vehicle               4. Calculate Best Matches");
         System.out.println("5. Multi-Stop Delivery       6. View Allocations");
         System.out.println("7. View Multi-Stop History   8. Exit & Save");
-        System.out.println("Choice (1-8): ");
+        System.out.println("9. Batch Assignment (Optimal) 10. Metrics");
+        System.out.println("11. Revenue Report          12. Consolidate Routes");
+        System.out.println("13. Search History");
+        System.out.println("Choice (1-13): ");
         System.out.println("=".repeat(60));
     }
     
@@ -84,16 +181,17 @@ public class TransportLogisticSystem2 {
         System.out.println("\n" + "=".repeat(80));
         System.out.println("VEHICLES");
         System.out.println("=".repeat(80));
-        System.out.printf("%-6s | %-10s | %-12s | %-10s | %-12s%n", 
-            "ID", "Type", "Capacity (kg)", "Mileage", "Rate (₹/L)");
+        System.out.printf("%-6s | %-10s | %-12s | %-10s | %-12s | %-20s%n", 
+            "ID", "Type", "Capacity (kg)", "Mileage", "Rate (₹/L)", "Location");
         System.out.println("-".repeat(80));
         
         if(vehicles.isEmpty()) {
             System.out.println("No vehicles available.");
         } else {
             for(Vehicle v : vehicles) {
-                System.out.printf("%-6s | %-10s | %-12.1f | %-10.2f | %-12.2f%n", 
-                    v.id, v.getType(), v.capacity, v.mileage, v.rate);
+                System.out.printf("%-6s | %-10s | %-12.1f | %-10.2f | %-12.2f | %-20s%n", 
+                    v.id, v.getType(), v.capacity, v.mileage, v.rate, 
+                    v.hasLocation() ? String.format("%.4f, %.4f", v.latitude, v.longitude) : "-");
             }
         }
     }
@@ -104,7 +202,7 @@ public class TransportLogisticSystem2 {
         System.out.print("Route ID: ");
         String id = sc.nextLine().trim();
         
-        if(routes.stream().anyMatch(r -> r.id.equals(id))) {
+        if(routesById.containsKey(id)) {
             System.out.println("❌ Route ID already exists!");
             return;
         }
@@ -115,17 +213,14 @@ public class TransportLogisticSystem2 {
         System.out.print("Destination City: ");
         String dest = sc.nextLine().trim();
         
-        System.out.print("Distance (km): ");
-        if(!sc.hasNextDouble()) {
+        double dist = promptDistance(sc, "Distance (km)", src, dest);
+        if(Double.isNaN(dist)) {
             System.out.println("❌ Invalid distance.");
-            sc.nextLine();
             return;
         }
-        double dist = sc.nextDouble();
         
         if(dist <= 0) {
             System.out.println("❌ Distance must be positive!");
-            sc.nextLine();
             return;
         }
         
@@ -143,7 +238,22 @@ public class TransportLogisticSystem2 {
             return;
         }
         
-        routes.add(new Route(id, dist, cargo, src, dest));
+        Route r = new Route(id, dist, cargo, src, dest);
+        System.out.print("Departure (yyyy-MM-dd HH:mm:ss) [Enter = when allocated]: ");
+        String when = sc.nextLine().trim();
+        if(!when.isEmpty()) {
+            try {
+                r.departure = Timestamps.parse(when);
+            } catch(DateTimeException e) {
+                System.out.println("❌ Invalid departure time.");
+                return;
+            }
+        }
+        
+        if(!confirmRoute(r)) {
+            System.out.println("❌ Route ID already exists!");
+            return;
+        }
         System.out.println("✅ Route added successfully!");
     }
     
@@ -161,7 +271,7 @@ public class TransportLogisticSystem2 {
         System.out.print("Vehicle ID: ");
         String id = sc.nextLine().trim();
         
-        if(vehicles.stream().anyMatch(v -> v.id.equals(id))) {
+        if(vehiclesById.containsKey(id)) {
             System.out.println("❌ Vehicle ID already exists!");
             return;
         }
@@ -208,14 +318,184 @@ public class TransportLogisticSystem2 {
             return;
         }
         
-        if(type.equalsIgnoreCase("Truck"))
-            vehicles.add(new Truck(id, cap, mile, rate));
-        else
-            vehicles.add(new Van(id, cap, mile, rate));
-            
+        Vehicle v = type.equalsIgnoreCase("Truck") ? new Truck(id, cap, mile, rate) : new Van(id, cap, mile, rate);
+        
+        System.out.print("Location (city or lat,lon) [Enter = unknown]: ");
+        String where = sc.nextLine().trim();
+        if(!where.isEmpty()) {
+            double[] at = parseLocation(where);
+            if(at == null) {
+                System.out.println("❌ Unknown city or invalid coordinates!");
+                return;
+            }
+            v.locate(at[0], at[1]);
+        }
+        
+        if(!confirmVehicle(v)) {
+            System.out.println("❌ Vehicle ID already exists!");
+            return;
+        }
         System.out.println("✅ Vehicle added successfully!");
     }
     
+    /**
+     * Appends a route and indexes it by ID. The first route seen for an ID
+     * stays the one lookups resolve to.
+     */
+    static void addRouteRecord(Route r) {
+        synchronized(dataLock) {
+            routes.add(r);
+            routesById.putIfAbsent(r.id, r);
+            if(matchTable != null) matchTable.addRoute(r);
+        }
+    }
+    
+    static void addVehicleRecord(Vehicle v) {
+        synchronized(dataLock) {
+            vehicles.add(v);
+            vehiclesById.putIfAbsent(v.id, v);
+            if(matchTable != null) matchTable.addVehicle(v);
+            fleetViewStale = true;
+        }
+    }
+    
+    static void addAllocationRecord(Allocation a) {
+        synchronized(dataLock) {
+            allocations.add(a);
+            aggregates.record(a);
+            bookings.record(a);
+            history.add(a);
+        }
+    }
+    
+    static void addDeliveryRecord(MultiStopDelivery d) {
+        synchronized(dataLock) {
+            multiStopDeliveries.add(d);
+            aggregates.record(d);
+            bookings.record(d);
+            history.add(d);
+        }
+    }
+    
+    static Vehicle[] fleetSnapshot() {
+        if(fleetViewStale) {
+            synchronized(dataLock) {
+                if(fleetViewStale) {
+                    fleetView = vehicles.toArray(new Vehicle[0]);
+                    fleetViewStale = false;
+                }
+            }
+        }
+        return fleetView;
+    }
+    
+    /**
+     * Vehicles with no booking overlapping the window.
+     */
+    static Predicate<Vehicle> freeDuring(long[] window) {
+        return v -> bookings.isFree(v, window[0], window[1]);
+    }
+    
+    /**
+     * Cheapest vehicle able to carry the route that is free for its window
+     * (see Bookings.window), or null.
+     */
+    static Vehicle bestAvailable(Route r) {
+        long[] window = Bookings.window(r);
+        Vehicle best = matchTable().bestFor(r);
+        if(best == null || bookings.isFree(best, window[0], window[1])) return best;
+        return matchTable().bestFor(r, freeDuring(window));
+    }
+    
+    static Vehicle[] freeFleet(long[] window) {
+        Predicate<Vehicle> free = freeDuring(window);
+        return Arrays.stream(fleetSnapshot()).filter(free).toArray(Vehicle[]::new);
+    }
+    
+    /**
+     * Dispatcher over the current fleet, rebuilt when the fleet changes.
+     */
+    static Dispatcher dispatcher() {
+        Vehicle[] fleet = fleetSnapshot();
+        Dispatcher d = dispatcher;
+        if(d == null || d.fleet != fleet) {
+            d = new Dispatcher(fleet);
+            dispatcher = d;
+        }
+        return d;
+    }
+    
+    /**
+     * The best-match table, built by a full planning pass on first use.
+     */
+    static BestMatchTable matchTable() {
+        synchronized(dataLock) {
+            if(matchTable == null) matchTable = new BestMatchTable(vehicles, routes);
+            return matchTable;
+        }
+    }
+    
+    // Confirmed changes: update memory first, then journal, so a compaction
+    // in between can only cause a duplicate that replay skips, never a loss.
+    
+    // The ID check and the add happen under one lock so concurrent callers
+    // can't both claim an ID; false means it was already taken.
+    
+    static boolean confirmRoute(Route r) {
+        synchronized(dataLock) {
+            if(routesById.containsKey(r.id)) return false;
+            addRouteRecord(r);
+        }
+        if(journal != null) journal.appendRoute(r);
+        return true;
+    }
+    
+    static boolean confirmVehicle(Vehicle v) {
+        synchronized(dataLock) {
+            if(vehiclesById.containsKey(v.id)) return false;
+            addVehicleRecord(v);
+        }
+        if(journal != null) journal.appendVehicle(v);
+        return true;
+    }
+    
+    static void confirmAllocation(Allocation a) {
+        addAllocationRecord(a);
+        if(journal != null) journal.appendAllocation(a);
+    }
+    
+    static void confirmDelivery(MultiStopDelivery d) {
+        addDeliveryRecord(d);
+        if(journal != null) journal.appendDelivery(d);
+    }
+    
+    // Bookings only change under dataLock, so checking and recording under it
+    // keeps concurrent confirmations from taking one vehicle for overlapping
+    // trips. The booking in the way is returned and nothing is recorded, or
+    // null once every allocation is confirmed.
+    
+    static IntervalTree.Interval<Object> confirmIfFree(List<Allocation> parts) {
+        synchronized(dataLock) {
+            for(Allocation a : parts) {
+                IntervalTree.Interval<Object> busy = bookings.conflict(a);
+                if(busy != null) return busy;
+            }
+            for(Allocation a : parts) addAllocationRecord(a);
+        }
+        if(journal != null) for(Allocation a : parts) journal.appendAllocation(a);
+        return null;
+    }
+    
+    static IntervalTree.Interval<Object> confirmIfFree(MultiStopDelivery d) {
+        synchronized(dataLock) {
+            IntervalTree.Interval<Object> busy = bookings.conflict(d);
+            if(busy != null) return busy;
+            addDeliveryRecord(d);
+        }
+        if(journal != null) journal.appendDelivery(d);
+        return null;
+    }
+    
     static void createMultiStopDelivery(Scanner sc) {
         System.out.println("\n" + "=".repeat(70));
         System.out.println("MULTI-STOP DELIVERY - ONE VEHICLE, MULTIPLE LOCATIONS");
@@ -227,10 +507,13 @@ public class TransportLogisticSystem2 {
         }
         
         System.out.println("\n📍 Available Vehicles:");
+        long now = Timestamps.now();
         for(int i = 0; i < vehicles.size(); i++) {
             Vehicle v = vehicles.get(i);
-            System.out.printf("%d. %s (%s) - Capacity: %.0f kg, Mileage: %.2f km/L%n", 
-                i+1, v.id, v.getType(), v.capacity, v.mileage);
+            IntervalTree.Interval<Object> busy = bookings.conflict(v, now, now + 1);
+            System.out.printf("%d. %s (%s) - Capacity: %.0f kg, Mileage: %.2f km/L%s%n", 
+                i+1, v.id, v.getType(), v.capacity, v.mileage, 
+                busy == null ? "" : " - busy until " + Timestamps.format(busy.end()));
         }
         
         System.out.print("\nSelect vehicle (1-" + vehicles.size() + "): ");
@@ -249,6 +532,18 @@ public class TransportLogisticSystem2 {
         
         Vehicle selectedVehicle = vehicles.get(vehicleChoice - 1);
         
+        System.out.print("Departure (yyyy-MM-dd HH:mm:ss) [Enter = now]: ");
+        String when = sc.nextLine().trim();
+        long departure = 0;
+        if(!when.isEmpty()) {
+            try {
+                departure = Timestamps.parse(when);
+            } catch(DateTimeException e) {
+                System.out.println("❌ Invalid departure time.");
+                return;
+            }
+        }
+        
         System.out.print("\nDelivery ID: ");
         String deliveryId = sc.nextLine().trim();
         
@@ -261,6 +556,10 @@ public class TransportLogisticSystem2 {
         double totalCargo = 0;
         double totalDistance = 0;
         
+        System.out.print("\nStart city (optional, used for road distances and stop order): ");
+        String depot = sc.nextLine().trim();
+        String previousCity = depot.isEmpty() ? null : depot;
+        
         System.out.println("\n🗺 Add delivery stops (enter empty city name to finish):");
         int stopCount = 1;
         
@@ -276,13 +575,11 @@ public class TransportLogisticSystem2 {
                 break;
             }
             
-            System.out.print("Distance from previous (km): ");
-            if(!sc.hasNextDouble()) {
+            double distance = promptDistance(sc, "Distance from previous (km)", previousCity, city);
+            if(Double.isNaN(distance)) {
                 System.out.println("❌ Invalid distance!");
-                sc.nextLine();
                 continue;
             }
-            double distance = sc.nextDouble();
             
             System.out.print("Cargo to deliver (kg): ");
             if(!sc.hasNextDouble()) {
@@ -310,10 +607,20 @@ public class TransportLogisticSystem2 {
             }
             
             stops.add(new Stop(city, distance, cargo));
+            previousCity = city;
             stopCount++;
             System.out.printf("✅ Stop added | Total: %.0f kg, %.1f km%n", totalCargo, totalDistance);
         }
         
+        if(stops.size() > 1 && !depot.isEmpty()) {
+            List<Stop> optimized = optimizeStopOrder(sc, depot, stops, selectedVehicle);
+            if(optimized != stops) {
+                stops = optimized;
+                totalDistance = 0;
+                for(Stop s : stops) totalDistance += s.distance;
+            }
+        }
+        
         double cost = calculateMultiStopCost(selectedVehicle, totalDistance);
         
         System.out.println("\n" + "=".repeat(70));
@@ -326,23 +633,183 @@ public class TransportLogisticSystem2 {
         System.out.printf("Total Distance: %.1f km%n", totalDistance);
         System.out.printf("Fuel Needed: %.2f L%n", totalDistance / selectedVehicle.mileage);
         System.out.printf("Estimated Cost: ₹%.2f%n", cost);
+        long start = departure > 0 ? departure : Timestamps.now();
+        long[] window = {start, start + Bookings.durationMillis(totalDistance)};
+        printWindow(window);
         System.out.println("=".repeat(70));
         
+        IntervalTree.Interval<Object> busy = bookings.conflict(selectedVehicle, window[0], window[1]);
+        if(busy != null) {
+            System.out.printf("❌ %s is booked (%s) from %s until %s!%n", selectedVehicle.id, Bookings.describe(busy), 
+                Timestamps.format(busy.start()), Timestamps.format(busy.end()));
+            return;
+        }
+        
         System.out.print("\nConfirm this multi-stop delivery? (y/n): ");
         String confirm = sc.nextLine().trim().toLowerCase();
         
         if(confirm.equals("y")) {
-            MultiStopDelivery delivery = new MultiStopDelivery(deliveryId, selectedVehicle, stops, totalCargo, totalDistance, cost);
-            multiStopDeliveries.add(delivery);
+            long confirmedAt = Timestamps.now();
+            MultiStopDelivery delivery = new MultiStopDelivery(deliveryId, selectedVehicle, stops, totalCargo, totalDistance, cost, 
+                confirmedAt, departure > 0 ? departure : confirmedAt);
+            confirmDelivery(delivery);
             System.out.println("✅ Multi-stop delivery saved successfully!");
         }
     }
     
+    /**
+     * Reorders stops with StopOptimizer and lets the operator pick the order.
+     * Returns the original list if the order is kept or can't be optimized.
+     */
+    static List<Stop> optimizeStopOrder(Scanner sc, String depot, List<Stop> stops, Vehicle v) {
+        double[][] dist = stopDistanceMatrix(depot, stops);
+        if(dist == null) return stops;
+        
+        long start = System.nanoTime();
+        int[] order = StopOptimizer.optimize(dist);
+        double ms = (System.nanoTime() - start) / 1e6;
+        
+        double originalDistance = 0;
+        for(Stop s : stops) originalDistance += s.distance;
+        double optimizedDistance = StopOptimizer.length(dist, order);
+        
+        List<Stop> reordered = new ArrayList<>(stops.size());
+        int prev = 0;
+        for(int idx : order) {
+            Stop s = stops.get(idx - 1);
+            reordered.add(new Stop(s.city, dist[prev][idx], s.cargo));
+            prev = idx;
+        }
+        
+        System.out.println("\n" + "-".repeat(70));
+        System.out.printf("%-10s | %-12s | %-12s | %s%n", "Order", "Distance", "Cost", "Stops");
+        System.out.println("-".repeat(70));
+        System.out.printf("%-10s | %-12.1f | ₹%-11.2f | %s%n", "Original", originalDistance,
+            calculateMultiStopCost(v, originalDistance), stopPath(depot, stops));
+        System.out.printf("%-10s | %-12.1f | ₹%-11.2f | %s%n", "Optimized", optimizedDistance,
+            calculateMultiStopCost(v, optimizedDistance), stopPath(depot, reordered));
+        System.out.println("-".repeat(70));
+        System.out.printf("⏱ Optimized %d stops in %.1f ms%n", stops.size(), ms);
+        
+        if(optimizedDistance >= originalDistance - 1e-9) {
+            System.out.println("ℹ Entered order is already the shortest found.");
+            return stops;
+        }
+        System.out.print("Use optimized order? (y/n): ");
+        return sc.nextLine().trim().equalsIgnoreCase("y") ? reordered : stops;
+    }
+    
+    /**
+     * Symmetric city-to-city distances for depot + stops (index 0 is the depot).
+     * Pairs come from the legs just entered and from known routes, then from
+     * the road network; returns null if any pair is unknown.
+     */
+    static double[][] stopDistanceMatrix(String depot, List<Stop> stops) {
+        Map<String, Double> known = new HashMap<>();
+        synchronized(dataLock) {
+            for(Route r : routes) knownDistance(known, r.source, r.destination, r.distance);
+        }
+        String prevCity = depot;
+        for(Stop s : stops) {
+            knownDistance(known, prevCity, s.city, s.distance);
+            prevCity = s.city;
+        }
+        
+        int n = stops.size() + 1;
+        String[] cities = new String[n];
+        cities[0] = depot;
+        for(int i = 1; i < n; i++) cities[i] = stops.get(i - 1).city;
+        
+        double[][] dist = new double[n][n];
+        for(int i = 0; i < n; i++) {
+            double[] road = roadGraph.distances(cities[i], Arrays.copyOfRange(cities, i + 1, n));
+            for(int j = i + 1; j < n; j++) {
+                Double d = cities[i].equalsIgnoreCase(cities[j]) ? Double.valueOf(0)
+                    : known.get(cityPair(cities[i], cities[j]));
+                if(d == null && !Double.isNaN(road[j - i - 1])) d = road[j - i - 1];
+                if(d == null) {
+                    System.out.println("ℹ Stop order not optimized: no known distance "
+                        + cities[i] + " <-> " + cities[j]);
+                    return null;
+                }
+                dist[i][j] = dist[j][i] = d;
+            }
+        }
+        return dist;
+    }
+    
+    /**
+     * Leg distances for planning: the shortest known route between two
+     * cities (either direction), else the road network.
+     */
+    static Consolidator.Distances knownDistances() {
+        Map<String, Double> known = new HashMap<>();
+        synchronized(dataLock) {
+            for(Route r : routes) knownDistance(known, r.source, r.destination, r.distance);
+        }
+        return (a, b) -> {
+            Double d = known.get(cityPair(a, b));
+            return d != null ? d : roadGraph.distance(a, b);
+        };
+    }
+    
+    private static void knownDistance(Map<String, Double> known, String a, String b, double d) {
+        known.merge(cityPair(a, b), d, Math::min);
+    }
+    
+    private static String cityPair(String a, String b) {
+        a = a.toLowerCase();
+        b = b.toLowerCase();
+        return a.compareTo(b) <= 0 ? a + "|" + b : b + "|" + a;
+    }
+    
+    private static String stopPath(String depot, List<Stop> stops) {
+        StringBuilder sb = new StringBuilder(depot);
+        for(Stop s : stops) sb.append(" -> ").append(s.city);
+        return sb.toString();
+    }
+    
+    /**
+     * Reads a distance for the leg from -> to. When the road network connects
+     * the two cities the shortest road distance is offered and Enter accepts
+     * it. Consumes the whole input line; returns NaN on invalid input.
+     */
+    static double promptDistance(Scanner sc, String label, String from, String to) {
+        double road = from == null ? Double.NaN : roadGraph.distance(from, to);
+        if(Double.isNaN(road)) {
+            System.out.print(label + ": ");
+            if(!sc.hasNextDouble()) {
+                sc.nextLine();
+                return Double.NaN;
+            }
+            double d = sc.nextDouble();
+            sc.nextLine();
+            return d;
+        }
+        
+        System.out.printf("%s [Enter = %.1f km by road]: ", label, road);
+        String line = sc.nextLine().trim();
+        if(line.isEmpty()) return road;
+        try {
+            return Double.parseDouble(line);
+        } catch(NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+    
     static double calculateCost(Route r, Vehicle v) {
         double fuelNeeded = r.distance / v.mileage;
         return fuelNeeded * v.rate;
     }
     
+    /**
+     * Route cost plus the empty run from the vehicle's location to the pickup.
+     */
+    static double calculateCost(Route r, Vehicle v, double deadheadKm) {
+        double fuelNeeded = (deadheadKm + r.distance) / v.mileage;
+        return fuelNeeded * v.rate;
+    }
+    
     static double calculateMultiStopCost(Vehicle v, double totalDistance) {
         double fuelNeeded = totalDistance / v.mileage;
         return fuelNeeded * v.rate;
@@ -354,43 +821,259 @@ public class TransportLogisticSystem2 {
             return;
         }
         
+        if(!cityLocations.isEmpty() && dispatcher().located() > 0) {
+            System.out.print("Dispatch mode - include the deadhead run to each pickup? (y/n): ");
+            if(sc.nextLine().trim().equalsIgnoreCase("y")) {
+                dispatchMatches(sc);
+                return;
+            }
+        }
+        
         System.out.println("\n" + "=".repeat(80));
         System.out.println("ROUTE PLANNING - BEST MATCHES");
         System.out.println("=".repeat(80));
         
-        for (Route r : routes) {
-            PriorityQueue<CostPair> bestMatches = new PriorityQueue<>();
+        // Compute phase: the first pass matches every route in parallel,
+        // later passes read the table kept current since then
+        long start = System.nanoTime();
+        boolean fullPass = matchTable == null;
+        Vehicle[] matches;
+        synchronized(dataLock) {
+            if(fullPass) matchTable = new BestMatchTable(vehicles, routes);
+            matches = matchTable.bestMatches(routes);
+        }
+        double elapsedMs = (System.nanoTime() - start) / 1_000_000.0;
+        if(fullPass) {
+            System.out.printf("Matched %d routes in %.1f ms on %d thread(s) (%.0f routes/sec)%n", 
+                matches.length, elapsedMs, MatchPlanner.threadsFor(matches.length), 
+                matches.length / Math.max(elapsedMs / 1000.0, 1e-9));
+        } else {
+            System.out.printf("Read %d best matches from the match table in %.1f ms%n", matches.length, elapsedMs);
+        }
+        
+        // Confirm phase: sequential, in route order; a vehicle booked by an
+        // earlier confirmation (or the history) gives way to the next cheapest free one
+        for (int i = 0; i < matches.length; i++) {
+            Route r = routes.get(i);
+            Vehicle best = matches[i];
+            long[] window = Bookings.window(r);
+            
+            System.out.println("\n" + "-".repeat(80));
+            System.out.printf("Route %s: %s → %s | Distance: %.1f km | Cargo: %.1f kg%n", 
+                r.id, r.source, r.destination, r.distance, r.cargoAmount);
+            printWindow(window);
+            System.out.println("-".repeat(80));
             
-            for (Vehicle v : vehicles) {
-                if (v.capacity >= r.cargoAmount) {
-                    double cost = calculateCost(r, v);
-                    bestMatches.add(new CostPair(cost, r, v));
+            if(best != null) {
+                IntervalTree.Interval<Object> busy = bookings.conflict(best, window[0], window[1]);
+                if(busy != null) {
+                    System.out.printf("⚠ %s is booked (%s) until %s%n", best.id, Bookings.describe(busy), Timestamps.format(busy.end()));
+                    best = matchTable().bestFor(r, freeDuring(window));
+                    if(best == null) {
+                        System.out.println("❌ ERROR: No vehicle with sufficient capacity is free then!");
+                        continue;
+                    }
                 }
             }
             
+            if (best == null) {
+                System.out.println("❌ ERROR: No vehicle has sufficient capacity!");
+                offerSplitLoad(sc, r);
+            } else {
+                double cost = calculateCost(r, best);
+                System.out.printf("✅ BEST MATCH: %s (%s)%n", best.id, best.getType());
+                System.out.printf("   Cost: ₹%.2f | Capacity: %.1f kg%n", cost, best.capacity);
+                
+                System.out.print("   Confirm allocation? (y/n): ");
+                String confirm = sc.nextLine().trim().toLowerCase();
+                
+                if(confirm.equals("y")) {
+                    confirmAllocation(new Allocation(r, best, cost));
+                    System.out.println("   ✅ Allocation saved!");
+                }
+            }
+        }
+    }
+    
+    static void printWindow(long[] window) {
+        System.out.printf("Departs: %s | Back: %s (%.1f h)%n", Timestamps.format(window[0]), 
+            Timestamps.format(window[1]), (window[1] - window[0]) / 3_600_000.0);
+    }
+    
+    /**
+     * Best matches with the deadhead leg priced in: each route goes to the
+     * cheapest of the nearest located vehicles that can carry it.
+     */
+    static void dispatchMatches(Scanner sc) {
+        System.out.println("\n" + "=".repeat(80));
+        System.out.println("ROUTE PLANNING - DISPATCH (NEAREST VEHICLES, DEADHEAD INCLUDED)");
+        System.out.println("=".repeat(80));
+        
+        long start = System.nanoTime();
+        Dispatcher d = dispatcher();
+        List<Route> planned = new ArrayList<>(routes);
+        Dispatcher.Match[] matches = new Dispatcher.Match[planned.size()];
+        for(int i = 0; i < matches.length; i++) {
+            Route r = planned.get(i);
+            double[] at = cityLocation(r.source);
+            if(at != null) matches[i] = d.best(r, at[0], at[1], freeDuring(Bookings.window(r)));
+        }
+        double elapsedMs = (System.nanoTime() - start) / 1_000_000.0;
+        System.out.printf("Dispatched %d routes in %.1f ms (%d located vehicles, up to %d checked per route)%n", 
+            matches.length, elapsedMs, d.located(), Dispatcher.candidates);
+        
+        for(int i = 0; i < matches.length; i++) {
+            Route r = planned.get(i);
+            Dispatcher.Match m = matches[i];
+            long[] window = Bookings.window(r);
+            double[] at = cityLocation(r.source);
+            // Earlier confirmations in this pass may have booked the vehicle
+            if(m != null && !bookings.isFree(m.vehicle, window[0], window[1])) {
+                m = d.best(r, at[0], at[1], freeDuring(window));
+            }
+            
             System.out.println("\n" + "-".repeat(80));
             System.out.printf("Route %s: %s → %s | Distance: %.1f km | Cargo: %.1f kg%n", 
                 r.id, r.source, r.destination, r.distance, r.cargoAmount);
+            printWindow(window);
             System.out.println("-".repeat(80));
             
-            if (bestMatches.isEmpty()) {
-                System.out.println("❌ ERROR: No vehicle has sufficient capacity!");
+            if(at == null) {
+                System.out.println("⚠ No coordinates for " + r.source + " in " + CITIES_CSV + "; skipped.");
+            } else if(m == null) {
+                System.out.println("❌ ERROR: No free located vehicle has sufficient capacity!");
             } else {
-                CostPair best = bestMatches.poll();
-                System.out.printf("✅ BEST MATCH: %s (%s)%n", best.vehicle.id, best.vehicle.getType());
-                System.out.printf("   Cost: ₹%.2f | Capacity: %.1f kg%n", best.cost, best.vehicle.capacity);
+                System.out.printf("✅ DISPATCH: %s (%s) | Deadhead: %.1f km%n", m.vehicle.id, m.vehicle.getType(), m.deadheadKm);
+                System.out.printf("   Cost: ₹%.2f (route ₹%.2f + deadhead ₹%.2f) | Capacity: %.1f kg%n", 
+                    m.cost, calculateCost(r, m.vehicle), m.cost - calculateCost(r, m.vehicle), m.vehicle.capacity);
                 
                 System.out.print("   Confirm allocation? (y/n): ");
                 String confirm = sc.nextLine().trim().toLowerCase();
                 
                 if(confirm.equals("y")) {
-                    allocations.add(new Allocation(best.route, best.vehicle, best.cost));
+                    confirmAllocation(new Allocation(r, m.vehicle, m.cost));
                     System.out.println("   ✅ Allocation saved!");
                 }
             }
         }
     }
     
+    /**
+     * Offers to cover an oversized route with several vehicles and records
+     * the parts as linked allocations.
+     */
+    static void offerSplitLoad(Scanner sc, Route r) {
+        long start = System.nanoTime();
+        SplitLoadPlanner.Plan plan = SplitLoadPlanner.plan(r, freeFleet(Bookings.window(r)));
+        double elapsedMs = (System.nanoTime() - start) / 1_000_000.0;
+        if(plan == null) {
+            System.out.println("   ❌ The vehicles free then can't carry it together either.");
+            return;
+        }
+        
+        System.out.printf("⚠ SPLIT SHIPMENT: %d vehicles, %.1f kg capacity (planned in %.1f ms)%n", 
+            plan.size(), plan.capacity, elapsedMs);
+        for(int k = 0; k < plan.size(); k++) {
+            Vehicle v = plan.vehicles.get(k);
+            System.out.printf("   %-8s (%-5s) carries %8.1f of %8.1f kg | Cost: ₹%.2f%n", 
+                v.id, v.getType(), plan.cargo[k], v.capacity, plan.cost[k]);
+        }
+        System.out.printf("   Total Cost: ₹%.2f%n", plan.totalCost);
+        
+        System.out.print("   Confirm split allocation? (y/n): ");
+        String confirm = sc.nextLine().trim().toLowerCase();
+        
+        if(confirm.equals("y")) {
+            List<Allocation> parts = Allocation.split(r, plan);
+            for(Allocation a : parts) confirmAllocation(a);
+            System.out.println("   ✅ " + parts.size() + " linked allocations saved (split #" + parts.get(0).linkGroup + ")!");
+        }
+    }
+    
+    static void batchAssignment(Scanner sc) {
+        if(routes.isEmpty() || vehicles.isEmpty()) {
+            System.out.println("❌ Need at least one route and one vehicle!");
+            return;
+        }
+        
+        System.out.println("\n" + "=".repeat(80));
+        System.out.println("BATCH ASSIGNMENT - ONE VEHICLE PER ROUTE, MINIMUM TOTAL COST");
+        System.out.println("=".repeat(80));
+        
+        // Only routes not yet allocated or consolidated, and only vehicles
+        // free for each route's window
+        List<Route> open = new ArrayList<>();
+        List<Vehicle> fleet;
+        synchronized(dataLock) {
+            Set<Route> allocated = Collections.newSetFromMap(new IdentityHashMap<>());
+            for(Allocation a : allocations) allocated.add(a.route);
+            Set<String> consolidated = new HashSet<>();
+            for(MultiStopDelivery d : multiStopDeliveries) consolidated.addAll(d.routeIds());
+            for(Route r : routes) {
+                if(!allocated.contains(r) && !consolidated.contains(r.id)) open.add(r);
+            }
+            fleet = new ArrayList<>(vehicles);
+        }
+        if(open.isEmpty()) {
+            System.out.println("ℹ Every route is already allocated.");
+            return;
+        }
+        long[][] windows = new long[open.size()][];
+        for(int i = 0; i < windows.length; i++) windows[i] = Bookings.window(open.get(i));
+        
+        int limit = AssignmentSolver.defaultCandidateLimit(open.size(), fleet.size());
+        long start = System.nanoTime();
+        AssignmentSolver.Result plan = AssignmentSolver.solve(open, fleet, limit, 
+            (i, j) -> bookings.isFree(fleet.get(j), windows[i][0], windows[i][1]));
+        double elapsedMs = (System.nanoTime() - start) / 1_000_000.0;
+        double greedy = AssignmentSolver.greedyTotal(open, new FleetIndex(fleet));
+        
+        System.out.printf("%-6s | %-15s -> %-15s | %-8s | %-12s%n", 
+            "Route", "Source", "Destination", "Vehicle", "Cost (₹)");
+        System.out.println("-".repeat(80));
+        for(int i = 0; i < open.size(); i++) {
+            Route r = open.get(i);
+            int j = plan.vehicleForRoute[i];
+            if(j < 0) {
+                System.out.printf("%-6s | %-15s -> %-15s | %-8s | %-12s%n", 
+                    r.id, r.source, r.destination, "-", "unassigned");
+            } else {
+                Vehicle v = fleet.get(j);
+                System.out.printf("%-6s | %-15s -> %-15s | %-8s | %-12.2f%n", 
+                    r.id, r.source, r.destination, v.id, calculateCost(r, v));
+            }
+        }
+        
+        System.out.println("-".repeat(80));
+        System.out.printf("Greedy (per route, vehicles may repeat or be booked): ₹%.2f%n", greedy);
+        System.out.printf("Optimal (one free vehicle per route):                 ₹%.2f | Assigned: %d/%d%s%n", 
+            plan.totalCost, plan.assigned, open.size(), plan.exact ? "" : " (candidate-limited)");
+        System.out.printf("Solved in %.1f ms%n", elapsedMs);
+        
+        if(plan.assigned == 0) return;
+        
+        System.out.print("\nConfirm all " + plan.assigned + " allocations? (y/n): ");
+        String confirm = sc.nextLine().trim().toLowerCase();
+        
+        if(confirm.equals("y")) {
+            // Another confirmation (e.g. over HTTP) may have booked a vehicle since the solve
+            int saved = 0;
+            for(int i = 0; i < open.size(); i++) {
+                int j = plan.vehicleForRoute[i];
+                if(j < 0) continue;
+                Route r = open.get(i);
+                Vehicle v = fleet.get(j);
+                IntervalTree.Interval<Object> busy = confirmIfFree(List.of(new Allocation(r, v, calculateCost(r, v))));
+                if(busy == null) {
+                    saved++;
+                } else {
+                    System.out.printf("⚠ Route %s not saved: %s was booked meanwhile (%s)%n", r.id, v.id, Bookings.describe(busy));
+                }
+            }
+            System.out.println("✅ " + saved + " allocations saved!");
+        }
+    }
+    
     static void viewAllocations() {
         System.out.println("\n" + "=".repeat(80));
         System.out.println("ALLOCATION HISTORY");
@@ -404,17 +1087,76 @@ public class TransportLogisticSystem2 {
             System.out.println("-".repeat(80));
             
             for(Allocation a : allocations) {
-                System.out.printf("%-6d | %-8s | %-8s | %-12.2f | %-20s%n",
-                    a.allocationId, a.route.id, a.vehicle.id, a.cost, a.timestamp);
+                System.out.printf("%-6d | %-8s | %-8s | %-12.2f | %-20s%s%n",
+                    a.allocationId, a.route.id, a.vehicle.id, a.cost, Timestamps.format(a.timestamp),
+                    a.isSplit() ? String.format(" | split #%d, %.1f kg", a.linkGroup, a.cargo) : "");
             }
             
             System.out.println("-".repeat(80));
-            double totalRevenue = allocations.stream()
-                    .mapToDouble(a -> a.cost)
-                    .sum();
+            Aggregates.Stats total = aggregates.allocationTotal();
             System.out.printf("Total Revenue: ₹%.2f | Allocations: %d | Avg: ₹%.2f%n", 
-                totalRevenue, allocations.size(), totalRevenue / allocations.size());
+                total.revenue, total.allocations, total.averageCost());
+        }
+    }
+    
+    static final int REPORT_TOP = 10;
+    static final int REPORT_DAYS = 14;
+    
+    /**
+     * Revenue and utilization dashboard read from the running aggregates,
+     * so it costs the same with ten allocations or ten million.
+     */
+    static void viewRevenueReport() {
+        Aggregates.Stats alloc = aggregates.allocationTotal();
+        Aggregates.Stats multi = aggregates.deliveryTotal();
+        Aggregates.Stats total = aggregates.total();
+        
+        System.out.println("\n" + "=".repeat(100));
+        System.out.println("REVENUE & UTILIZATION REPORT");
+        System.out.println("=".repeat(100));
+        if(total.count() == 0) {
+            System.out.println("No allocations or deliveries yet.");
+            return;
         }
+        printStatsHeader("");
+        printStatsRow("Allocations", alloc);
+        printStatsRow("Multi-stop deliveries", multi);
+        printStatsRow("All", total);
+        
+        System.out.println("\nBY VEHICLE TYPE");
+        printStatsHeader("Type");
+        for(Map.Entry<String, Aggregates.Stats> e : aggregates.byVehicleType()) printStatsRow(e.getKey(), e.getValue());
+        
+        System.out.println("\nTOP " + REPORT_TOP + " VEHICLES BY REVENUE");
+        printStatsHeader("Vehicle");
+        for(Map.Entry<String, Aggregates.Stats> e : aggregates.topVehicles(REPORT_TOP)) printStatsRow(e.getKey(), e.getValue());
+        
+        System.out.println("\nTOP " + REPORT_TOP + " CITY PAIRS BY REVENUE");
+        printStatsHeader("Route");
+        for(Map.Entry<String, Aggregates.Stats> e : aggregates.topCityPairs(REPORT_TOP)) printStatsRow(e.getKey(), e.getValue());
+        
+        System.out.println("\nLAST " + REPORT_DAYS + " ACTIVE DAYS");
+        printStatsHeader("Day");
+        for(Map.Entry<Long, Aggregates.Stats> e : aggregates.recentDays(REPORT_DAYS)) {
+            printStatsRow(Timestamps.formatDay(e.getKey()), e.getValue());
+        }
+        System.out.println("=".repeat(100));
+    }
+    
+    static void printStatsHeader(String label) {
+        System.out.printf("%-24s | %-8s | %-14s | %-11s | %-11s | %-11s | %-6s%n", 
+            label, "Trips", "Revenue (₹)", "Avg (₹)", "Max (₹)", "Km", "Load");
+        System.out.println("-".repeat(100));
+    }
+    
+    static void printStatsRow(String label, Aggregates.Stats s) {
+        System.out.printf("%-24s | %-8d | %-14.2f | %-11.2f | %-11.2f | %-11.1f | %5.1f%%%n", 
+            label, s.count(), s.revenue, s.averageCost(), s.maxCost, s.distance, s.utilization() * 100);
+    }
+    
+    static void showMetrics() {
+        Metrics.print();
+        if(Metrics.dump()) System.out.println("📄 " + Metrics.DUMP_FILE + " written");
     }
     
     static void viewMultiStopDeliveries() {
@@ -438,175 +1180,1048 @@ public class TransportLogisticSystem2 {
                 
                 System.out.printf("\n   Total Distance: %.1f km | Total Cargo: %.0f kg | Cost: ₹%.2f%n", 
                     d.totalDistance, d.totalCargo, d.cost);
-                System.out.printf("   Timestamp: %s%n", d.timestamp);
+                System.out.printf("   Timestamp: %s%n", Timestamps.format(d.timestamp));
             }
         }
         System.out.println("\n" + "=".repeat(90));
     }
+
+    // ==================== HISTORY SEARCH ====================
+
+    static final int HISTORY_PAGE = 20;
+
+    /**
+     * Filtered, paged search over allocations and multi-stop deliveries,
+     * answered from the history indexes. Every filter is optional.
+     */
+    static void searchHistory(Scanner sc) {
+        HistoryIndex.Query q = new HistoryIndex.Query();
+        System.out.println("\n🔎 Search history (Enter = any)");
+        q.vehicle = promptFilter(sc, "Vehicle ID");
+        q.route = promptFilter(sc, "Route ID");
+        q.source = promptFilter(sc, "Source city");
+        q.destination = promptFilter(sc, "Destination city");
+        String kind = promptFilter(sc, "Kind (a = allocations, d = deliveries)");
+        if(kind != null) {
+            if(!kind.equalsIgnoreCase("a") && !kind.equalsIgnoreCase("d")) {
+                System.out.println("❌ Invalid kind!");
+                return;
+            }
+            q.allocations = kind.equalsIgnoreCase("a");
+            q.deliveries = kind.equalsIgnoreCase("d");
+        }
+        try {
+            String min = promptFilter(sc, "Min cost (₹)");
+            if(min != null) q.minCost = Double.parseDouble(min);
+            String max = promptFilter(sc, "Max cost (₹)");
+            if(max != null) q.maxCost = Double.parseDouble(max);
+        } catch(NumberFormatException e) {
+            System.out.println("❌ Invalid cost!");
+            return;
+        }
+        try {
+            String from = promptFilter(sc, "From (yyyy-MM-dd [HH:mm:ss])");
+            if(from != null) q.from = parseSearchTime(from, false);
+            String to = promptFilter(sc, "To (yyyy-MM-dd [HH:mm:ss])");
+            if(to != null) q.to = parseSearchTime(to, true);
+        } catch(DateTimeException e) {
+            System.out.println("❌ Invalid date/time!");
+            return;
+        }
+        q.newestFirst = "y".equalsIgnoreCase(promptFilter(sc, "Newest first? (y/N)"));
+        q.limit = HISTORY_PAGE;
+
+        while(true) {
+            long started = System.nanoTime();
+            HistoryIndex.Page page = history.query(q);
+            double ms = (System.nanoTime() - started) / 1e6;
+
+            System.out.println("\n" + "=".repeat(100));
+            System.out.printf("🔎 %d matches | index: %s, %d candidates checked | %.2f ms%n",
+                page.total, page.plan, page.scanned, ms);
+            System.out.println("=".repeat(100));
+            if(page.total == 0) return;
+            System.out.printf("%-10s | %-8s | %-8s | %-40s | %-12s | %-19s%n",
+                "Kind", "ID", "Vehicle", "Trip", "Cost (₹)", "Timestamp");
+            System.out.println("-".repeat(100));
+            for(Object r : page.records) {
+                if(r instanceof Allocation a) {
+                    System.out.printf("%-10s | %-8d | %-8s | %-40s | %-12.2f | %-19s%n", "Allocation",
+                        a.allocationId, a.vehicle.id, a.route.id + ": " + a.route.source + " → " + a.route.destination,
+                        a.cost, Timestamps.format(a.timestamp));
+                } else if(r instanceof MultiStopDelivery d) {
+                    StringJoiner stops = new StringJoiner(" → ");
+                    for(Stop s : d.stops) stops.add(s.city);
+                    String trip = stops.toString();
+                    if(trip.length() > 40) trip = trip.substring(0, 37) + "...";
+                    System.out.printf("%-10s | %-8s | %-8s | %-40s | %-12.2f | %-19s%n", "Delivery",
+                        d.deliveryId, d.vehicle.id, trip, d.cost, Timestamps.format(d.timestamp));
+                }
+            }
+            System.out.println("-".repeat(100));
+            int last = (int) Math.min(page.total, (long) q.offset + page.records.size());
+            System.out.printf("Showing %d-%d of %d%n", q.offset + 1, last, page.total);
+
+            boolean more = last < page.total, back = q.offset > 0;
+            if(!more && !back) return;
+            System.out.print((more ? "n = next page, " : "") + (back ? "p = previous, " : "") + "Enter = done: ");
+            String nav = sc.nextLine().trim();
+            if(more && nav.equalsIgnoreCase("n")) q.offset += HISTORY_PAGE;
+            else if(back && nav.equalsIgnoreCase("p")) q.offset = Math.max(0, q.offset - HISTORY_PAGE);
+            else return;
+        }
+    }
+
+    // Reads one optional filter line; null when left empty
+    static String promptFilter(Scanner sc, String label) {
+        System.out.print(label + ": ");
+        String line = sc.nextLine().trim();
+        return line.isEmpty() ? null : line;
+    }
+
+    /**
+     * A date alone means the start of that day, or for the end of a range the
+     * start of the next one, so "to" includes the whole day.
+     */
+    static long parseSearchTime(String text, boolean end) {
+        if(text.length() > 10) return Timestamps.parse(text);
+        LocalDate day = LocalDate.parse(text);
+        return Timestamps.parse((end ? day.plusDays(1) : day) + " 00:00:00");
+    }
+
+    // ==================== ROUTE CONSOLIDATION ====================
     
-    // ==================== CSV FILE OPERATIONS ====================
+    static final int CONSOLIDATION_ROWS = 50;
     
-    static void loadDataFromCSV() {
-        loadVehiclesFromCSV();
-        loadRoutesFromCSV();
-        loadAllocationsFromCSV();
-        loadMultiStopDeliveriesFromCSV();
-        if(vehicles.size() > 0 || routes.size() > 0) {
-            System.out.println("✅ Data loaded from CSV files\n");
+    /**
+     * Packs routes with no allocation that share a source onto common trips
+     * and offers the shared ones as multi-stop deliveries. Routes already on
+     * a confirmed delivery (its routeIds, kept with the delivery) are left out.
+     */
+    static void consolidateRoutes(Scanner sc) {
+        List<Route> open = new ArrayList<>();
+        FleetIndex fleet;
+        synchronized(dataLock) {
+            Set<Route> allocated = Collections.newSetFromMap(new IdentityHashMap<>());
+            for(Allocation a : allocations) allocated.add(a.route);
+            Set<String> consolidated = new HashSet<>();
+            for(MultiStopDelivery d : multiStopDeliveries) consolidated.addAll(d.routeIds());
+            for(Route r : routes) {
+                if(!allocated.contains(r) && !consolidated.contains(r.id)) open.add(r);
+            }
+            fleet = new FleetIndex(vehicles);
+        }
+        if(open.isEmpty() || fleet.size() == 0) {
+            System.out.println("❌ Need at least one unallocated route and one vehicle!");
+            return;
+        }
+        
+        Consolidator.Result result = Consolidator.consolidate(open, fleet, knownDistances(), (v, km) -> {
+            long now = Timestamps.now();
+            return bookings.isFree(v, now, now + Bookings.durationMillis(km));
+        });
+        List<Consolidator.Plan> shared = new ArrayList<>();
+        for(Consolidator.Plan p : result.plans) if(p.shared()) shared.add(p);
+        
+        System.out.println("\n" + "=".repeat(110));
+        System.out.println("ROUTE CONSOLIDATION");
+        System.out.println("=".repeat(110));
+        System.out.printf("Packed %d routes into %d trips (%d shared) in %d ms%s%n", 
+            open.size() - result.unplanned.size() - result.noVehicle.size(), result.plans.size(), shared.size(), 
+            result.millis, result.timedOut ? " (time limit reached, best plan so far)" : "");
+        if(!result.unplanned.isEmpty()) {
+            System.out.printf("⚠ %d route(s) exceed every vehicle's capacity%n", result.unplanned.size());
+        }
+        if(!result.noVehicle.isEmpty()) {
+            System.out.printf("⚠ %d route(s) left unplanned: every vehicle able to carry their trip is booked or on another one%n", 
+                result.noVehicle.size());
+        }
+        if(shared.isEmpty()) {
+            System.out.println("ℹ No routes can share a vehicle more cheaply than running alone.");
+            return;
+        }
+        
+        System.out.printf("%n%-4s | %-8s | %-6s | %-40s | %-17s | %-9s | %-10s%n", 
+            "#", "Vehicle", "Routes", "Path", "Load / Capacity", "Km", "Cost (₹)");
+        System.out.println("-".repeat(110));
+        double sharedSeparate = 0, sharedCost = 0;
+        for(int i = 0; i < shared.size(); i++) {
+            Consolidator.Plan p = shared.get(i);
+            for(Route r : p.routes) sharedSeparate += calculateCost(r, fleet.cheapestFor(r.cargoAmount));
+            sharedCost += p.cost;
+            if(i >= CONSOLIDATION_ROWS) continue;
+            String path = stopPath(p.source, p.stops);
+            if(path.length() > 40) path = path.substring(0, 37) + "...";
+            System.out.printf("%-4d | %-8s | %-6d | %-40s | %7.0f / %-7.0f | %-9.1f | %-10.2f%n", 
+                i + 1, p.vehicle.id, p.routes.size(), path, p.cargo, p.vehicle.capacity, p.distance, p.cost);
+        }
+        if(shared.size() > CONSOLIDATION_ROWS) {
+            System.out.printf("... and %d more shared trips%n", shared.size() - CONSOLIDATION_ROWS);
+        }
+        System.out.println("-".repeat(110));
+        System.out.printf("Shared trips: ₹%.2f vs ₹%.2f as separate trips (saves ₹%.2f, %.1f%%)%n", 
+            sharedCost, sharedSeparate, sharedSeparate - sharedCost, 
+            100 * (sharedSeparate - sharedCost) / Math.max(sharedSeparate, 1e-9));
+        System.out.printf("All routes:   ₹%.2f vs ₹%.2f%n", result.consolidatedCost, result.separateCost);
+        
+        System.out.print("\nConfirm the " + shared.size() + " shared trip(s) as multi-stop deliveries? (y/n): ");
+        if(!sc.nextLine().trim().equalsIgnoreCase("y")) return;
+        
+        Set<String> ids = new HashSet<>();
+        synchronized(dataLock) {
+            for(MultiStopDelivery d : multiStopDeliveries) ids.add(d.deliveryId);
+        }
+        int seq = 1, saved = 0;
+        for(Consolidator.Plan p : shared) {
+            while(ids.contains("C" + seq)) seq++;
+            String id = "C" + seq++;
+            MultiStopDelivery d = new MultiStopDelivery(id, p.vehicle, p.stops, p.cargo, p.distance, p.cost);
+            List<String> routeIds = new ArrayList<>(p.routes.size());
+            for(Route r : p.routes) routeIds.add(r.id);
+            d.routes = MultiStopDelivery.joinRouteIds(routeIds);
+            IntervalTree.Interval<Object> busy = confirmIfFree(d);
+            if(busy != null) {
+                System.out.printf("⚠ %s was booked (%s) meanwhile; trip %s not saved%n", p.vehicle.id, Bookings.describe(busy), id);
+                continue;
+            }
+            saved++;
         }
+        System.out.println("✅ " + saved + " consolidated deliveries saved!");
     }
     
-    static void loadVehiclesFromCSV() {
+    // ==================== HTTP SERVICE MODE ====================
+    
+    /**
+     * Serves the matching API: java TransportLogisticSystem2 --serve[=PORT]
+     * Writes are journaled like menu edits; Ctrl+C saves and exits.
+     */
+    static void runServer(String arg) {
+        int port = MatchingService.DEFAULT_PORT;
+        if(arg.startsWith("--serve=")) {
+            try {
+                port = Integer.parseInt(arg.substring("--serve=".length()));
+            } catch(NumberFormatException e) {
+                System.out.println("❌ Invalid port: " + arg);
+                return;
+            }
+        }
+        
+        loadDataFromCSV();
+        openJournal();
+        loadRoadGraph();
+        loadCityLocations();
+        
+        HttpServer server;
         try {
-            if (!Files.exists(Paths.get(VEHICLES_CSV))) return;
+            server = MatchingService.start(port);
+        } catch(IOException e) {
+            System.out.println("❌ Could not start HTTP server on port " + port + ": " + e.getMessage());
+            closeJournal();
+            return;
+        }
+        System.out.println("🌐 Matching service on http://localhost:" + port + " (" + MatchingService.executorKind + ")");
+        
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            saveAllDataToCSV();
+            closeJournal();
+            Metrics.dump();
+        }));
+    }
+    
+    // ==================== HEADLESS BATCH MODE ====================
+    
+    static final int BATCH_BLOCK = 65_536;
+    
+    /**
+     * Non-interactive planning: java TransportLogisticSystem2 --batch
+     *     [--confirm=all|none|max-cost:AMOUNT] [--threads=N]
+     * Loads routes and vehicles from CSV and the journal, matches without
+     * prompts and appends every confirmed allocation to allocations.csv as it
+     * goes. Routes already
+     * allocated or consolidated are left alone, and each route gets the
+     * cheapest vehicle free for its window given the bookings on record and
+     * those made earlier in the run.
+     */
+    static void runBatch(String[] args) {
+        String policy = "all";
+        double maxCost = Double.POSITIVE_INFINITY;
+        
+        for(int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if(arg.startsWith("--confirm=")) {
+                policy = arg.substring("--confirm=".length());
+            } else if(arg.startsWith("--threads=")) {
+                try {
+                    MatchPlanner.parallelism = Integer.parseInt(arg.substring("--threads=".length()));
+                } catch(NumberFormatException e) {
+                    System.out.println("❌ Invalid thread count: " + arg);
+                    return;
+                }
+            } else {
+                System.out.println("❌ Unknown option: " + arg);
+                return;
+            }
+        }
+        if(policy.startsWith("max-cost:")) {
+            try {
+                maxCost = Double.parseDouble(policy.substring("max-cost:".length()));
+            } catch(NumberFormatException e) {
+                System.out.println("❌ Invalid max-cost: " + policy);
+                return;
+            }
+        } else if(!policy.equals("all") && !policy.equals("none")) {
+            System.out.println("❌ Confirm policy must be all, none or max-cost:AMOUNT");
+            return;
+        }
+        
+        // The fleet goes straight into columns; no Vehicle objects for matching
+        FleetStore fleet = loadFleetStoreFromCSV(VEHICLES_CSV);
+        loadRoutesFromCSV(ROUTES_CSV);
+        Bookings calendar = new Bookings();
+        Set<String> planned = loadBatchBookings(fleet, calendar);
+        if(routes.isEmpty() || fleet.size() == 0) {
+            System.out.println("❌ Need at least one route and one vehicle!");
+            return;
+        }
+        int lastId = Math.max(lastAllocationIdInCSV(), Journal.lastAllocationId(JOURNAL_FILE));
+        Allocation.counter.accumulateAndGet(lastId + 1, Math::max);
+        
+        List<Route> open = new ArrayList<>();
+        for(Route r : routes) if(!planned.contains(r.id)) open.add(r);
+        
+        // One clock for the run, in whole seconds as allocations.csv keeps it.
+        // Routes without a departure all leave now, so a vehicle given one of
+        // them is used up for the rest of the run and leaves the picker.
+        long now = Timestamps.now() / 1000 * 1000;
+        FleetStore.Picker leavingNow = fleet.new Picker();
+        
+        long start = System.nanoTime();
+        int confirmed = 0, unmatched = 0, skipped = 0, busy = 0;
+        boolean writeHeader = !Files.exists(Paths.get(ALLOCATIONS_CSV));
+        double[] cargo = new double[BATCH_BLOCK], distance = new double[BATCH_BLOCK], cost = new double[BATCH_BLOCK];
+        int[] slot = new int[BATCH_BLOCK];
+        
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(ALLOCATIONS_CSV),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if(writeHeader) out.write(ALLOCATIONS_HEADER + "\n");
             
-            List<String> lines = Files.readAllLines(Paths.get(VEHICLES_CSV));
-            for(int i = 1; i < lines.size(); i++) {
-                String[] parts = lines.get(i).split(",");
-                if(parts.length >= 5) {
-                    try {
-                        String id = parts[0].trim();
-                        String type = parts[1].trim();
-                        double cap = Double.parseDouble(parts[2].trim());
-                        double mile = Double.parseDouble(parts[3].trim());
-                        double rate = Double.parseDouble(parts[4].trim());
-                        
-                        if(type.equalsIgnoreCase("Truck"))
-                            vehicles.add(new Truck(id, cap, mile, rate));
-                        else
-                            vehicles.add(new Van(id, cap, mile, rate));
-                    } catch(NumberFormatException e) {
-                        System.out.println("⚠ Skipping invalid vehicle record: " + lines.get(i));
+            for(int from = 0; from < open.size(); from += BATCH_BLOCK) {
+                int count = Math.min(open.size() - from, BATCH_BLOCK);
+                for(int i = 0; i < count; i++) {
+                    Route r = open.get(from + i);
+                    cargo[i] = r.cargoAmount;
+                    distance[i] = r.distance;
+                }
+                // Cheapest by capacity in parallel; the calendar is checked in route order
+                MatchPlanner.computeBestMatches(cargo, distance, count, fleet, slot, cost);
+                for(int i = 0; i < count; i++) {
+                    if(slot[i] < 0) {
+                        unmatched++;
+                        continue;
+                    }
+                    Route r = open.get(from + i);
+                    long leaves = r.departure > 0 ? r.departure : now, back = leaves + Bookings.durationMillis(r.distance);
+                    int s = slot[i];
+                    double c = cost[i];
+                    if(calendar.conflict(fleet.id(s), leaves, back) != null) {
+                        IntPredicate free = k -> calendar.conflict(fleet.id(k), leaves, back) == null;
+                        s = r.departure > 0 ? fleet.cheapest(r.cargoAmount, free) : leavingNow.cheapest(r.cargoAmount, free);
+                        if(s < 0) {
+                            busy++;
+                            continue;
+                        }
+                        c = fleet.cost(s, r.distance);
+                    }
+                    if(policy.equals("none") || c > maxCost) {
+                        skipped++;
+                        continue;
                     }
+                    Allocation a = new Allocation(Allocation.counter.getAndIncrement(), r, fleet.vehicle(s), c, now);
+                    calendar.book(a.vehicle.id, leaves, back, a);
+                    if(r.departure <= 0) leavingNow.remove(s);
+                    out.write(String.format("%d,%s,%s,%.2f,%s,%.2f,0%n", 
+                        a.allocationId, CsvFields.quote(a.route.id), CsvFields.quote(a.vehicle.id), a.cost, 
+                        Timestamps.format(a.timestamp), a.cargo));
+                    confirmed++;
                 }
             }
         } catch(IOException e) {
-            // File doesn't exist yet, which is fine
+            System.out.println("❌ Error writing allocations.csv: " + e.getMessage());
+            return;
         }
+        
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.out.printf("✅ Planned %d open routes (%d already planned) in %.2f s (%.0f routes/sec)%n", 
+            open.size(), routes.size() - open.size(), seconds, open.size() / Math.max(seconds, 1e-9));
+        System.out.printf("   Confirmed: %d | Skipped by policy: %d | No capable vehicle: %d | All capable vehicles booked: %d%n", 
+            confirmed, skipped, unmatched, busy);
+        Metrics.dump();
     }
     
-    static void loadRoutesFromCSV() {
-        try {
-            if (!Files.exists(Paths.get(ROUTES_CSV))) return;
-            
-            List<String> lines = Files.readAllLines(Paths.get(ROUTES_CSV));
-            for(int i = 1; i < lines.size(); i++) {
-                String[] parts = lines.get(i).split(",");
-                if(parts.length >= 5) {
-                    try {
-                        String id = parts[0].trim();
-                        double dist = Double.parseDouble(parts[1].trim());
-                        double cargo = Double.parseDouble(parts[2].trim());
-                        String src = parts[3].trim();
-                        String dest = parts[4].trim();
-                        routes.add(new Route(id, dist, cargo, src, dest));
-                    } catch(NumberFormatException e) {
-                        System.out.println("⚠ Skipping invalid route record: " + lines.get(i));
+    /**
+     * Books every allocation and multi-stop delivery on record (CSV snapshot,
+     * then journal) into the calendar by vehicle ID, without building Vehicle
+     * objects, and returns the IDs of the routes they cover. Vehicles and
+     * routes journaled since the last compaction are added as in
+     * replayJournal, vehicles straight into the fleet columns.
+     */
+    static Set<String> loadBatchBookings(FleetStore fleet, Bookings calendar) {
+        Set<String> covered = new HashSet<>(), deliveries = new HashSet<>(), vehicleIds = new HashSet<>();
+        Set<Integer> allocationIds = new HashSet<>();
+        for(int k = 0; k < fleet.size(); k++) vehicleIds.add(fleet.id(k));
+        
+        streamCSV(ALLOCATIONS_CSV, row -> {
+            if(row.count() < 5) return;
+            try {
+                allocationIds.add((int) row.number(0));
+                bookBatchAllocation(calendar, covered, row.text(0), row.text(1), row.text(2), row.text(4));
+            } catch(NumberFormatException | DateTimeException e) {
+                System.out.println("⚠ Skipping invalid allocation record: " + row.line());
+            }
+        });
+        streamCSV(MULTI_DELIVERY_CSV, row -> {
+            if(row.count() < 7) return;
+            try {
+                deliveries.add(row.text(0) + "@" + row.text(6));
+                bookBatchDelivery(calendar, covered, row.text(0), row.text(1), row.number(3), row.text(6),
+                    parseDeparture(row, 7), row.count() > 8 ? row.text(8) : "");
+            } catch(NumberFormatException | DateTimeException e) {
+                System.out.println("⚠ Skipping invalid multi-stop delivery record: " + row.line());
+            }
+        });
+        
+        Journal.replay(JOURNAL_FILE, row -> {
+            try {
+                switch(row.text(0)) {
+                    case "V" -> {
+                        if(row.count() < 6 || !vehicleIds.add(row.text(1))) return;
+                        fleet.add(row.text(1), FleetStore.typeCode(row.text(2)), row.number(3), row.number(4), row.number(5));
+                    }
+                    case "R" -> {
+                        if(row.count() < 6 || routesById.containsKey(row.text(1))) return;
+                        Route r = new Route(row.text(1), row.number(2), row.number(3), row.text(4), row.text(5));
+                        r.departure = parseDeparture(row, 6);
+                        addRouteRecord(r);
+                    }
+                    case "A" -> {
+                        if(row.count() < 6 || !allocationIds.add((int) row.number(1))) return;
+                        bookBatchAllocation(calendar, covered, row.text(1), row.text(2), row.text(3), row.text(5));
+                    }
+                    case "M" -> {
+                        if(row.count() < 8) return;
+                        int stopCount = (int) row.number(7), end = 8 + 3 * stopCount;
+                        if(row.count() < end || !deliveries.add(row.text(1) + "@" + row.text(6))) return;
+                        bookBatchDelivery(calendar, covered, row.text(1), row.text(2), row.number(3), row.text(6),
+                            parseDeparture(row, end), row.count() > end + 1 ? row.text(end + 1) : "");
                     }
+                    default -> System.out.println("⚠ Skipping unknown journal record: " + row.line());
+                }
+            } catch(NumberFormatException | DateTimeException e) {
+                System.out.println("⚠ Skipping invalid journal record: " + row.line());
+            }
+        });
+        return covered;
+    }
+    
+    // A route allocation leaves at the route's departure, or when it was made
+    private static void bookBatchAllocation(Bookings calendar, Set<String> covered, String id,
+                                            String routeId, String vehicleId, String timestamp) {
+        Route r = routesById.get(routeId);
+        if(r == null) return;
+        long leaves = r.departure > 0 ? r.departure : Timestamps.parse(timestamp);
+        calendar.book(vehicleId, leaves, leaves + Bookings.durationMillis(r.distance), "allocation " + id);
+        covered.add(r.id);
+    }
+    
+    private static void bookBatchDelivery(Bookings calendar, Set<String> covered, String id, String vehicleId,
+                                          double distance, String timestamp, long departure, String routeIds) {
+        long leaves = departure > 0 ? departure : Timestamps.parse(timestamp);
+        calendar.book(vehicleId, leaves, leaves + Bookings.durationMillis(distance), "delivery " + id);
+        covered.addAll(MultiStopDelivery.splitRouteIds(routeIds));
+    }
+    
+    /**
+     * Highest allocation ID already in allocations.csv, so appended rows continue the sequence.
+     */
+    static int lastAllocationIdInCSV() {
+        int last = 0;
+        if(!Files.exists(Paths.get(ALLOCATIONS_CSV))) return last;
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(ALLOCATIONS_CSV))) {
+            in.readLine();
+            String line;
+            while((line = in.readLine()) != null) {
+                int comma = line.indexOf(',');
+                if(comma <= 0) continue;
+                try {
+                    last = Math.max(last, Integer.parseInt(line.substring(0, comma).trim()));
+                } catch(NumberFormatException e) {
+                    // Malformed rows are reported by the regular loader
                 }
             }
         } catch(IOException e) {
-            // File doesn't exist yet, which is fine
+            System.out.println("⚠ Could not read allocations.csv: " + e.getMessage());
         }
+        return last;
     }
     
-    static void loadAllocationsFromCSV() {
+    // ==================== CSV FILE OPERATIONS ====================
+    
+    static void loadDataFromCSV() {
+        long start = System.nanoTime();
+        long rows;
+        String source;
+        if(binarySnapshotIsNewer() && loadBinarySnapshot()) {
+            rows = vehicles.size() + routes.size() + allocations.size() + multiStopDeliveries.size();
+            source = "binary snapshot";
+        } else {
+            rows = loadVehiclesFromCSV(VEHICLES_CSV) + loadRoutesFromCSV(ROUTES_CSV)
+                + loadAllocationsFromCSV(ALLOCATIONS_CSV) + loadMultiStopDeliveriesFromCSV(MULTI_DELIVERY_CSV);
+            source = "CSV files";
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        LOAD_SECONDS.recordSince(start);
+        LOAD_ROWS.add(rows);
+        if(vehicles.size() > 0 || routes.size() > 0) {
+            System.out.printf("✅ Data loaded from %s (%d rows in %.0f ms, %.0f rows/sec)%n%n", 
+                source, rows, seconds * 1000, rows / Math.max(seconds, 1e-9));
+        }
+    }
+    
+    /**
+     * True when snapshot.bin exists and is at least as new as every CSV file,
+     * i.e. no CSV was edited or appended to after the last binary save.
+     */
+    static boolean binarySnapshotIsNewer() {
+        if(!BINARY_SNAPSHOT || !Files.exists(Paths.get(SNAPSHOT_BIN))) return false;
         try {
-            if (!Files.exists(Paths.get(ALLOCATIONS_CSV))) return;
-            
-            List<String> lines = Files.readAllLines(Paths.get(ALLOCATIONS_CSV));
-            for(int i = 1; i < lines.size(); i++) {
-                String[] parts = lines.get(i).split(",");
-                if(parts.length >= 4) {
-                    try {
-                        String routeId = parts[1].trim();
-                        String vehicleId = parts[2].trim();
-                        double cost = Double.parseDouble(parts[3].trim());
-                        
-                        Route route = routes.stream().filter(r -> r.id.equals(routeId)).findFirst().orElse(null);
-                        Vehicle vehicle = vehicles.stream().filter(v -> v.id.equals(vehicleId)).findFirst().orElse(null);
-                        
-                        if(route != null && vehicle != null) {
-                            allocations.add(new Allocation(route, vehicle, cost));
-                        }
-                    } catch(NumberFormatException e) {
-                        System.out.println("⚠ Skipping invalid allocation record: " + lines.get(i));
-                    }
-                }
+            FileTime bin = Files.getLastModifiedTime(Paths.get(SNAPSHOT_BIN));
+            for(String csv : new String[] {VEHICLES_CSV, ROUTES_CSV, ALLOCATIONS_CSV, MULTI_DELIVERY_CSV}) {
+                Path p = Paths.get(csv);
+                if(Files.exists(p) && Files.getLastModifiedTime(p).compareTo(bin) > 0) return false;
             }
+            return true;
         } catch(IOException e) {
-            // File doesn't exist yet, which is fine
+            return false;
         }
     }
     
-    static void loadMultiStopDeliveriesFromCSV() {
+    static boolean loadBinarySnapshot() {
         try {
-            if (!Files.exists(Paths.get(MULTI_DELIVERY_CSV))) return;
-            // Simplified loading - full implementation in production
-        } catch(Exception e) {
-            // File doesn't exist yet, which is fine
+            BinarySnapshot.Data data = BinarySnapshot.read(Paths.get(SNAPSHOT_BIN));
+            data.vehicles.forEach(TransportLogisticSystem2::addVehicleRecord);
+            data.routes.forEach(TransportLogisticSystem2::addRouteRecord);
+            data.allocations.forEach(TransportLogisticSystem2::addAllocationRecord);
+            data.deliveries.forEach(TransportLogisticSystem2::addDeliveryRecord);
+            return true;
+        } catch(IOException e) {
+            System.out.println("⚠ Ignoring binary snapshot (" + e.getMessage() + "), loading CSV files");
+            return false;
         }
     }
     
+    /**
+     * Streams a CSV file line by line, skipping the header, and hands each
+     * scanned row to the handler. Returns the number of data rows read.
+     */
+    static long streamCSV(String file, Consumer<CsvFields> handler) {
+        long rows = 0;
+        if (!Files.exists(Paths.get(file))) return rows;
+        
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(file))) {
+            CsvFields row = new CsvFields();
+            String line = in.readLine();
+            while((line = in.readLine()) != null) {
+                row.parse(line);
+                handler.accept(row);
+                rows++;
+            }
+        } catch(IOException e) {
+            System.out.println("⚠ Could not read " + file + ": " + e.getMessage());
+        }
+        return rows;
+    }
+    
+    /**
+     * Loads road segments (From,To,Distance) into the road network.
+     */
+    static void loadRoadGraph() {
+        long start = System.nanoTime();
+        streamCSV(ROADS_CSV, row -> {
+            if(row.count() < 3) return;
+            try {
+                double km = row.number(2);
+                if(km >= 0) roadGraph.addRoad(row.text(0), row.text(1), km);
+            } catch(NumberFormatException e) {
+                System.out.println("⚠ Skipping invalid road record: " + row.line());
+            }
+        });
+        if(roadGraph.roadCount() > 0) {
+            System.out.printf("🛣 Road network: %d cities, %d road segments (%.0f ms)%n", 
+                roadGraph.cityCount(), roadGraph.roadCount(), (System.nanoTime() - start) / 1e6);
+        }
+    }
+    
+    /**
+     * Optional departure column: epoch millis, or 0 when the row is shorter
+     * or the field empty. Throws DateTimeException on a malformed time.
+     */
+    static long parseDeparture(CsvFields row, int i) {
+        if(i >= row.count()) return 0;
+        String text = row.text(i);
+        return text.isEmpty() ? 0 : Timestamps.parse(text);
+    }
+    
+    static String formatDeparture(long departure) {
+        return departure > 0 ? Timestamps.format(departure) : "";
+    }
+    
+    /**
+     * Loads city coordinates (City,Latitude,Longitude) for dispatch.
+     */
+    static void loadCityLocations() {
+        streamCSV(CITIES_CSV, row -> {
+            if(row.count() < 3) return;
+            try {
+                double lat = row.number(1), lon = row.number(2);
+                if(Math.abs(lat) <= 90 && Math.abs(lon) <= 180) {
+                    cityLocations.put(row.text(0).toLowerCase(), new double[] {lat, lon});
+                }
+            } catch(NumberFormatException e) {
+                System.out.println("⚠ Skipping invalid city record: " + row.line());
+            }
+        });
+        if(!cityLocations.isEmpty()) {
+            System.out.printf("📍 City coordinates: %d cities, %d located vehicles%n", 
+                cityLocations.size(), dispatcher().located());
+        }
+    }
+    
+    static double[] cityLocation(String city) {
+        return cityLocations.get(city.toLowerCase());
+    }
+    
+    /**
+     * A known city name or "lat,lon"; null if neither.
+     */
+    static double[] parseLocation(String text) {
+        double[] city = cityLocation(text);
+        if(city != null) return city;
+        String[] parts = text.split(",");
+        if(parts.length != 2) return null;
+        try {
+            double lat = Double.parseDouble(parts[0].trim()), lon = Double.parseDouble(parts[1].trim());
+            return Math.abs(lat) <= 90 && Math.abs(lon) <= 180 ? new double[] {lat, lon} : null;
+        } catch(NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Reads the vehicles file into a columnar store without creating
+     * Vehicle objects (batch mode). Invalid rows are skipped as usual.
+     */
+    static FleetStore loadFleetStoreFromCSV(String file) {
+        FleetStore store = new FleetStore(1024);
+        streamCSV(file, row -> {
+            if(row.count() < 5) return;
+            try {
+                byte type = row.equalsIgnoreCase(1, "Truck") ? FleetStore.TRUCK : FleetStore.VAN;
+                store.add(row.text(0), type, row.number(2), row.number(3), row.number(4));
+            } catch(NumberFormatException e) {
+                System.out.println("⚠ Skipping invalid vehicle record: " + row.line());
+            }
+        });
+        return store;
+    }
+    
+    static long loadVehiclesFromCSV(String file) {
+        return streamCSV(file, row -> {
+            if(row.count() < 5) return;
+            try {
+                String id = row.text(0);
+                double cap = row.number(2);
+                double mile = row.number(3);
+                double rate = row.number(4);
+                
+                Vehicle v = row.equalsIgnoreCase(1, "Truck") ? new Truck(id, cap, mile, rate) : new Van(id, cap, mile, rate);
+                addVehicleRecord(v.locate(row.numberOr(5, Double.NaN), row.numberOr(6, Double.NaN)));
+            } catch(NumberFormatException e) {
+                System.out.println("⚠ Skipping invalid vehicle record: " + row.line());
+            }
+        });
+    }
+    
+    static long loadRoutesFromCSV(String file) {
+        return streamCSV(file, row -> {
+            if(row.count() < 5) return;
+            try {
+                double dist = row.number(1);
+                double cargo = row.number(2);
+                Route r = new Route(row.text(0), dist, cargo, row.text(3), row.text(4));
+                r.departure = parseDeparture(row, 5);
+                addRouteRecord(r);
+            } catch(NumberFormatException | DateTimeException e) {
+                System.out.println("⚠ Skipping invalid route record: " + row.line());
+            }
+        });
+    }
+    
+    static long loadAllocationsFromCSV(String file) {
+        return streamCSV(file, row -> {
+            if(row.count() < 4) return;
+            try {
+                double cost = row.number(3);
+                Route route = routesById.get(row.text(1));
+                Vehicle vehicle = vehiclesById.get(row.text(2));
+                
+                if(route != null && vehicle != null) {
+                    if(row.count() >= 7) {
+                        addAllocationRecord(new Allocation((int) row.number(0), route, vehicle, cost, Timestamps.parse(row.text(4)),
+                            row.number(5), (int) row.number(6)));
+                    } else if(row.count() >= 5) {
+                        addAllocationRecord(new Allocation((int) row.number(0), route, vehicle, cost, Timestamps.parse(row.text(4))));
+                    } else {
+                        addAllocationRecord(new Allocation(route, vehicle, cost));
+                    }
+                }
+            } catch(NumberFormatException | DateTimeException e) {
+                System.out.println("⚠ Skipping invalid allocation record: " + row.line());
+            }
+        });
+    }
+    
+    static long loadMultiStopDeliveriesFromCSV(String file) {
+        return streamCSV(file, row -> {
+            if(row.count() < 7) return;
+            try {
+                Vehicle vehicle = vehiclesById.get(row.text(1));
+                if(vehicle != null) {
+                    long timestamp = Timestamps.parse(row.text(6));
+                    long departure = parseDeparture(row, 7);
+                    MultiStopDelivery d = new MultiStopDelivery(row.text(0), vehicle, parseStops(row.text(2)), 
+                        row.number(4), row.number(3), row.number(5), timestamp, departure > 0 ? departure : timestamp);
+                    if(row.count() > 8) d.routes = row.text(8);
+                    addDeliveryRecord(d);
+                }
+            } catch(NumberFormatException | DateTimeException e) {
+                System.out.println("⚠ Skipping invalid multi-stop delivery record: " + row.line());
+            }
+        });
+    }
+    
+    /**
+     * Decodes the Stops column: city:distance:cargo entries joined with '|',
+     * '|', ':' and backslash in a city escaped as in CsvFields.escape. Older files
+     * hold bare city names; those stops load with zero distance and cargo
+     * (the delivery totals are still exact). Older unescaped cities with a
+     * ':' still load, the last two ':' being the separators.
+     */
+    static List<Stop> parseStops(String field) {
+        List<Stop> stops = new ArrayList<>();
+        if(field.isEmpty()) return stops;
+        for(String entry : CsvFields.split(field, '|')) {
+            List<String> parts = CsvFields.split(entry, ':');
+            int n = parts.size();
+            if(n < 3) {
+                stops.add(new Stop(CsvFields.unescape(entry), 0, 0));
+            } else {
+                stops.add(new Stop(CsvFields.unescape(String.join(":", parts.subList(0, n - 2))), 
+                    Double.parseDouble(parts.get(n - 2)), Double.parseDouble(parts.get(n - 1))));
+            }
+        }
+        return stops;
+    }
+    
     static void saveAllDataToCSV() {
-        saveVehiclesToCSV();
-        saveRoutesToCSV();
-        saveAllocationsToCSV();
-        saveMultiStopDeliveriesToCSV();
+        if(journal != null) journal.stopCompaction();
+        compactJournal(true);
         System.out.println("✅ All data saved to CSV files");
     }
     
-    static void saveVehiclesToCSV() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(VEHICLES_CSV))) {
-            writer.println("ID,Type,Capacity,Mileage,Rate");
-            for(Vehicle v : vehicles) {
-                writer.printf("%s,%s,%.1f,%.2f,%.2f%n", 
-                    v.id, v.getType(), v.capacity, v.mileage, v.rate);
+    // ==================== JOURNAL ====================
+    
+    /**
+     * Replays journaled work on top of the CSV snapshot, folds it into a new
+     * snapshot if there was any, then opens the live journal and schedules
+     * background compaction every COMPACT_SECONDS.
+     */
+    static void openJournal() {
+        long replayed = replayJournal();
+        try {
+            journal = Journal.open(JOURNAL_FILE);
+        } catch(IOException e) {
+            System.out.println("⚠ Journal unavailable, changes are saved on exit only: " + e.getMessage());
+            return;
+        }
+        if(replayed > 0) {
+            System.out.println("✅ Recovered " + replayed + " journaled change(s)\n");
+            compactJournal(false);
+        }
+        journal.startCompaction(COMPACT_SECONDS, () -> {
+            if(journal.pendingRecords() > 0) compactJournal(false);
+        });
+    }
+    
+    static void closeJournal() {
+        if(journal == null) return;
+        try {
+            journal.close();
+        } catch(IOException e) {
+            System.out.println("⚠ Could not close journal: " + e.getMessage());
+        }
+    }
+    
+    static long replayJournal() {
+        Set<String> deliveries = new HashSet<>();
+        for(MultiStopDelivery d : multiStopDeliveries) deliveries.add(d.deliveryId + "@" + Timestamps.format(d.timestamp));
+        // Allocation IDs are taken when an Allocation is built, outside the
+        // journal lock, so concurrent confirmations can journal them out of order
+        Set<Integer> allocationIds = new HashSet<>();
+        for(Allocation a : allocations) allocationIds.add(a.allocationId);
+        
+        return Journal.replay(JOURNAL_FILE, row -> {
+            try {
+                switch(row.text(0)) {
+                    case "V" -> {
+                        if(row.count() < 6 || vehiclesById.containsKey(row.text(1))) return;
+                        String id = row.text(1);
+                        Vehicle v = row.equalsIgnoreCase(2, "Truck")
+                            ? new Truck(id, row.number(3), row.number(4), row.number(5))
+                            : new Van(id, row.number(3), row.number(4), row.number(5));
+                        addVehicleRecord(v.locate(row.numberOr(6, Double.NaN), row.numberOr(7, Double.NaN)));
+                    }
+                    case "R" -> {
+                        if(row.count() < 6 || routesById.containsKey(row.text(1))) return;
+                        Route r = new Route(row.text(1), row.number(2), row.number(3), row.text(4), row.text(5));
+                        r.departure = parseDeparture(row, 6);
+                        addRouteRecord(r);
+                    }
+                    case "A" -> {
+                        if(row.count() < 6) return;
+                        int id = (int) row.number(1);
+                        Route route = routesById.get(row.text(2));
+                        Vehicle vehicle = vehiclesById.get(row.text(3));
+                        if(route == null || vehicle == null || !allocationIds.add(id)) return;
+                        if(row.count() >= 8) {
+                            addAllocationRecord(new Allocation(id, route, vehicle, row.number(4), Timestamps.parse(row.text(5)),
+                                row.number(6), (int) row.number(7)));
+                        } else {
+                            addAllocationRecord(new Allocation(id, route, vehicle, row.number(4), Timestamps.parse(row.text(5))));
+                        }
+                    }
+                    case "M" -> {
+                        if(row.count() < 8) return;
+                        String key = row.text(1) + "@" + row.text(6);
+                        Vehicle vehicle = vehiclesById.get(row.text(2));
+                        int stopCount = (int) row.number(7);
+                        if(vehicle == null || row.count() < 8 + 3 * stopCount || !deliveries.add(key)) return;
+                        List<Stop> stops = new ArrayList<>(stopCount);
+                        for(int k = 0; k < stopCount; k++) {
+                            int f = 8 + 3 * k;
+                            stops.add(new Stop(row.text(f), row.number(f + 1), row.number(f + 2)));
+                        }
+                        long timestamp = Timestamps.parse(row.text(6));
+                        long departure = parseDeparture(row, 8 + 3 * stopCount);
+                        MultiStopDelivery d = new MultiStopDelivery(row.text(1), vehicle, stops, 
+                            row.number(4), row.number(3), row.number(5), timestamp, departure > 0 ? departure : timestamp);
+                        if(row.count() > 9 + 3 * stopCount) d.routes = row.text(9 + 3 * stopCount);
+                        addDeliveryRecord(d);
+                    }
+                    default -> System.out.println("⚠ Skipping unknown journal record: " + row.line());
+                }
+            } catch(NumberFormatException | DateTimeException e) {
+                System.out.println("⚠ Skipping invalid journal record: " + row.line());
             }
-            if(vehicles.size() > 0) System.out.println("📄 vehicles.csv saved");
+        });
+    }
+    
+    /**
+     * Folds the journal into the CSV snapshot: freezes a copy of the data
+     * and rotates the journal under dataLock, writes the four CSV files
+     * (and snapshot.bin) from the copy, then drops the rotated journal.
+     */
+    static synchronized void compactJournal(boolean verbose) {
+        long start = Metrics.start();
+        List<Vehicle> vs;
+        List<Route> rs;
+        List<Allocation> as;
+        List<MultiStopDelivery> ds;
+        synchronized(dataLock) {
+            vs = new ArrayList<>(vehicles);
+            rs = new ArrayList<>(routes);
+            as = new ArrayList<>(allocations);
+            ds = new ArrayList<>(multiStopDeliveries);
+            try {
+                if(journal != null) journal.rotate();
+            } catch(IOException e) {
+                System.out.println("❌ Journal rotation failed: " + e.getMessage());
+                return;
+            }
+        }
+        
+        boolean ok = saveVehiclesToCSV(VEHICLES_CSV, vs, verbose);
+        ok &= saveRoutesToCSV(ROUTES_CSV, rs, verbose);
+        ok &= saveAllocationsToCSV(ALLOCATIONS_CSV, as, verbose);
+        ok &= saveMultiStopDeliveriesToCSV(MULTI_DELIVERY_CSV, ds, verbose);
+        
+        if(ok && BINARY_SNAPSHOT) {
+            try {
+                BinarySnapshot.write(Paths.get(SNAPSHOT_BIN), vs, rs, as, ds);
+                if(verbose) System.out.println("📄 snapshot.bin saved");
+            } catch(IOException e) {
+                System.out.println("⚠ Could not write snapshot.bin: " + e.getMessage());
+            }
+        }
+        
+        if(ok && Metrics.ENABLED) {
+            SAVE_SECONDS.recordSince(start);
+            long bytes = 0;
+            String[] written = {VEHICLES_CSV, ROUTES_CSV, ALLOCATIONS_CSV, MULTI_DELIVERY_CSV, SNAPSHOT_BIN};
+            for(String file : written) {
+                try {
+                    if(Files.exists(Paths.get(file))) bytes += Files.size(Paths.get(file));
+                } catch(IOException e) {
+                    // Size is informational only
+                }
+            }
+            SAVE_BYTES.add(bytes);
+            LAST_SAVE_BYTES.set(bytes);
+        }
+        
+        if(ok && journal != null) {
+            try {
+                journal.discardRotated();
+            } catch(IOException e) {
+                System.out.println("⚠ Could not remove compacted journal: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Writes through a temp file and renames it over the target, so a crash
+     * mid-write never leaves a truncated snapshot behind.
+     */
+    static PrintWriter snapshotWriter(String file) throws IOException {
+        return new PrintWriter(Files.newBufferedWriter(Paths.get(file + ".tmp")));
+    }
+    
+    static void checkWritten(PrintWriter writer, String file) throws IOException {
+        if(writer.checkError()) throw new IOException("could not write " + file);
+    }
+    
+    static void publishSnapshot(String file) throws IOException {
+        Files.move(Paths.get(file + ".tmp"), Paths.get(file), 
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    // ---------- CSV rows, shared by the save methods and WorkloadGenerator ----------
+    
+    static void writeVehicleRow(PrintWriter writer, Vehicle v) {
+        if(v.hasLocation()) {
+            writer.printf("%s,%s,%.1f,%.2f,%.2f,%.6f,%.6f%n", 
+                CsvFields.quote(v.id), v.getType(), v.capacity, v.mileage, v.rate, v.latitude, v.longitude);
+        } else {
+            writer.printf("%s,%s,%.1f,%.2f,%.2f,,%n", 
+                CsvFields.quote(v.id), v.getType(), v.capacity, v.mileage, v.rate);
+        }
+    }
+    
+    static void writeRouteRow(PrintWriter writer, Route r) {
+        writer.printf("%s,%.1f,%.1f,%s,%s,%s%n", 
+            CsvFields.quote(r.id), r.distance, r.cargoAmount, CsvFields.quote(r.source), CsvFields.quote(r.destination), 
+            formatDeparture(r.departure));
+    }
+    
+    // Stops as city:distance:cargo joined with '|' (cities escaped), numbers
+    // at full precision; the Stops field is quoted only if a city needs it
+    static StringBuilder appendDeliveryRow(StringBuilder sb, MultiStopDelivery d) {
+        sb.append(CsvFields.quote(d.deliveryId)).append(',').append(CsvFields.quote(d.vehicle.id)).append(',');
+        int stopsAt = sb.length();
+        for(int i = 0; i < d.stops.size(); i++) {
+            Stop s = d.stops.get(i);
+            if(i > 0) sb.append('|');
+            CsvFields.escape(sb, s.city, "|:").append(':').append(s.distance).append(':').append(s.cargo);
+        }
+        if(CsvFields.needsQuotes(sb, stopsAt, sb.length())) {
+            String stops = sb.substring(stopsAt);
+            sb.setLength(stopsAt);
+            sb.append(CsvFields.quote(stops));
+        }
+        return sb.append(',').append(d.totalDistance).append(',').append(d.totalCargo)
+            .append(',').append(d.cost).append(',').append(Timestamps.format(d.timestamp))
+            .append(',').append(Timestamps.format(d.departure)).append(',').append(CsvFields.quote(d.routes));
+    }
+    
+    static boolean saveVehiclesToCSV(String file, List<Vehicle> vehicles, boolean verbose) {
+        try {
+            try (PrintWriter writer = snapshotWriter(file)) {
+                writer.println(VEHICLES_HEADER);
+                for(Vehicle v : vehicles) writeVehicleRow(writer, v);
+                checkWritten(writer, file);
+            }
+            publishSnapshot(file);
+            if(verbose && vehicles.size() > 0) System.out.println("📄 " + file + " saved");
+            return true;
         } catch(IOException e) {
-            System.out.println("❌ Error saving vehicles.csv: " + e.getMessage());
+            System.out.println("❌ Error saving " + file + ": " + e.getMessage());
+            return false;
         }
     }
     
-    static void saveRoutesToCSV() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(ROUTES_CSV))) {
-            writer.println("ID,Distance,Cargo,Source,Destination");
-            for(Route r : routes) {
-                writer.printf("%s,%.1f,%.1f,%s,%s%n", 
-                    r.id, r.distance, r.cargoAmount, r.source, r.destination);
+    static boolean saveRoutesToCSV(String file, List<Route> routes, boolean verbose) {
+        try {
+            try (PrintWriter writer = snapshotWriter(file)) {
+                writer.println(ROUTES_HEADER);
+                for(Route r : routes) writeRouteRow(writer, r);
+                checkWritten(writer, file);
             }
-            if(routes.size() > 0) System.out.println("📄 routes.csv saved");
+            publishSnapshot(file);
+            if(verbose && routes.size() > 0) System.out.println("📄 " + file + " saved");
+            return true;
         } catch(IOException e) {
-            System.out.println("❌ Error saving routes.csv: " + e.getMessage());
+            System.out.println("❌ Error saving " + file + ": " + e.getMessage());
+            return false;
         }
     }
     
-    static void saveAllocationsToCSV() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(ALLOCATIONS_CSV))) {
-            writer.println("ID,RouteID,VehicleID,Cost,Timestamp");
-            for(Allocation a : allocations) {
-                writer.printf("%d,%s,%s,%.2f,%s%n", 
-                    a.allocationId, a.route.id, a.vehicle.id, a.cost, a.timestamp);
+    static boolean saveAllocationsToCSV(String file, List<Allocation> allocations, boolean verbose) {
+        try {
+            try (PrintWriter writer = snapshotWriter(file)) {
+                writer.println(ALLOCATIONS_HEADER);
+                for(Allocation a : allocations) {
+                    writer.printf("%d,%s,%s,%.2f,%s,%.2f,%d%n", 
+                        a.allocationId, CsvFields.quote(a.route.id), CsvFields.quote(a.vehicle.id), a.cost, 
+                        Timestamps.format(a.timestamp), a.cargo, a.linkGroup);
+                }
+                checkWritten(writer, file);
             }
-            if(allocations.size() > 0) System.out.println("📄 allocations.csv saved");
+            publishSnapshot(file);
+            if(verbose && allocations.size() > 0) System.out.println("📄 " + file + " saved");
+            return true;
         } catch(IOException e) {
-            System.out.println("❌ Error saving allocations.csv: " + e.getMessage());
+            System.out.println("❌ Error saving " + file + ": " + e.getMessage());
+            return false;
         }
     }
     
-    static void saveMultiStopDeliveriesToCSV() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(MULTI_DELIVERY_CSV))) {
-            writer.println("DeliveryID,VehicleID,Stops,TotalDistance,TotalCargo,Cost,Timestamp");
-            for(MultiStopDelivery d : multiStopDeliveries) {
-                String stops = String.join("|", 
-                    d.stops.stream().map(s -> s.city).toArray(String[]::new));
-                writer.printf("%s,%s,%s,%.1f,%.0f,%.2f,%s%n", 
-                    d.deliveryId, d.vehicle.id, stops, d.totalDistance, d.totalCargo, d.cost, d.timestamp);
+    static boolean saveMultiStopDeliveriesToCSV(String file, List<MultiStopDelivery> deliveries, boolean verbose) {
+        try {
+            try (PrintWriter writer = snapshotWriter(file)) {
+                writer.println(DELIVERIES_HEADER);
+                StringBuilder sb = new StringBuilder(256);
+                for(MultiStopDelivery d : deliveries) {
+                    sb.setLength(0);
+                    writer.println(appendDeliveryRow(sb, d));
+                }
+                checkWritten(writer, file);
             }
-            if(multiStopDeliveries.size() > 0) System.out.println("📄 multi_stop_deliveries.csv saved");
+            publishSnapshot(file);
+            if(verbose && deliveries.size() > 0) System.out.println("📄 " + file + " saved");
+            return true;
         } catch(IOException e) {
-            System.out.println("❌ Error saving multi_stop_deliveries.csv: " + e.getMessage());
+            System.out.println("❌ Error saving " + file + ": " + e.getMessage());
+            return false;
         }
     }
 }
@@ -616,6 +2231,7 @@ public class TransportLogisticSystem2 {
 class Route {
     String id, source, destination;
     double distance, cargoAmount;
+    long departure;   // epoch millis; 0 = leaves when allocated
     
     Route(String id, double d, double c, String s, String dest) {
         this.id = id;
@@ -642,6 +2258,7 @@ class Route {
 abstract class Vehicle {
     String id;
     double capacity, mileage, rate;
+    double latitude = Double.NaN, longitude = Double.NaN;   // current location, NaN if unknown
     
     Vehicle(String id, double c, double m, double r) {
         this.id = id;
@@ -650,6 +2267,16 @@ abstract class Vehicle {
         this.rate = r;
     }
     
+    Vehicle locate(double lat, double lon) {
+        this.latitude = lat;
+        this.longitude = lon;
+        return this;
+    }
+    
+    boolean hasLocation() {
+        return !Double.isNaN(latitude) && !Double.isNaN(longitude);
+    }
+    
     abstract String getType();
 }
 
@@ -682,17 +2309,49 @@ class MultiStopDelivery {
     Vehicle vehicle;
     List<Stop> stops;
     double totalCargo, totalDistance, cost;
-    String timestamp;
+    long timestamp;   // epoch millis, see Timestamps
+    long departure;   // epoch millis; the vehicle is booked from here
+    String routes = "";   // IDs of the routes a consolidated trip carries, see joinRouteIds
     
     MultiStopDelivery(String id, Vehicle v, List<Stop> s, double cargo, double dist, double c) {
+        this(id, v, s, cargo, dist, c, Timestamps.now());
+    }
+    
+    // Restores a recorded delivery with its original timestamp
+    MultiStopDelivery(String id, Vehicle v, List<Stop> s, double cargo, double dist, double c, long timestamp) {
+        this(id, v, s, cargo, dist, c, timestamp, timestamp);
+    }
+    
+    MultiStopDelivery(String id, Vehicle v, List<Stop> s, double cargo, double dist, double c, long timestamp, long departure) {
         this.deliveryId = id;
         this.vehicle = v;
         this.stops = s;
         this.totalCargo = cargo;
         this.totalDistance = dist;
         this.cost = c;
-        this.timestamp = LocalDateTime.now()
-            .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        this.timestamp = timestamp;
+        this.departure = departure;
+    }
+    
+    List<String> routeIds() {
+        return splitRouteIds(routes);
+    }
+    
+    // Route IDs joined with '|', a '|' or backslash inside an ID escaped with a backslash
+    static String joinRouteIds(List<String> ids) {
+        StringBuilder sb = new StringBuilder();
+        for(String id : ids) {
+            if(sb.length() > 0) sb.append('|');
+            CsvFields.escape(sb, id, "|");
+        }
+        return sb.toString();
+    }
+    
+    static List<String> splitRouteIds(String routes) {
+        if(routes.isEmpty()) return List.of();
+        List<String> ids = CsvFields.split(routes, '|');
+        ids.replaceAll(CsvFields::unescape);
+        return ids;
     }
 }
 
@@ -708,41 +2367,57 @@ class Stop {
     }
 }
 
-// ==================== COST ALLOCATION ====================
-
-class CostPair implements Comparable<CostPair> {
-    double cost;
-    Route route;
-    Vehicle vehicle;
-    
-    CostPair(double c, Route r, Vehicle v) { 
-        this.cost = c;
-        this.route = r;
-        this.vehicle = v;
-    }
-    
-    @Override
-    public int compareTo(CostPair other) {
-        return Double.compare(this.cost, other.cost);
-    }
-}
-
 // ==================== ALLOCATION RECORD ====================
 
 class Allocation {
-    static int counter = 1001;
+    static final AtomicInteger counter = new AtomicInteger(1001);
     int allocationId;
     Route route;
     Vehicle vehicle;
     double cost;
-    String timestamp;
+    long timestamp;   // epoch millis, see Timestamps
+    double cargo;     // kg carried; less than the route's cargo when split
+    int linkGroup;    // first allocation ID of a split shipment, 0 if not split
     
     Allocation(Route r, Vehicle v, double c) {
-        this.allocationId = counter++;
+        this(counter.getAndIncrement(), r, v, c, Timestamps.now());
+    }
+    
+    // One part of a split shipment
+    Allocation(Route r, Vehicle v, double c, double cargo, int linkGroup) {
+        this(counter.getAndIncrement(), r, v, c, Timestamps.now(), cargo, linkGroup);
+    }
+    
+    // Restores a recorded allocation; the counter moves past its ID
+    Allocation(int id, Route r, Vehicle v, double c, long timestamp) {
+        this(id, r, v, c, timestamp, r.cargoAmount, 0);
+    }
+    
+    Allocation(int id, Route r, Vehicle v, double c, long timestamp, double cargo, int linkGroup) {
+        this.allocationId = id;
         this.route = r;
         this.vehicle = v;
         this.cost = c;
-        this.timestamp = LocalDateTime.now()
-            .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        this.timestamp = timestamp;
+        this.cargo = cargo;
+        this.linkGroup = linkGroup;
+        counter.accumulateAndGet(id + 1, Math::max);
+    }
+    
+    boolean isSplit() {
+        return linkGroup != 0;
+    }
+    
+    /**
+     * One allocation per vehicle of the plan, linked by the first one's ID.
+     */
+    static List<Allocation> split(Route r, SplitLoadPlanner.Plan plan) {
+        List<Allocation> parts = new ArrayList<>(plan.size());
+        for(int i = 0; i < plan.size(); i++) {
+            int id = counter.getAndIncrement();
+            int group = parts.isEmpty() ? id : parts.get(0).allocationId;
+            parts.add(new Allocation(id, r, plan.vehicles.get(i), plan.cost[i], Timestamps.now(), plan.cargo[i], group));
+        }
+        return parts;
     }
 }
@@ -112,30 +112,23 @@ public class TransportLogisticsSystem2 {
     static void calculateBestMatches() {
         System.out.println("\n=== Route Planning (Best Match) ===");
         
+        // Index the fleet once per pass: sorted by capacity with suffix minimums on cost per km
+        CapacityIndex fleet = new CapacityIndex(vehicles);
+        
         // Loop through every route
         for (Route r : routes) {
-            // Use a PriorityQueue to automatically keep track of the lowest cost match
-            // The CostPair class ensures sorting by the lowest cost first.
-            PriorityQueue<CostPair> bestMatches = new PriorityQueue<>();
-            
-            // Loop through every available vehicle
-            for (Vehicle v : vehicles) {
-                // Capacity Constraint Check:
-                if (v.capacity >= r.cargoAmount) {
-                    double cost = calculateCost(r, v);
-                    bestMatches.add(new CostPair(cost, r, v));
-                }
-            }
+            // Capacity Constraint Check: only vehicles with capacity >= cargo are considered
+            Vehicle cheapest = fleet.cheapestFor(r.cargoAmount);
             
             System.out.println("---");
             System.out.printf("Route %s (%s -> %s | Cargo: %.1f kg)%n", 
                 r.id, r.source, r.destination, r.cargoAmount);
             
-            if (bestMatches.isEmpty()) {
+            if (cheapest == null) {
                 System.out.println("  > ERROR: No vehicle has sufficient capacity for this route.");
             } else {
-                // The head of the PriorityQueue is the lowest cost match
-                CostPair best = bestMatches.poll();
+                // The suffix minimum over feasible vehicles is the lowest cost match
+                CostPair best = new CostPair(calculateCost(r, cheapest), r, cheapest);
                 
                 // Display the best match
                 System.out.printf("  > Best Match: %s (%s)%n", best.vehicle.id, best.vehicle.getType());
@@ -143,15 +136,69 @@ public class TransportLogisticsSystem2 {
                 System.out.printf("  > Surplus Capacity: %.1f kg%n", (best.vehicle.capacity - r.cargoAmount));
                 
                 // Display the next best match (if available)
-                if (!bestMatches.isEmpty()) {
-                     CostPair nextBest = bestMatches.poll();
+                Vehicle runnerUp = fleet.secondCheapestFor(r.cargoAmount);
+                if (runnerUp != null) {
+                     CostPair nextBest = new CostPair(calculateCost(r, runnerUp), r, runnerUp);
                      System.out.printf("  > Next Best Match: %s (Cost: $%.2f)%n", nextBest.vehicle.id, nextBest.cost);
                 }
             }
         }
     }
     
-    
+    /**
+     * Fleet sorted by capacity, with the cheapest and second cheapest vehicle
+     * (rate / mileage) among all slots at or above each slot, so the best
+     * feasible vehicle for a cargo is one binary search.
+     */
+    static class CapacityIndex {
+        final Vehicle[] byCapacity;
+        final int[] suffixBest, suffixSecond;
+        
+        CapacityIndex(List<Vehicle> vehicles) {
+            int n = vehicles.size();
+            byCapacity = vehicles.toArray(new Vehicle[0]);
+            Arrays.sort(byCapacity, Comparator.comparingDouble(v -> v.capacity));
+            suffixBest = new int[n];
+            suffixSecond = new int[n];
+            int best = -1, second = -1;
+            for(int i = n - 1; i >= 0; i--) {
+                if(best == -1 || costPerKm(i) < costPerKm(best)) {
+                    second = best;
+                    best = i;
+                } else if(second == -1 || costPerKm(i) < costPerKm(second)) {
+                    second = i;
+                }
+                suffixBest[i] = best;
+                suffixSecond[i] = second;
+            }
+        }
+        
+        double costPerKm(int i) {
+            return byCapacity[i].rate / byCapacity[i].mileage;
+        }
+        
+        // First slot whose capacity covers the cargo
+        int firstFeasible(double cargo) {
+            int lo = 0, hi = byCapacity.length;
+            while(lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if(byCapacity[mid].capacity >= cargo) hi = mid;
+                else lo = mid + 1;
+            }
+            return lo;
+        }
+        
+        Vehicle cheapestFor(double cargo) {
+            int i = firstFeasible(cargo);
+            return i < byCapacity.length ? byCapacity[suffixBest[i]] : null;
+        }
+        
+        Vehicle secondCheapestFor(double cargo) {
+            int i = firstFeasible(cargo);
+            if(i >= byCapacity.length || suffixSecond[i] == -1) return null;
+            return byCapacity[suffixSecond[i]];
+        }
+    }
 }
 
 // Data classes (same as before)
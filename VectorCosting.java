@@ -0,0 +1,50 @@
+import jdk.incubator.vector.*;
+
+// ==================== SIMD FLEET COSTING ====================
+
+/**
+ * FleetCosting kernel on the incubating Vector API, one preferred-width
+ * vector of vehicles per step (8 doubles with AVX-512, 4 with AVX2). The
+ * capacity check is a lane mask that blends +Infinity into the costs, and
+ * a running lane-wise minimum gives the cheapest cost; a second pass finds
+ * its first index, normally within the first few vectors it compares.
+ * Loaded only through FleetCosting, when the module is present.
+ */
+class VectorCosting implements FleetCosting.Kernel {
+    private static final VectorSpecies<Double> S = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public int costAll(double distance, double cargo, double[] capacity, double[] mileage, double[] rate,
+                       int n, double[] cost) {
+        DoubleVector dist = DoubleVector.broadcast(S, distance);
+        DoubleVector none = DoubleVector.broadcast(S, Double.POSITIVE_INFINITY);
+        DoubleVector min = none;
+        int upper = S.loopBound(n), i = 0;
+        for(; i < upper; i += S.length()) {
+            VectorMask<Double> fits = DoubleVector.fromArray(S, capacity, i).compare(VectorOperators.GE, cargo);
+            DoubleVector c = dist.div(DoubleVector.fromArray(S, mileage, i)).mul(DoubleVector.fromArray(S, rate, i));
+            c = none.blend(c, fits);
+            c.intoArray(cost, i);
+            min = min.min(c);
+        }
+        double best = min.reduceLanes(VectorOperators.MIN);
+        for(; i < n; i++) {
+            double c = capacity[i] >= cargo ? distance / mileage[i] * rate[i] : Double.POSITIVE_INFINITY;
+            cost[i] = c;
+            if(c < best) best = c;
+        }
+        if(best == Double.POSITIVE_INFINITY) return -1;
+
+        for(i = 0; i < upper; i += S.length()) {
+            VectorMask<Double> hit = DoubleVector.fromArray(S, cost, i).compare(VectorOperators.EQ, best);
+            if(hit.anyTrue()) return i + hit.firstTrue();
+        }
+        for(; i < n; i++) if(cost[i] == best) return i;
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "vector (" + S.length() + " x double)";
+    }
+}
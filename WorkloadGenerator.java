@@ -0,0 +1,294 @@
+import java.io.*;
+import java.nio.file.*;
+import java.time.DateTimeException;
+import java.util.*;
+
+// ==================== SYNTHETIC WORKLOAD ====================
+
+/**
+ * Seeded generator for scale testing (java ... TransportLogisticSystem2
+ * --generate=SIZE). Writes a fleet, routes and multi-stop deliveries in the
+ * application's own CSV formats, plus cities.csv and roads.csv for the
+ * cities used, into a directory the application can then be started in.
+ *
+ * Every row is a pure function of (seed, file, row number), so output is
+ * reproducible and rows are generated and written one at a time: memory
+ * stays flat from 10^3 to 10^7 rows and beyond.
+ *
+ *   - Cities: 40 Indian cities with coordinates and rough populations.
+ *   - Vehicles: 60% vans (500-3500 kg, 8-16 km/l), 40% trucks in the
+ *     usual classes (7.5-31 t, 2.5-6 km/l), diesel at ₹88-108/l, parked
+ *     near a city picked by population.
+ *   - Routes: source by population, destination by a gravity model
+ *     (population / distance^1.5), 10% local runs; road km are 1.3x the
+ *     great-circle distance. Cargo is log-normal around 2 t.
+ *   - Deliveries: 2-8 stops chained by the same gravity model, cargo within
+ *     the vehicle's capacity, spread over --days from --start.
+ */
+class WorkloadGenerator {
+    static final double ROAD_FACTOR = 1.3;
+    static final double LOCAL_SHARE = 0.10;
+    static final int ROAD_NEIGHBOURS = 4;
+
+    // City, latitude, longitude, population (millions)
+    static final Object[][] CITIES = {
+        {"Delhi", 28.6139, 77.2090, 32.9}, {"Mumbai", 19.0760, 72.8777, 21.3}, {"Kolkata", 22.5726, 88.3639, 15.3},
+        {"Bangalore", 12.9716, 77.5946, 13.6}, {"Chennai", 13.0827, 80.2707, 11.8}, {"Hyderabad", 17.3850, 78.4867, 10.8},
+        {"Ahmedabad", 23.0225, 72.5714, 8.6}, {"Pune", 18.5204, 73.8567, 7.2}, {"Surat", 21.1702, 72.8311, 7.8},
+        {"Jaipur", 26.9124, 75.7873, 4.2}, {"Lucknow", 26.8467, 80.9462, 3.9}, {"Kanpur", 26.4499, 80.3319, 3.2},
+        {"Nagpur", 21.1458, 79.0882, 3.0}, {"Indore", 22.7196, 75.8577, 3.3}, {"Bhopal", 23.2599, 77.4126, 2.6},
+        {"Patna", 25.5941, 85.1376, 2.6}, {"Vadodara", 22.3072, 73.1812, 2.3}, {"Ludhiana", 30.9010, 75.8573, 1.9},
+        {"Agra", 27.1767, 78.0081, 2.0}, {"Nashik", 19.9975, 73.7898, 2.1}, {"Varanasi", 25.3176, 82.9739, 1.7},
+        {"Coimbatore", 11.0168, 76.9558, 2.9}, {"Kochi", 9.9312, 76.2673, 3.2}, {"Visakhapatnam", 17.6868, 83.2185, 2.3},
+        {"Madurai", 9.9252, 78.1198, 1.7}, {"Rajkot", 22.3039, 70.8022, 2.1}, {"Guwahati", 26.1445, 91.7362, 1.2},
+        {"Chandigarh", 30.7333, 76.7794, 1.2}, {"Raipur", 21.2514, 81.6296, 1.4}, {"Ranchi", 23.3441, 85.3096, 1.5},
+        {"Bhubaneswar", 20.2961, 85.8245, 1.2}, {"Amritsar", 31.6340, 74.8723, 1.3}, {"Jodhpur", 26.2389, 73.0243, 1.4},
+        {"Vijayawada", 16.5062, 80.6480, 1.7}, {"Mysore", 12.2958, 76.6394, 1.2}, {"Dehradun", 30.3165, 78.0322, 0.9},
+        {"Mangalore", 12.9141, 74.8560, 0.7}, {"Thiruvananthapuram", 8.5241, 76.9366, 1.7}, {"Goa", 15.4909, 73.8278, 0.6},
+        {"Jammu", 32.7266, 74.8570, 0.7},
+    };
+
+    // Standard truck classes (kg) and their typical mileage range (km/l)
+    static final double[][] TRUCK_CLASSES = {{7500, 5.0, 6.0}, {10000, 4.0, 5.0}, {16000, 3.5, 4.5}, {25000, 3.0, 4.0}, {31000, 2.5, 3.5}};
+
+    final long seed;
+    final long start;           // epoch millis of the first delivery
+    final long spanMillis;
+    final int n = CITIES.length;
+    final String[] name = new String[n];
+    final double[] lat = new double[n], lon = new double[n];
+    final double[][] roadKm = new double[n][n];
+    final double[] byPopulation = new double[n];    // cumulative weights
+    final double[][] byGravity = new double[n][n];  // cumulative weights per source
+    long vehicles, deliveries;  // row counts; deliveries pick vehicles by row and spread over the span
+
+    WorkloadGenerator(long seed, long start, int days) {
+        this.seed = seed;
+        this.start = start;
+        this.spanMillis = days * 86_400_000L;
+        double total = 0;
+        for(int i = 0; i < n; i++) {
+            name[i] = (String) CITIES[i][0];
+            lat[i] = (Double) CITIES[i][1];
+            lon[i] = (Double) CITIES[i][2];
+            total += (Double) CITIES[i][3];
+            byPopulation[i] = total;
+        }
+        for(int i = 0; i < n; i++) {
+            double sum = 0;
+            for(int j = 0; j < n; j++) {
+                roadKm[i][j] = Math.round(GeoIndex.km(lat[i], lon[i], lat[j], lon[j]) * ROAD_FACTOR * 10) / 10.0;
+                if(j != i) sum += (Double) CITIES[j][3] / Math.pow(roadKm[i][j], 1.5);
+                byGravity[i][j] = sum;
+            }
+        }
+    }
+
+    // ---------- rows: pure functions of (seed, stream, row) ----------
+
+    private SplittableRandom rng(int stream, long row) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L ^ ((long) stream << 58) ^ row * 0xBF58476D1CE4E5B9L);
+    }
+
+    private static int pick(double[] cumulative, SplittableRandom rnd) {
+        double x = rnd.nextDouble() * cumulative[cumulative.length - 1];
+        int i = Arrays.binarySearch(cumulative, x);
+        return i >= 0 ? i + 1 : -i - 1;
+    }
+
+    private int destination(int from, SplittableRandom rnd) {
+        return Math.min(n - 1, pick(byGravity[from], rnd));
+    }
+
+    private static double logNormal(SplittableRandom rnd, double median, double sigma, double min, double max) {
+        double x = median * Math.exp(sigma * rnd.nextGaussian());
+        return Math.max(min, Math.min(max, x));
+    }
+
+    Vehicle vehicle(long i) {
+        SplittableRandom rnd = rng(1, i);
+        String id = "V" + (i + 1);
+        double rate = Math.round((88 + rnd.nextDouble() * 20) * 100) / 100.0;
+        Vehicle v;
+        if(rnd.nextDouble() < 0.6) {
+            v = new Van(id, 500 + 50 * rnd.nextInt(61), Math.round((8 + rnd.nextDouble() * 8) * 100) / 100.0, rate);
+        } else {
+            double[] c = TRUCK_CLASSES[rnd.nextInt(TRUCK_CLASSES.length)];
+            v = new Truck(id, c[0], Math.round((c[1] + rnd.nextDouble() * (c[2] - c[1])) * 100) / 100.0, rate);
+        }
+        int base = pick(byPopulation, rnd);
+        return v.locate(lat[base] + (rnd.nextDouble() - 0.5) * 0.3, lon[base] + (rnd.nextDouble() - 0.5) * 0.3);
+    }
+
+    Route route(long i) {
+        SplittableRandom rnd = rng(2, i);
+        int from = pick(byPopulation, rnd);
+        double cargo = Math.round(logNormal(rnd, 2000, 0.9, 50, 30000));
+        if(rnd.nextDouble() < LOCAL_SHARE) {
+            return new Route("R" + (i + 1), 10 + rnd.nextInt(51), cargo, name[from], name[from]);
+        }
+        int to = destination(from, rnd);
+        return new Route("R" + (i + 1), roadKm[from][to], cargo, name[from], name[to]);
+    }
+
+    MultiStopDelivery delivery(long i) {
+        SplittableRandom rnd = rng(3, i);
+        Vehicle v = vehicle(rnd.nextLong(vehicles));
+        int count = 2 + Math.min(6, (int) (-Math.log(1 - rnd.nextDouble()) * 2));
+        double load = v.capacity * (0.3 + rnd.nextDouble() * 0.6);
+        List<Stop> stops = new ArrayList<>(count);
+        double distance = 0, cargo = 0;
+        int at = pick(byPopulation, rnd);
+        for(int s = 0; s < count; s++) {
+            // The first drop is local, the rest follow the gravity model
+            int next = s == 0 ? at : destination(at, rnd);
+            double km = s == 0 ? 5 + rnd.nextInt(40) : roadKm[at][next];
+            double drop = Math.max(1, Math.round(load / count * (0.5 + rnd.nextDouble())));
+            if(cargo + drop > v.capacity) drop = Math.max(0, Math.floor(v.capacity - cargo));
+            stops.add(new Stop(name[next], km, drop));
+            distance += km;
+            cargo += drop;
+            at = next;
+        }
+        long timestamp = start + (long) ((i + rnd.nextDouble()) / Math.max(1, deliveries) * spanMillis);
+        long departure = timestamp + rnd.nextLong(48 * 3_600_000L);
+        return new MultiStopDelivery("D" + (i + 1), v, stops, cargo, distance,
+            TransportLogisticSystem2.calculateMultiStopCost(v, distance), timestamp, departure);
+    }
+
+    // ---------- writing ----------
+
+    interface RowWriter {
+        void write(PrintWriter out, long row);
+    }
+
+    static long writeFile(Path file, String header, long rows, RowWriter rowWriter) throws IOException {
+        long began = System.nanoTime();
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(Files.newBufferedWriter(file), 1 << 16))) {
+            out.println(header);
+            for(long i = 0; i < rows; i++) rowWriter.write(out, i);
+            if(out.checkError()) throw new IOException("could not write " + file);
+        }
+        double seconds = (System.nanoTime() - began) / 1e9;
+        System.out.printf("📄 %-28s %,12d rows | %6.2f s | %,10.0f rows/sec | %,8.1f MB%n", file.getFileName(), rows,
+            seconds, rows / Math.max(seconds, 1e-9), Files.size(file) / 1e6);
+        return rows;
+    }
+
+    void writeAll(Path dir, long vehicles, long routes, long deliveries) throws IOException {
+        this.vehicles = vehicles;
+        this.deliveries = deliveries;
+        writeFile(dir.resolve(TransportLogisticSystem2.CITIES_CSV), "City,Latitude,Longitude", n,
+            (out, i) -> out.printf("%s,%.4f,%.4f%n", name[(int) i], lat[(int) i], lon[(int) i]));
+        // Each city joined to its nearest few, enough to connect the network
+        Set<Integer> joined = new HashSet<>();
+        List<String> roads = new ArrayList<>();
+        for(int i = 0; i < n; i++) {
+            Integer[] order = new Integer[n];
+            for(int j = 0; j < n; j++) order[j] = j;
+            int from = i;
+            Arrays.sort(order, Comparator.comparingDouble(j -> roadKm[from][j]));
+            for(int k = 1; k <= ROAD_NEIGHBOURS; k++) {
+                int j = order[k];
+                if(joined.add(Math.min(i, j) * n + Math.max(i, j))) roads.add(name[i] + "," + name[j] + "," + roadKm[i][j]);
+            }
+        }
+        writeFile(dir.resolve(TransportLogisticSystem2.ROADS_CSV), "From,To,Distance", roads.size(),
+            (out, i) -> out.println(roads.get((int) i)));
+        writeFile(dir.resolve(TransportLogisticSystem2.VEHICLES_CSV), TransportLogisticSystem2.VEHICLES_HEADER, vehicles,
+            (out, i) -> TransportLogisticSystem2.writeVehicleRow(out, vehicle(i)));
+        writeFile(dir.resolve(TransportLogisticSystem2.ROUTES_CSV), TransportLogisticSystem2.ROUTES_HEADER, routes,
+            (out, i) -> TransportLogisticSystem2.writeRouteRow(out, route(i)));
+        StringBuilder sb = new StringBuilder(256);
+        writeFile(dir.resolve(TransportLogisticSystem2.MULTI_DELIVERY_CSV), TransportLogisticSystem2.DELIVERIES_HEADER, deliveries,
+            (out, i) -> {
+                sb.setLength(0);
+                out.println(TransportLogisticSystem2.appendDeliveryRow(sb, delivery(i)));
+            });
+    }
+
+    // ---------- command line ----------
+
+    /**
+     * --generate=SIZE [--vehicles=N] [--routes=N] [--deliveries=N] [--seed=N]
+     * [--dir=PATH] [--start=yyyy-MM-dd] [--days=N]. SIZE sets vehicles and
+     * routes, and a tenth of it deliveries; counts take 10^6 or 1e6 forms.
+     */
+    static void run(String[] args) {
+        long size, vehicles = -1, routes = -1, deliveries = -1, seed = 42;
+        String dir = "generated", startDay = "2024-01-01";
+        int days = 90;
+        try {
+            size = count(args[0].substring("--generate=".length()));
+            for(int i = 1; i < args.length; i++) {
+                String arg = args[i];
+                String value = arg.substring(arg.indexOf('=') + 1);
+                if(arg.startsWith("--vehicles=")) vehicles = count(value);
+                else if(arg.startsWith("--routes=")) routes = count(value);
+                else if(arg.startsWith("--deliveries=")) deliveries = count(value);
+                else if(arg.startsWith("--seed=")) seed = Long.parseLong(value);
+                else if(arg.startsWith("--dir=")) dir = value;
+                else if(arg.startsWith("--start=")) startDay = value;
+                else if(arg.startsWith("--days=")) days = Math.max(1, Integer.parseInt(value));
+                else {
+                    System.out.println("❌ Unknown option: " + arg);
+                    return;
+                }
+            }
+        } catch(RuntimeException e) {
+            System.out.println("❌ Invalid option value: " + e.getMessage());
+            System.out.println("   Usage: --generate=SIZE [--vehicles=N] [--routes=N] [--deliveries=N] [--seed=N] [--dir=PATH] [--start=yyyy-MM-dd] [--days=N]");
+            return;
+        }
+        if(vehicles < 0) vehicles = size;
+        if(routes < 0) routes = size;
+        if(deliveries < 0) deliveries = size / 10;
+        if(deliveries > 0 && vehicles == 0) {
+            System.out.println("❌ Deliveries need at least one vehicle!");
+            return;
+        }
+        long start;
+        try {
+            start = TransportLogisticSystem2.parseSearchTime(startDay, false);
+        } catch(DateTimeException e) {
+            System.out.println("❌ Invalid start day: " + startDay);
+            return;
+        }
+
+        Path out = Paths.get(dir);
+        for(String file : new String[] {TransportLogisticSystem2.CITIES_CSV, TransportLogisticSystem2.ROADS_CSV,
+                TransportLogisticSystem2.VEHICLES_CSV, TransportLogisticSystem2.ROUTES_CSV, TransportLogisticSystem2.MULTI_DELIVERY_CSV}) {
+            if(Files.exists(out.resolve(file))) {
+                System.out.println("❌ " + out.resolve(file) + " already exists; choose another --dir");
+                return;
+            }
+        }
+        System.out.printf("🏭 Generating %,d vehicles, %,d routes, %,d deliveries (seed %d) into %s%n",
+            vehicles, routes, deliveries, seed, out.toAbsolutePath());
+        long began = System.nanoTime();
+        try {
+            Files.createDirectories(out);
+            new WorkloadGenerator(seed, start, days).writeAll(out, vehicles, routes, deliveries);
+        } catch(IOException e) {
+            System.out.println("❌ Error writing workload: " + e.getMessage());
+            return;
+        }
+        System.out.printf("✅ Workload written in %.2f s%n", (System.nanoTime() - began) / 1e9);
+    }
+
+    // "1000000", "1_000_000", "10^6" or "1e6"
+    static long count(String text) {
+        String t = text.trim().replace("_", "");
+        long n;
+        if(t.contains("^")) {
+            String[] parts = t.split("\\^");
+            n = Math.round(Math.pow(Double.parseDouble(parts[0]), Double.parseDouble(parts[1])));
+        } else if(t.toLowerCase().contains("e")) {
+            n = Math.round(Double.parseDouble(t));
+        } else {
+            n = Long.parseLong(t);
+        }
+        if(n < 0) throw new NumberFormatException(text + " is negative");
+        return n;
+    }
+}
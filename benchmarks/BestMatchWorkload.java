@@ -0,0 +1,100 @@
+import java.util.*;
+
+// Default-package side of bench.BestMatchBenchmark
+public class BestMatchWorkload implements bench.Workloads.BestMatch {
+    List<Vehicle> vehicles;
+    List<Route> routes;
+    Route[] routeArray;
+    FleetIndex fleet;
+    FleetStore store;
+    double[] cargo, distance, cost, scanCargo;
+    int[] slot;
+
+    @Override
+    public void setup(int size) {
+        vehicles = Fleets.vehicles(size, 1);
+        routes = Fleets.routes(size, 2);
+        routeArray = routes.toArray(new Route[0]);
+        fleet = new FleetIndex(vehicles);
+        store = FleetStore.of(vehicles);
+        store.index();
+        cargo = new double[size];
+        distance = new double[size];
+        for(int i = 0; i < size; i++) {
+            cargo[i] = routeArray[i].cargoAmount;
+            distance[i] = routeArray[i].distance;
+        }
+        cost = new double[size];
+        slot = new int[size];
+        scanCargo = new double[SCAN_QUERIES];
+        for(int i = 0; i < SCAN_QUERIES; i++) scanCargo[i] = cargo[i % size];
+    }
+
+    static final int SCAN_QUERIES = 16;
+
+    @Override
+    public Object buildFleetIndex() {
+        return new FleetIndex(vehicles);
+    }
+
+    @Override
+    public Object bestMatchSequential() {
+        Vehicle[] best = new Vehicle[routeArray.length];
+        MatchPlanner.match(routeArray, fleet, best, 0, routeArray.length);
+        return best;
+    }
+
+    @Override
+    public Object bestMatchParallel() {
+        return MatchPlanner.computeBestMatches(routes, fleet);
+    }
+
+    @Override
+    public double calculateCost() {
+        double total = 0;
+        for(Route r : routeArray) {
+            Vehicle v = fleet.cheapestFor(r.cargoAmount);
+            if(v != null) total += TransportLogisticSystem2.calculateCost(r, v);
+        }
+        return total;
+    }
+
+    @Override
+    public Object buildFleetStore() {
+        FleetStore s = FleetStore.of(vehicles);
+        s.index();
+        return s;
+    }
+
+    @Override
+    public Object bestMatchColumnar() {
+        store.match(cargo, distance, slot, cost, 0, cargo.length);
+        return slot;
+    }
+
+    @Override
+    public int linearScanColumnar() {
+        int sum = 0;
+        for(double c : scanCargo) sum += store.cheapestScan(c);
+        return sum;
+    }
+
+    @Override
+    public int linearScanObjects() {
+        int sum = 0;
+        for(double c : scanCargo) {
+            Vehicle best = null;
+            double bestCost = Double.POSITIVE_INFINITY;
+            for(Vehicle v : vehicles) {
+                if(v.capacity < c) continue;
+                double k = v.rate / v.mileage;
+                if(k < bestCost) {
+                    best = v;
+                    bestCost = k;
+                }
+            }
+            if(best != null) sum += best.id.length();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,59 @@
+import java.util.*;
+
+// Default-package side of bench.BulkCostBenchmark: one route re-costed
+// against the whole fleet per call
+public class BulkCostWorkload implements bench.Workloads.BulkCost {
+    List<Vehicle> vehicles;
+    Route route;
+    double[] capacity, mileage, rate, cost;
+
+    @Override
+    public void setup(int size) {
+        vehicles = Fleets.vehicles(size, 1);
+        route = Fleets.routes(1, 2).get(0);
+        capacity = new double[size];
+        mileage = new double[size];
+        rate = new double[size];
+        cost = new double[size];
+        for(int i = 0; i < size; i++) {
+            Vehicle v = vehicles.get(i);
+            capacity[i] = v.capacity;
+            mileage[i] = v.mileage;
+            rate[i] = v.rate;
+        }
+    }
+
+    @Override
+    public String kernel() {
+        return FleetCosting.kernelKind;
+    }
+
+    @Override
+    public int costObjects() {
+        int best = -1;
+        double bestCost = Double.POSITIVE_INFINITY;
+        for(int i = 0; i < vehicles.size(); i++) {
+            Vehicle v = vehicles.get(i);
+            if(v.capacity < route.cargoAmount) {
+                cost[i] = Double.POSITIVE_INFINITY;
+                continue;
+            }
+            cost[i] = TransportLogisticSystem2.calculateCost(route, v);
+            if(cost[i] < bestCost) {
+                best = i;
+                bestCost = cost[i];
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public int costScalar() {
+        return FleetCosting.costScalar(route.distance, route.cargoAmount, capacity, mileage, rate, capacity.length, cost);
+    }
+
+    @Override
+    public int costKernel() {
+        return FleetCosting.costAll(route.distance, route.cargoAmount, capacity, mileage, rate, capacity.length, cost);
+    }
+}
@@ -0,0 +1,72 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+
+// Default-package side of bench.CsvBenchmark. Files go to a temp directory,
+// never the working directory's data files; loads clear the lists first.
+public class CsvWorkload implements bench.Workloads.Csv {
+    Path dir;
+    String vehiclesFile, routesFile, deliveriesFile;
+    List<Vehicle> vehicles;
+    List<Route> routes;
+    List<MultiStopDelivery> deliveries;
+
+    @Override
+    public void setup(int rows) throws IOException {
+        dir = Files.createTempDirectory("tls-bench");
+        vehiclesFile = dir.resolve("Vehicle.csv").toString();
+        routesFile = dir.resolve("routes.csv").toString();
+        deliveriesFile = dir.resolve("multi_stop_deliveries.csv").toString();
+        vehicles = Fleets.vehicles(rows, 1);
+        routes = Fleets.routes(rows, 2);
+        deliveries = Fleets.deliveries(rows / 10, 8, vehicles, 3);
+        saveVehicles();
+        saveRoutes();
+        saveMultiStopDeliveries();
+        loadVehicles();
+    }
+
+    @Override
+    public void tearDown() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for(Path p : files) Files.deleteIfExists(p);
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Override
+    public boolean saveVehicles() {
+        return TransportLogisticSystem2.saveVehiclesToCSV(vehiclesFile, vehicles, false);
+    }
+
+    @Override
+    public boolean saveRoutes() {
+        return TransportLogisticSystem2.saveRoutesToCSV(routesFile, routes, false);
+    }
+
+    @Override
+    public boolean saveMultiStopDeliveries() {
+        return TransportLogisticSystem2.saveMultiStopDeliveriesToCSV(deliveriesFile, deliveries, false);
+    }
+
+    @Override
+    public long loadVehicles() {
+        TransportLogisticSystem2.vehicles.clear();
+        TransportLogisticSystem2.vehiclesById.clear();
+        return TransportLogisticSystem2.loadVehiclesFromCSV(vehiclesFile);
+    }
+
+    @Override
+    public long loadRoutes() {
+        TransportLogisticSystem2.routes.clear();
+        TransportLogisticSystem2.routesById.clear();
+        return TransportLogisticSystem2.loadRoutesFromCSV(routesFile);
+    }
+
+    // Resolves vehicles through vehiclesById, filled once in setup
+    @Override
+    public long loadMultiStopDeliveries() {
+        TransportLogisticSystem2.multiStopDeliveries.clear();
+        return TransportLogisticSystem2.loadMultiStopDeliveriesFromCSV(deliveriesFile);
+    }
+}
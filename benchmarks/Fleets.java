@@ -0,0 +1,75 @@
+import java.util.*;
+
+// ==================== SYNTHETIC BENCHMARK DATA ====================
+
+/**
+ * Seeded fleets, routes and deliveries shaped like the CSV data: trucks
+ * and vans of 500-20000 kg, routes of 10-2000 km carrying 50-15000 kg.
+ */
+class Fleets {
+    static final String[] CITIES = {
+        "Delhi", "Mumbai", "Bangalore", "Chennai", "Kolkata", "Hyderabad", "Pune", "Jaipur",
+        "Ahmedabad", "Lucknow", "Surat", "Nagpur", "Indore", "Bhopal", "Patna", "Kochi"
+    };
+
+    static List<Vehicle> vehicles(int n, long seed) {
+        Random rnd = new Random(seed);
+        List<Vehicle> out = new ArrayList<>(n);
+        for(int i = 0; i < n; i++) {
+            double cap = 500 + rnd.nextInt(19_501);
+            double mileage = 3 + rnd.nextDouble() * 12;
+            double rate = 90 + rnd.nextDouble() * 20;
+            out.add(rnd.nextBoolean()
+                ? new Truck("V" + i, cap, mileage, rate)
+                : new Van("V" + i, cap, mileage, rate));
+        }
+        return out;
+    }
+
+    static List<Route> routes(int n, long seed) {
+        Random rnd = new Random(seed);
+        List<Route> out = new ArrayList<>(n);
+        for(int i = 0; i < n; i++) {
+            String src = CITIES[rnd.nextInt(CITIES.length)];
+            String dst = CITIES[rnd.nextInt(CITIES.length)];
+            out.add(new Route("R" + i, 10 + rnd.nextInt(1991), 50 + rnd.nextInt(14_951), src, dst));
+        }
+        return out;
+    }
+
+    static List<MultiStopDelivery> deliveries(int n, int stopsEach, List<Vehicle> fleet, long seed) {
+        Random rnd = new Random(seed);
+        List<MultiStopDelivery> out = new ArrayList<>(n);
+        for(int i = 0; i < n; i++) {
+            List<Stop> stops = new ArrayList<>(stopsEach);
+            double distance = 0, cargo = 0;
+            for(int s = 0; s < stopsEach; s++) {
+                Stop stop = new Stop(CITIES[rnd.nextInt(CITIES.length)], 5 + rnd.nextInt(300), 10 + rnd.nextInt(200));
+                stops.add(stop);
+                distance += stop.distance;
+                cargo += stop.cargo;
+            }
+            Vehicle v = fleet.get(rnd.nextInt(fleet.size()));
+            out.add(new MultiStopDelivery("D" + i, v, stops, cargo, distance, 
+                TransportLogisticSystem2.calculateMultiStopCost(v, distance), Timestamps.parse("2024-01-01 00:00:00")));
+        }
+        return out;
+    }
+
+    /**
+     * Symmetric distance matrix over random points; index 0 is the depot.
+     */
+    static double[][] stopMatrix(int stops, long seed) {
+        Random rnd = new Random(seed);
+        double[] x = new double[stops + 1], y = new double[stops + 1];
+        for(int i = 0; i <= stops; i++) {
+            x[i] = rnd.nextDouble() * 1000;
+            y[i] = rnd.nextDouble() * 1000;
+        }
+        double[][] dist = new double[stops + 1][stops + 1];
+        for(int i = 0; i <= stops; i++) {
+            for(int j = 0; j <= stops; j++) dist[i][j] = Math.hypot(x[i] - x[j], y[i] - y[j]);
+        }
+        return dist;
+    }
+}
@@ -0,0 +1,29 @@
+import java.util.*;
+
+// Default-package side of bench.MultiStopBenchmark
+public class MultiStopWorkload implements bench.Workloads.MultiStop {
+    List<MultiStopDelivery> deliveries;
+    double[][] matrix;
+
+    @Override
+    public void setup(int stops) {
+        deliveries = Fleets.deliveries(1000, stops, Fleets.vehicles(100, 1), 2);
+        matrix = Fleets.stopMatrix(stops, 3);
+    }
+
+    @Override
+    public double costDeliveries() {
+        double total = 0;
+        for(MultiStopDelivery d : deliveries) {
+            double distance = 0;
+            for(Stop s : d.stops) distance += s.distance;
+            total += TransportLogisticSystem2.calculateMultiStopCost(d.vehicle, distance);
+        }
+        return total;
+    }
+
+    @Override
+    public int[] optimizeStopOrder() {
+        return StopOptimizer.optimize(matrix);
+    }
+}
@@ -0,0 +1,69 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compute phase of calculateBestMatches: cheapest feasible vehicle for
+ * every route, with fleets and route lists of the same size. The columnar
+ * variants run the same work over a FleetStore; the linear scans answer
+ * 16 queries without an index, over columns and over Vehicle objects.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BestMatchBenchmark {
+    @Param({"1000", "10000", "100000"})
+    int size;
+
+    Workloads.BestMatch w;
+
+    @Setup
+    public void setup() {
+        w = Workloads.load("BestMatchWorkload");
+        w.setup(size);
+    }
+
+    @Benchmark
+    public Object buildFleetIndex() {
+        return w.buildFleetIndex();
+    }
+
+    @Benchmark
+    public Object bestMatchSequential() {
+        return w.bestMatchSequential();
+    }
+
+    @Benchmark
+    public Object bestMatchParallel() {
+        return w.bestMatchParallel();
+    }
+
+    @Benchmark
+    public double calculateCost() {
+        return w.calculateCost();
+    }
+
+    @Benchmark
+    public Object buildFleetStore() {
+        return w.buildFleetStore();
+    }
+
+    @Benchmark
+    public Object bestMatchColumnar() {
+        return w.bestMatchColumnar();
+    }
+
+    @Benchmark
+    public int linearScanColumnar() {
+        return w.linearScanColumnar();
+    }
+
+    @Benchmark
+    public int linearScanObjects() {
+        return w.linearScanObjects();
+    }
+}
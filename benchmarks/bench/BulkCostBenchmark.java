@@ -0,0 +1,46 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Re-costing a whole fleet against one route with a capacity mask and
+ * argmin: calculateCost over Vehicle objects, the scalar column loop, and
+ * FleetCosting's kernel. The fork loads jdk.incubator.vector so the kernel
+ * is the SIMD one; run with -jvmArgsAppend -Dcosting.vector=false to
+ * compare against the scalar fallback through the same entry point.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class BulkCostBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    Workloads.BulkCost w;
+
+    @Setup
+    public void setup() {
+        w = Workloads.load("BulkCostWorkload");
+        w.setup(size);
+        System.out.println("costing kernel: " + w.kernel());
+    }
+
+    @Benchmark
+    public int costObjects() {
+        return w.costObjects();
+    }
+
+    @Benchmark
+    public int costScalar() {
+        return w.costScalar();
+    }
+
+    @Benchmark
+    public int costKernel() {
+        return w.costKernel();
+    }
+}
@@ -0,0 +1,62 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * CSV snapshot save/load throughput (routes and vehicles: rows each;
+ * multi-stop deliveries: rows / 10 with 8 stops).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvBenchmark {
+    @Param({"10000", "100000"})
+    int rows;
+
+    Workloads.Csv w;
+
+    @Setup
+    public void setup() throws Exception {
+        w = Workloads.load("CsvWorkload");
+        w.setup(rows);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        w.tearDown();
+    }
+
+    @Benchmark
+    public boolean saveVehicles() {
+        return w.saveVehicles();
+    }
+
+    @Benchmark
+    public boolean saveRoutes() {
+        return w.saveRoutes();
+    }
+
+    @Benchmark
+    public boolean saveMultiStopDeliveries() {
+        return w.saveMultiStopDeliveries();
+    }
+
+    @Benchmark
+    public long loadVehicles() {
+        return w.loadVehicles();
+    }
+
+    @Benchmark
+    public long loadRoutes() {
+        return w.loadRoutes();
+    }
+
+    @Benchmark
+    public long loadMultiStopDeliveries() {
+        return w.loadMultiStopDeliveries();
+    }
+}
@@ -0,0 +1,37 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Multi-stop costing (leg sum + calculateMultiStopCost over 1000
+ * deliveries) and stop-order optimization of a single delivery.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiStopBenchmark {
+    @Param({"10", "50", "200"})
+    int stops;
+
+    Workloads.MultiStop w;
+
+    @Setup
+    public void setup() {
+        w = Workloads.load("MultiStopWorkload");
+        w.setup(stops);
+    }
+
+    @Benchmark
+    public double costDeliveries() {
+        return w.costDeliveries();
+    }
+
+    @Benchmark
+    public int[] optimizeStopOrder() {
+        return w.optimizeStopOrder();
+    }
+}
@@ -0,0 +1,58 @@
+package bench;
+
+/**
+ * The application lives in the default package, which code in a named
+ * package cannot reference, while JMH only accepts benchmarks in a named
+ * package. Each benchmark therefore drives a default-package workload
+ * through one of these interfaces, loaded by class name once per trial.
+ * The call is monomorphic and inlined by the JIT.
+ */
+public final class Workloads {
+    private Workloads() {}
+
+    public interface BestMatch {
+        void setup(int size);
+        Object buildFleetIndex();
+        Object bestMatchSequential();
+        Object bestMatchParallel();
+        double calculateCost();
+        Object buildFleetStore();
+        Object bestMatchColumnar();
+        int linearScanColumnar();
+        int linearScanObjects();
+    }
+
+    public interface Csv {
+        void setup(int rows) throws Exception;
+        void tearDown() throws Exception;
+        boolean saveVehicles();
+        boolean saveRoutes();
+        boolean saveMultiStopDeliveries();
+        long loadVehicles();
+        long loadRoutes();
+        long loadMultiStopDeliveries();
+    }
+
+    public interface BulkCost {
+        void setup(int size);
+        String kernel();
+        int costObjects();
+        int costScalar();
+        int costKernel();
+    }
+
+    public interface MultiStop {
+        void setup(int stops);
+        double costDeliveries();
+        int[] optimizeStopOrder();
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T load(String className) {
+        try {
+            return (T) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch(ReflectiveOperationException e) {
+            throw new IllegalStateException("missing workload " + className, e);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssignmentSolverTest {
+
+    @Test
+    void exactSolveMatchesBruteForce() {
+        Random rnd = new Random(42);
+        for(int trial = 0; trial < 500; trial++) {
+            List<Route> routes = randomRoutes(rnd, 1 + rnd.nextInt(6));
+            List<Vehicle> vehicles = randomFleet(rnd, 1 + rnd.nextInt(7));
+
+            AssignmentSolver.Result res = AssignmentSolver.solve(routes, vehicles, vehicles.size());
+            assertTrue(res.exact);
+            assertValid(routes, vehicles, res);
+
+            double[] best = {0, 0};     // assigned, cost
+            search(routes, vehicles, (i, j) -> true, 0, new boolean[vehicles.size()], 0, 0, best);
+            assertEquals((int) best[0], res.assigned, "trial " + trial);
+            assertEquals(best[1], res.totalCost, 1e-6, "trial " + trial);
+        }
+    }
+
+    @Test
+    void bookedPairsAreNeverUsed() {
+        Random rnd = new Random(43);
+        for(int trial = 0; trial < 500; trial++) {
+            List<Route> routes = randomRoutes(rnd, 1 + rnd.nextInt(6));
+            List<Vehicle> vehicles = randomFleet(rnd, 1 + rnd.nextInt(7));
+            boolean[][] free = new boolean[routes.size()][vehicles.size()];
+            for(boolean[] row : free) for(int j = 0; j < row.length; j++) row[j] = rnd.nextInt(3) > 0;
+            AssignmentSolver.Availability availability = (i, j) -> free[i][j];
+
+            AssignmentSolver.Result res = AssignmentSolver.solve(routes, vehicles, vehicles.size(), availability);
+            assertValid(routes, vehicles, res);
+            for(int i = 0; i < routes.size(); i++) {
+                if(res.vehicleForRoute[i] >= 0) assertTrue(free[i][res.vehicleForRoute[i]], "trial " + trial);
+            }
+
+            double[] best = {0, 0};
+            search(routes, vehicles, availability, 0, new boolean[vehicles.size()], 0, 0, best);
+            assertEquals((int) best[0], res.assigned, "trial " + trial);
+            assertEquals(best[1], res.totalCost, 1e-6, "trial " + trial);
+
+            AssignmentSolver.Result sparse = AssignmentSolver.solve(routes, vehicles, 2, availability);
+            assertValid(routes, vehicles, sparse);
+            for(int i = 0; i < routes.size(); i++) {
+                if(sparse.vehicleForRoute[i] >= 0) assertTrue(free[i][sparse.vehicleForRoute[i]], "trial " + trial);
+            }
+        }
+    }
+
+    @Test
+    void sparseSolveKeepsFullCoverage() {
+        Random rnd = new Random(7);
+        List<Route> routes = randomRoutes(rnd, 300);
+        List<Vehicle> vehicles = randomFleet(rnd, 200);
+
+        AssignmentSolver.Result sparse = AssignmentSolver.solve(routes, vehicles, 8);
+        AssignmentSolver.Result exact = AssignmentSolver.solve(routes, vehicles, vehicles.size());
+        assertFalse(sparse.exact);
+        assertValid(routes, vehicles, sparse);
+        assertValid(routes, vehicles, exact);
+        assertEquals(exact.assigned, sparse.assigned);
+        assertTrue(sparse.totalCost >= exact.totalCost - 1e-6);
+    }
+
+    @Test
+    void noFeasiblePairLeavesRoutesUnassigned() {
+        List<Route> routes = List.of(new Route("R1", 100, 5000, "A", "B"));
+        List<Vehicle> vehicles = List.of(new Van("V1", 1000, 10, 100));
+
+        AssignmentSolver.Result res = AssignmentSolver.solve(routes, vehicles, 1);
+        assertEquals(0, res.assigned);
+        assertEquals(-1, res.vehicleForRoute[0]);
+        assertEquals(0, res.totalCost);
+    }
+
+    // Every assigned vehicle is used once, fits its cargo and is costed as calculateCost
+    private static void assertValid(List<Route> routes, List<Vehicle> vehicles, AssignmentSolver.Result res) {
+        Set<Integer> used = new HashSet<>();
+        double total = 0;
+        int assigned = 0;
+        for(int i = 0; i < routes.size(); i++) {
+            int j = res.vehicleForRoute[i];
+            if(j < 0) continue;
+            assertTrue(used.add(j), "vehicle used twice");
+            assertTrue(vehicles.get(j).capacity >= routes.get(i).cargoAmount);
+            total += TransportLogisticSystem2.calculateCost(routes.get(i), vehicles.get(j));
+            assigned++;
+        }
+        assertEquals(assigned, res.assigned);
+        assertEquals(total, res.totalCost, 1e-6);
+    }
+
+    // Most routes covered, then least cost, over every assignment
+    private static void search(List<Route> routes, List<Vehicle> vehicles, AssignmentSolver.Availability availability,
+                               int i, boolean[] used, int assigned, double cost, double[] best) {
+        if(i == routes.size()) {
+            if(assigned > best[0] || (assigned == best[0] && cost < best[1])) {
+                best[0] = assigned;
+                best[1] = cost;
+            }
+            return;
+        }
+        search(routes, vehicles, availability, i + 1, used, assigned, cost, best);
+        Route r = routes.get(i);
+        for(int j = 0; j < vehicles.size(); j++) {
+            Vehicle v = vehicles.get(j);
+            if(used[j] || v.capacity < r.cargoAmount || !availability.isFree(i, j)) continue;
+            used[j] = true;
+            search(routes, vehicles, availability, i + 1, used, assigned + 1, cost + TransportLogisticSystem2.calculateCost(r, v), best);
+            used[j] = false;
+        }
+    }
+
+    private static List<Route> randomRoutes(Random rnd, int n) {
+        List<Route> routes = new ArrayList<>();
+        for(int i = 0; i < n; i++) {
+            routes.add(new Route("R" + i, 10 + rnd.nextInt(990), 100 + rnd.nextInt(4900), "A", "B"));
+        }
+        return routes;
+    }
+
+    private static List<Vehicle> randomFleet(Random rnd, int n) {
+        List<Vehicle> vehicles = new ArrayList<>();
+        for(int i = 0; i < n; i++) {
+            double capacity = 500 + rnd.nextInt(4500), mileage = 3 + rnd.nextInt(15), rate = 80 + rnd.nextInt(40);
+            vehicles.add(rnd.nextBoolean() ? new Truck("T" + i, capacity, mileage, rate) : new Van("V" + i, capacity, mileage, rate));
+        }
+        return vehicles;
+    }
+}
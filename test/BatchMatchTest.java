@@ -0,0 +1,119 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.IntPredicate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchMatchTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void columnarPassAgreesWithTheObjectIndex() {
+        Random rnd = new Random(4);
+        List<Vehicle> vehicles = new ArrayList<>();
+        for(int i = 0; i < 400; i++) {
+            // Few distinct capacities and rates, so ties are common
+            double capacity = 500 * (1 + rnd.nextInt(10)), mileage = 5 + rnd.nextInt(4), rate = 90 + 5 * rnd.nextInt(3);
+            vehicles.add(rnd.nextBoolean() ? new Truck("T" + i, capacity, mileage, rate) : new Van("V" + i, capacity, mileage, rate));
+        }
+        FleetIndex index = new FleetIndex(vehicles);
+        FleetStore store = FleetStore.of(vehicles);
+
+        int count = 5000;
+        double[] cargo = new double[count], distance = new double[count], cost = new double[count];
+        int[] slot = new int[count];
+        for(int i = 0; i < count; i++) {
+            cargo[i] = 1 + rnd.nextInt(5600);
+            distance[i] = 10 + rnd.nextInt(900);
+        }
+
+        int saved = MatchPlanner.parallelism;
+        try {
+            for(int threads : new int[] {1, 4}) {
+                MatchPlanner.parallelism = threads;
+                Arrays.fill(slot, -2);
+                long feasibleBefore = MatchPlanner.FEASIBLE.count(), routesBefore = MatchPlanner.ROUTE_SECONDS.count();
+                MatchPlanner.computeBestMatches(cargo, distance, count, store, slot, cost);
+                // Every route counted once, whichever chunk it fell in
+                assertEquals(count, MatchPlanner.FEASIBLE.count() - feasibleBefore);
+                assertEquals(count, MatchPlanner.ROUTE_SECONDS.count() - routesBefore);
+                for(int i = 0; i < count; i++) {
+                    Vehicle want = index.cheapestFor(cargo[i]);
+                    if(want == null) {
+                        assertEquals(-1, slot[i]);
+                        continue;
+                    }
+                    assertEquals(want.id, store.id(slot[i]), "route " + i);
+                    assertEquals(store.cheapestScan(cargo[i]), slot[i]);
+                    Route r = new Route("R" + i, distance[i], cargo[i], "A", "B");
+                    assertEquals(TransportLogisticSystem2.calculateCost(r, want), cost[i]);
+                }
+            }
+        } finally {
+            MatchPlanner.parallelism = saved;
+        }
+    }
+
+    @Test
+    void filteredPicksMatchAFilteredScan() {
+        Random rnd = new Random(22);
+        List<Vehicle> vehicles = new ArrayList<>();
+        for(int i = 0; i < 300; i++) {
+            double capacity = 500 * (1 + rnd.nextInt(10)), mileage = 5 + rnd.nextInt(4), rate = 90 + 5 * rnd.nextInt(3);
+            vehicles.add(new Truck("T" + i, capacity, mileage, rate));
+        }
+        FleetStore store = FleetStore.of(vehicles);
+        FleetStore.Picker picker = store.new Picker();
+        boolean[] removed = new boolean[store.size()];
+        for(int n = 0; n < 2000; n++) {
+            double cargo = 1 + rnd.nextInt(5600);
+            int skip = rnd.nextInt(3);
+            IntPredicate usable = k -> k % 3 != skip;
+            assertPick(store, cargo, usable, store.cheapest(cargo, usable), "store pick " + n);
+            int got = picker.cheapest(cargo, usable);
+            assertPick(store, cargo, k -> usable.test(k) && !removed[k], got, "picker pick " + n);
+            if(got >= 0 && rnd.nextInt(4) == 0) {
+                picker.remove(got);
+                removed[got] = true;
+            }
+        }
+    }
+
+    // got is usable, fits and costs no more per km than any usable slot that fits
+    private static void assertPick(FleetStore store, double cargo, IntPredicate usable, int got, String what) {
+        double best = Double.POSITIVE_INFINITY;
+        for(int k = 0; k < store.size(); k++) {
+            if(usable.test(k) && store.capacity(k) >= cargo) best = Math.min(best, store.costPerKm(k));
+        }
+        if(best == Double.POSITIVE_INFINITY) {
+            assertEquals(-1, got, what);
+            return;
+        }
+        assertTrue(got >= 0 && usable.test(got) && store.capacity(got) >= cargo, what);
+        assertEquals(best, store.costPerKm(got), what);
+    }
+
+    @Test
+    void fleetStoreLoadsFromCsvSkippingBadRows() throws IOException {
+        Path file = dir.resolve("vehicles.csv");
+        Files.writeString(file, String.join("\n",
+            "VehicleID,Type,Capacity,Mileage,Rate",
+            "T1,Truck,8000,6,100",
+            "\"V, 2\",van,1200,14,98",
+            "X1,Truck,lots,6,100",
+            "short,row",
+            ""));
+
+        FleetStore store = TransportLogisticSystem2.loadFleetStoreFromCSV(file.toString());
+        assertEquals(2, store.size());
+        assertEquals("V, 2", store.id(1));
+        assertInstanceOf(Van.class, store.vehicle(1));
+        assertEquals(0, store.cheapest(5000));
+        assertEquals(-1, store.cheapest(9000));
+    }
+}
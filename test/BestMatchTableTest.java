@@ -0,0 +1,98 @@
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BestMatchTableTest {
+
+    @Test
+    void incrementalTableMatchesAFullRecompute() {
+        Random rnd = new Random(14);
+        for(int round = 0; round < 20; round++) {
+            List<Vehicle> vehicles = new ArrayList<>();
+            List<Route> routes = new ArrayList<>();
+            for(int i = rnd.nextInt(5); i > 0; i--) vehicles.add(randomVehicle(rnd, vehicles.size()));
+            for(int i = rnd.nextInt(5); i > 0; i--) routes.add(randomRoute(rnd, routes.size()));
+            BestMatchTable table = new BestMatchTable(vehicles, routes);
+
+            for(int step = 0; step < 400; step++) {
+                switch(rnd.nextInt(3)) {
+                    case 0 -> {
+                        Vehicle v = randomVehicle(rnd, vehicles.size());
+                        vehicles.add(v);
+                        table.addVehicle(v);
+                    }
+                    case 1 -> {
+                        Route r = randomRoute(rnd, routes.size());
+                        routes.add(r);
+                        table.addRoute(r);
+                    }
+                    default -> {
+                        // Routes the table hasn't seen are added by bestMatches itself
+                        Route r = randomRoute(rnd, routes.size());
+                        routes.add(r);
+                        table.bestMatches(List.of(r));
+                    }
+                }
+                if(step % 40 == 39) assertMatchesRecompute(table, vehicles, routes);
+            }
+            assertMatchesRecompute(table, vehicles, routes);
+            assertEquals(routes.size(), table.size());
+        }
+    }
+
+    @Test
+    void filteredLookupMatchesAFilteredIndex() {
+        Random rnd = new Random(15);
+        List<Vehicle> vehicles = new ArrayList<>();
+        List<Route> routes = new ArrayList<>();
+        BestMatchTable table = new BestMatchTable(vehicles, routes);
+        for(int i = 0; i < 200; i++) {
+            Vehicle v = randomVehicle(rnd, i);
+            vehicles.add(v);
+            table.addVehicle(v);
+            Route r = randomRoute(rnd, i);
+            routes.add(r);
+            table.addRoute(r);
+        }
+        FleetIndex index = new FleetIndex(vehicles);
+        for(Route r : routes) {
+            int skip = rnd.nextInt(3);
+            Vehicle got = table.bestFor(r, v -> Math.floorMod(v.id.hashCode(), 3) != skip);
+            Vehicle want = index.cheapestFor(r.cargoAmount, v -> Math.floorMod(v.id.hashCode(), 3) != skip);
+            assertSameCost(want, got, r.id);
+        }
+    }
+
+    private static void assertMatchesRecompute(BestMatchTable table, List<Vehicle> vehicles, List<Route> routes) {
+        FleetIndex index = new FleetIndex(vehicles);
+        Vehicle[] all = table.bestMatches(routes);
+        for(int i = 0; i < routes.size(); i++) {
+            Route r = routes.get(i);
+            Vehicle want = index.cheapestFor(r.cargoAmount);
+            assertSameCost(want, table.bestFor(r), r.id);
+            assertSame(table.bestFor(r), all[i]);
+        }
+    }
+
+    // Ties may go to a different vehicle; the cost per km must agree
+    private static void assertSameCost(Vehicle want, Vehicle got, String route) {
+        if(want == null) {
+            assertNull(got, route);
+            return;
+        }
+        assertNotNull(got, route);
+        assertEquals(want.rate / want.mileage, got.rate / got.mileage, route);
+    }
+
+    // Few distinct capacities, mileages and rates, so equal cargos and equal costs are common
+    private static Vehicle randomVehicle(Random rnd, int n) {
+        double capacity = 500 * (1 + rnd.nextInt(10)), mileage = 4 + rnd.nextInt(4), rate = 90 + 5 * rnd.nextInt(4);
+        return rnd.nextBoolean() ? new Truck("T" + n, capacity, mileage, rate) : new Van("V" + n, capacity, mileage, rate);
+    }
+
+    private static Route randomRoute(Random rnd, int n) {
+        return new Route("R" + n, 10 + rnd.nextInt(900), 250 * (1 + rnd.nextInt(22)), "A", "B");
+    }
+}
@@ -0,0 +1,79 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinarySnapshotTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsEveryColumn() throws IOException {
+        Vehicle truck = new Truck("T1", 8000, 6.5, 102.25).locate(18.52, 73.85);
+        Vehicle van = new Van("Vän, 2", 1200, 14, 98);
+        Route r1 = new Route("R1", 148.2, 6000, "Pune", "Mumbai");
+        r1.departure = 1_700_000_000_000L;
+        Route r2 = new Route("R2", 95, 900, "Pune", "Nashik");
+        Allocation whole = new Allocation(1001, r2, van, 664.6, 1_700_000_100_000L);
+        Allocation part = new Allocation(1002, r1, truck, 2331.2, 1_700_000_200_000L, 4500, 1002);
+        MultiStopDelivery d = new MultiStopDelivery("C1", truck,
+            List.of(new Stop("Pune", 0, 0), new Stop("Nashik", 95, 400), new Stop("Mumbai, Andheri", 170, 300)),
+            700, 265, 4145.4, 1_700_000_300_000L, 1_700_000_360_000L);
+        d.routes = "R2|R3";
+
+        Path file = dir.resolve("snapshot.bin");
+        BinarySnapshot.write(file, List.of(truck, van), List.of(r1, r2), List.of(whole, part), List.of(d));
+        BinarySnapshot.Data data = BinarySnapshot.read(file);
+
+        assertEquals(7, data.rows());
+        Vehicle t = data.vehicles.get(0), v = data.vehicles.get(1);
+        assertInstanceOf(Truck.class, t);
+        assertInstanceOf(Van.class, v);
+        assertEquals("Vän, 2", v.id);
+        assertEquals(102.25, t.rate);
+        assertEquals(18.52, t.latitude);
+        assertFalse(v.hasLocation());
+
+        Route dr1 = data.routes.get(0);
+        assertEquals("Mumbai", dr1.destination);
+        assertEquals(148.2, dr1.distance);
+        assertEquals(1_700_000_000_000L, dr1.departure);
+        assertEquals(0, data.routes.get(1).departure);
+
+        Allocation a = data.allocations.get(1);
+        assertEquals(1002, a.allocationId);
+        assertSame(dr1, a.route);
+        assertSame(t, a.vehicle);
+        assertEquals(4500, a.cargo);
+        assertTrue(a.isSplit());
+        assertEquals(1_700_000_200_000L, a.timestamp);
+        assertFalse(data.allocations.get(0).isSplit());
+
+        MultiStopDelivery dd = data.deliveries.get(0);
+        assertSame(t, dd.vehicle);
+        assertEquals(3, dd.stops.size());
+        assertEquals("Mumbai, Andheri", dd.stops.get(2).city);
+        assertEquals(400, dd.stops.get(1).cargo);
+        assertEquals(1_700_000_360_000L, dd.departure);
+        assertEquals(List.of("R2", "R3"), dd.routeIds());
+    }
+
+    @Test
+    void rejectsOtherVersionsAndTruncatedFiles() throws IOException {
+        Path file = dir.resolve("snapshot.bin");
+        BinarySnapshot.write(file, List.of(new Van("V1", 1000, 10, 100)), List.of(), List.of(), List.of());
+        byte[] bytes = Files.readAllBytes(file);
+
+        byte[] old = bytes.clone();
+        old[4] = (byte) (BinarySnapshot.VERSION - 1);
+        Files.write(file, old);
+        assertThrows(IOException.class, () -> BinarySnapshot.read(file));
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 6));
+        assertThrows(IOException.class, () -> BinarySnapshot.read(file));
+    }
+}
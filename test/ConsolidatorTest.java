@@ -0,0 +1,123 @@
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsolidatorTest {
+    private static final String[] SOURCES = {"Pune", "Mumbai", "Nagpur"};
+
+    @Test
+    void tripsFitUseEachVehicleOnceAndCostNoMoreThanSeparateRuns() {
+        Random rnd = new Random(19);
+        long saved = Consolidator.budgetMillis;
+        Consolidator.budgetMillis = 100;
+        try {
+            for(int trial = 0; trial < 60; trial++) {
+                Map<String, double[]> at = new HashMap<>();
+                List<Route> routes = randomRoutes(rnd, at, 1 + rnd.nextInt(40));
+                // Several of each vehicle, so giving every trip its own never forces a dearer one
+                List<Vehicle> vehicles = new ArrayList<>();
+                for(int copy = 0; copy < routes.size(); copy++) {
+                    vehicles.add(new Truck("T" + copy, 8000, 6, 100));
+                    vehicles.add(new Van("V" + copy, 1500, 14, 100));
+                }
+
+                Consolidator.Result res = Consolidator.consolidate(routes, new FleetIndex(vehicles), distances(at), (v, d) -> true);
+                assertPlansValid(routes, res, 8000);
+                assertTrue(res.noVehicle.isEmpty());
+                assertTrue(res.consolidatedCost <= res.separateCost + 1e-6,
+                    "trial " + trial + ": " + res.consolidatedCost + " > " + res.separateCost);
+            }
+        } finally {
+            Consolidator.budgetMillis = saved;
+        }
+    }
+
+    @Test
+    void busyAndScarceVehiclesAreNeverShared() {
+        Random rnd = new Random(20);
+        long saved = Consolidator.budgetMillis;
+        Consolidator.budgetMillis = 100;
+        try {
+            for(int trial = 0; trial < 60; trial++) {
+                Map<String, double[]> at = new HashMap<>();
+                List<Route> routes = randomRoutes(rnd, at, 1 + rnd.nextInt(40));
+                List<Vehicle> vehicles = new ArrayList<>();
+                for(int i = 1 + rnd.nextInt(6); i > 0; i--) {
+                    double capacity = 1000 + rnd.nextInt(9000), mileage = 4 + rnd.nextInt(12), rate = 90 + rnd.nextInt(20);
+                    vehicles.add(new Truck("T" + vehicles.size(), capacity, mileage, rate));
+                }
+                Set<Vehicle> busy = Collections.newSetFromMap(new IdentityHashMap<>());
+                for(Vehicle v : vehicles) if(rnd.nextInt(3) == 0) busy.add(v);
+                double largest = vehicles.stream().mapToDouble(v -> v.capacity).max().orElse(0);
+
+                Consolidator.Result res = Consolidator.consolidate(routes, new FleetIndex(vehicles), distances(at),
+                    (v, d) -> !busy.contains(v));
+                assertPlansValid(routes, res, largest);
+                for(Consolidator.Plan p : res.plans) assertFalse(busy.contains(p.vehicle), "busy vehicle planned");
+            }
+        } finally {
+            Consolidator.budgetMillis = saved;
+        }
+    }
+
+    // Every route lands in exactly one of plans, unplanned and noVehicle; each
+    // trip fits its vehicle and the largest capacity, and no vehicle is reused
+    private static void assertPlansValid(List<Route> routes, Consolidator.Result res, double largest) {
+        Set<Route> placed = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Vehicle> used = Collections.newSetFromMap(new IdentityHashMap<>());
+        double total = 0;
+        for(Consolidator.Plan p : res.plans) {
+            assertTrue(used.add(p.vehicle), "vehicle reused: " + p.vehicle.id);
+            double cargo = 0;
+            for(Route r : p.routes) {
+                assertTrue(placed.add(r), "route planned twice: " + r.id);
+                assertTrue(r.source.equalsIgnoreCase(p.source));
+                cargo += r.cargoAmount;
+            }
+            double dropped = 0, distance = 0;
+            for(Stop s : p.stops) {
+                dropped += s.cargo;
+                distance += s.distance;
+            }
+            assertEquals(cargo, p.cargo, 1e-6);
+            assertEquals(cargo, dropped, 1e-6);
+            assertEquals(distance, p.distance, 1e-6);
+            assertTrue(p.cargo <= largest + 1e-9, "trip over the largest capacity");
+            assertTrue(p.cargo <= p.vehicle.capacity + 1e-9, "trip over its vehicle's capacity");
+            assertEquals(p.distance / p.vehicle.mileage * p.vehicle.rate, p.cost, 1e-6);
+            total += p.cost;
+        }
+        for(Route r : res.unplanned) {
+            assertTrue(r.cargoAmount > largest);
+            assertTrue(placed.add(r), "route unplanned and planned: " + r.id);
+        }
+        for(Route r : res.noVehicle) assertTrue(placed.add(r), "route without a vehicle also placed: " + r.id);
+        assertEquals(routes.size(), placed.size());
+        assertEquals(total, res.consolidatedCost, 1e-6);
+    }
+
+    // Cities on a plane; a route's distance is the straight line from its source
+    private static List<Route> randomRoutes(Random rnd, Map<String, double[]> at, int n) {
+        for(String s : SOURCES) at.put(s.toLowerCase(), new double[] {rnd.nextInt(1000), rnd.nextInt(1000)});
+        for(int c = 0; c < 12; c++) at.put("c" + c, new double[] {rnd.nextInt(1000), rnd.nextInt(1000)});
+        List<Route> routes = new ArrayList<>();
+        for(int i = 0; i < n; i++) {
+            String source = SOURCES[rnd.nextInt(SOURCES.length)], dest = "C" + rnd.nextInt(12);
+            double km = Math.max(1, straight(at, source, dest));
+            double cargo = rnd.nextInt(10) == 0 ? 9000 + rnd.nextInt(2000) : 100 + rnd.nextInt(3000);
+            routes.add(new Route("R" + i, km, cargo, source, dest));
+        }
+        return routes;
+    }
+
+    private static Consolidator.Distances distances(Map<String, double[]> at) {
+        return (a, b) -> Math.max(1, straight(at, a, b));
+    }
+
+    private static double straight(Map<String, double[]> at, String a, String b) {
+        double[] p = at.get(a.toLowerCase()), q = at.get(b.toLowerCase());
+        return Math.hypot(p[0] - q[0], p[1] - q[1]);
+    }
+}
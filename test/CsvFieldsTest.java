@@ -0,0 +1,62 @@
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvFieldsTest {
+
+    @Test
+    void splitsAndTrimsPlainFields() {
+        CsvFields row = new CsvFields();
+        assertEquals(4, row.parse(" V1 ,Truck,, 12.5"));
+        assertEquals("V1", row.text(0));
+        assertTrue(row.equalsIgnoreCase(1, "truck"));
+        assertEquals("", row.text(2));
+        assertEquals(12.5, row.number(3));
+        assertEquals(-1.0, row.numberOr(2, -1.0));
+        assertEquals(-1.0, row.numberOr(9, -1.0));
+    }
+
+    @Test
+    void quotedFieldsKeepCommasQuotesAndBlanks() {
+        CsvFields row = new CsvFields();
+        assertEquals(3, row.parse("\"Pune, MH\",\" say \"\"hi\"\" \",X"));
+        assertEquals("Pune, MH", row.text(0));
+        assertEquals(" say \"hi\" ", row.text(1));
+        assertTrue(row.equalsIgnoreCase(0, "pune, mh"));
+        assertEquals("X", row.text(2));
+    }
+
+    @Test
+    void quoteRoundTrips() {
+        CsvFields row = new CsvFields();
+        String[] values = {"plain", "a,b", "\"quoted\"", " padded ", "", "x\"y,z"};
+        StringBuilder line = new StringBuilder();
+        for(String v : values) line.append(line.length() == 0 ? "" : ",").append(CsvFields.quote(v));
+        assertEquals(values.length, row.parse(line.toString()));
+        for(int i = 0; i < values.length; i++) assertEquals(values[i], row.text(i));
+
+        assertEquals("two lines", CsvFields.quote("two\nlines"));
+    }
+
+    @Test
+    void numbersMatchParseDouble() {
+        CsvFields row = new CsvFields();
+        Random rnd = new Random(5);
+        for(int k = 0; k < 10_000; k++) {
+            String s = switch(k % 4) {
+                case 0 -> Integer.toString(rnd.nextInt());
+                case 1 -> String.format(Locale.ROOT, "%.3f", rnd.nextDouble() * 1e6);
+                case 2 -> Double.toString(rnd.nextGaussian() * 1e-3);
+                default -> Double.toString(rnd.nextDouble() * 1e300);
+            };
+            row.parse("x," + s);
+            assertEquals(Double.parseDouble(s), row.number(1), s);
+        }
+        row.parse("x,12kg");
+        assertThrows(NumberFormatException.class, () -> row.number(1));
+        row.parse("x,-");
+        assertThrows(NumberFormatException.class, () -> row.number(1));
+    }
+}
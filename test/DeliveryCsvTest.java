@@ -0,0 +1,87 @@
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeliveryCsvTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void deliveriesRoundTripThroughTheCsvSnapshot() {
+        Vehicle truck = new Truck("DeliveryCsvTest-T1", 9000, 7, 101);
+        TransportLogisticSystem2.addVehicleRecord(truck);
+        MultiStopDelivery plain = new MultiStopDelivery("MD-1", truck,
+            List.of(new Stop("Pune", 0, 0), new Stop("Satara", 112.5, 1250.25)),
+            1250.25, 112.5, 1622.14, 1_700_000_000_000L, 1_700_000_060_000L);
+        MultiStopDelivery consolidated = new MultiStopDelivery("C1", truck,
+            List.of(new Stop("Pune", 0, 0), new Stop("Navi Mumbai, Vashi", 120, 800), new Stop("Thane", 30, 400)),
+            1200, 150, 2164.29, 1_700_000_100_000L);
+        consolidated.routes = "R7|R9";
+
+        String file = dir.resolve("deliveries.csv").toString();
+        assertTrue(TransportLogisticSystem2.saveMultiStopDeliveriesToCSV(file, List.of(plain, consolidated), false));
+        int before = TransportLogisticSystem2.multiStopDeliveries.size();
+        assertEquals(2, TransportLogisticSystem2.loadMultiStopDeliveriesFromCSV(file));
+
+        List<MultiStopDelivery> loaded = TransportLogisticSystem2.multiStopDeliveries.subList(before, before + 2);
+        for(int k = 0; k < 2; k++) {
+            MultiStopDelivery want = k == 0 ? plain : consolidated, got = loaded.get(k);
+            assertEquals(want.deliveryId, got.deliveryId);
+            assertSame(truck, got.vehicle);
+            assertEquals(want.totalDistance, got.totalDistance);
+            assertEquals(want.totalCargo, got.totalCargo);
+            assertEquals(want.cost, got.cost);
+            assertEquals(want.timestamp, got.timestamp);
+            assertEquals(want.departure, got.departure);
+            assertEquals(want.routeIds(), got.routeIds());
+            assertEquals(want.stops.size(), got.stops.size());
+            for(int s = 0; s < want.stops.size(); s++) {
+                assertEquals(want.stops.get(s).city, got.stops.get(s).city);
+                assertEquals(want.stops.get(s).distance, got.stops.get(s).distance);
+                assertEquals(want.stops.get(s).cargo, got.stops.get(s).cargo);
+            }
+        }
+    }
+
+    @Test
+    void separatorsInCitiesAndRouteIdsRoundTrip() {
+        Vehicle van = new Van("DeliveryCsvTest-V1", 2000, 12, 99);
+        TransportLogisticSystem2.addVehicleRecord(van);
+        List<String> cities = List.of("A|B", "C:1:2", "back\\slash|:", "Plain");
+        List<Stop> stops = new ArrayList<>();
+        for(int i = 0; i < cities.size(); i++) stops.add(new Stop(cities.get(i), 10 * i, 100 * i));
+        MultiStopDelivery d = new MultiStopDelivery("MD|2", van, stops, 600, 60, 500, 1_700_000_200_000L);
+        List<String> routeIds = List.of("R|1", "R\\2", "R3|", "");
+        d.routes = MultiStopDelivery.joinRouteIds(routeIds);
+        assertEquals(routeIds, d.routeIds());
+
+        String file = dir.resolve("escaped.csv").toString();
+        assertTrue(TransportLogisticSystem2.saveMultiStopDeliveriesToCSV(file, List.of(d), false));
+        int before = TransportLogisticSystem2.multiStopDeliveries.size();
+        assertEquals(1, TransportLogisticSystem2.loadMultiStopDeliveriesFromCSV(file));
+        MultiStopDelivery got = TransportLogisticSystem2.multiStopDeliveries.get(before);
+        assertEquals("MD|2", got.deliveryId);
+        assertEquals(routeIds, got.routeIds());
+        assertEquals(cities.size(), got.stops.size());
+        for(int i = 0; i < cities.size(); i++) {
+            assertEquals(cities.get(i), got.stops.get(i).city);
+            assertEquals(10 * i, got.stops.get(i).distance);
+            assertEquals(100 * i, got.stops.get(i).cargo);
+        }
+    }
+
+    @Test
+    void parsesOldBareCityStops() {
+        List<Stop> stops = TransportLogisticSystem2.parseStops("Pune|Satara:112.5:1250|Kolhapur");
+        assertEquals(3, stops.size());
+        assertEquals("Pune", stops.get(0).city);
+        assertEquals(0, stops.get(0).distance);
+        assertEquals(112.5, stops.get(1).distance);
+        assertEquals(1250, stops.get(1).cargo);
+        assertEquals("Kolhapur", stops.get(2).city);
+    }
+}
@@ -0,0 +1,108 @@
+import java.util.*;
+import java.util.function.IntPredicate;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoIndexTest {
+    private static final double EPS_KM = 1e-6;
+
+    @Test
+    void queriesMatchABruteForceHaversineSort() {
+        Random rnd = new Random(21);
+        for(int round = 0; round < 20; round++) {
+            int n = 1 + rnd.nextInt(round < 10 ? 40 : 2000);
+            double[] lat = new double[n], lon = new double[n];
+            for(int i = 0; i < n; i++) {
+                double[] p = randomPoint(rnd);
+                lat[i] = p[0];
+                lon[i] = p[1];
+                if(rnd.nextInt(20) == 0) lat[i] = Double.NaN;      // unknown position, not indexed
+            }
+            GeoIndex index = new GeoIndex(lat, lon);
+
+            for(int q = 0; q < 50; q++) {
+                double[] at = randomPoint(rnd);
+                int mod = 1 + rnd.nextInt(4), keep = rnd.nextInt(mod);
+                IntPredicate accept = switch(rnd.nextInt(3)) {
+                    case 0 -> i -> true;
+                    case 1 -> i -> false;
+                    default -> i -> i % mod == keep;
+                };
+                List<Integer> sorted = bruteForce(lat, lon, at, accept);
+
+                // k below, at and above the number of accepted points
+                int k = rnd.nextBoolean() ? 1 + rnd.nextInt(10) : sorted.size() + rnd.nextInt(5);
+                int[] got = index.nearest(at[0], at[1], k, accept);
+                assertEquals(Math.min(k, sorted.size()), got.length);
+                assertAccepted(got, accept);
+                for(int j = 0; j < got.length; j++) {
+                    // Compared by distance, so equidistant points may come in either order
+                    assertEquals(km(lat, lon, at, sorted.get(j)), km(lat, lon, at, got[j]), EPS_KM, "rank " + j);
+                }
+
+                double radius = rnd.nextBoolean() ? rnd.nextInt(3000) : rnd.nextInt(25_000);
+                got = index.within(at[0], at[1], radius, accept);
+                assertAccepted(got, accept);
+                Set<Integer> found = new HashSet<>();
+                double last = 0;
+                for(int i : got) {
+                    double d = km(lat, lon, at, i);
+                    assertTrue(d <= radius + EPS_KM, "outside radius");
+                    assertTrue(d >= last - EPS_KM, "not nearest first");
+                    last = d;
+                    found.add(i);
+                }
+                for(int i : sorted) {
+                    if(km(lat, lon, at, i) < radius - EPS_KM) assertTrue(found.contains(i), "missed point " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void dateLineAndPoleNeighboursAreNearest() {
+        double[] lat = {10, 10, 89.99, -89.99, 0};
+        double[] lon = {179.9, -179.9, 0, 45, 0};
+        GeoIndex index = new GeoIndex(lat, lon);
+        assertEquals(1, index.nearest(10, -179.95, 1, i -> true)[0]);
+        assertEquals(0, index.nearest(10, 179.95, 1, i -> true)[0]);
+        assertEquals(2, index.nearest(89.99, 180, 1, i -> true)[0]);
+        assertEquals(Set.of(0, 1), set(index.within(10, 180, 50, i -> true)));
+        assertArrayEquals(new int[] {4}, index.nearest(10, 180, 1, i -> i == 4));
+    }
+
+    // Mostly uniform on the sphere, with clusters on the date line and at the poles
+    private static double[] randomPoint(Random rnd) {
+        return switch(rnd.nextInt(4)) {
+            case 0 -> new double[] {rnd.nextDouble() * 20 - 10, rnd.nextBoolean() ? 180 - rnd.nextDouble() : -180 + rnd.nextDouble()};
+            case 1 -> new double[] {(rnd.nextBoolean() ? 1 : -1) * (89 + rnd.nextDouble()), rnd.nextDouble() * 360 - 180};
+            default -> new double[] {Math.toDegrees(Math.asin(2 * rnd.nextDouble() - 1)), rnd.nextDouble() * 360 - 180};
+        };
+    }
+
+    private static List<Integer> bruteForce(double[] lat, double[] lon, double[] at, IntPredicate accept) {
+        List<Integer> out = new ArrayList<>();
+        for(int i = 0; i < lat.length; i++) {
+            if(!Double.isNaN(lat[i]) && accept.test(i)) out.add(i);
+        }
+        out.sort(Comparator.comparingDouble(i -> km(lat, lon, at, i)));
+        return out;
+    }
+
+    private static double km(double[] lat, double[] lon, double[] at, int i) {
+        return GeoIndex.km(at[0], at[1], lat[i], lon[i]);
+    }
+
+    private static void assertAccepted(int[] got, IntPredicate accept) {
+        assertEquals(got.length, set(got).size(), "point returned twice");
+        for(int i : got) assertTrue(accept.test(i), "rejected point returned");
+    }
+
+    private static Set<Integer> set(int[] points) {
+        Set<Integer> s = new HashSet<>();
+        for(int i : points) s.add(i);
+        return s;
+    }
+}
@@ -0,0 +1,135 @@
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryIndexTest {
+    private static final String[] CITIES = {"Pune", "Mumbai", "Nashik", "Goa"};
+
+    @Test
+    void pagesMatchAFilteredSortOverOutOfOrderInserts() {
+        Random rnd = new Random(23);
+        List<Vehicle> fleet = new ArrayList<>();
+        for(int i = 0; i < 5; i++) fleet.add(new Truck("T" + i, 5000, 8, 100));
+
+        HistoryIndex index = new HistoryIndex();
+        List<Object> records = new ArrayList<>();
+        for(int n = 0; n < 3000; n++) {
+            // Mostly ascending times with frequent late arrivals and ties
+            long t = 1_000L * (n / 2) - (rnd.nextInt(4) == 0 ? 1_000L * rnd.nextInt(500) : 0);
+            Vehicle v = fleet.get(rnd.nextInt(fleet.size()));
+            double cost = rnd.nextInt(5000);
+            if(rnd.nextInt(3) == 0) {
+                List<Stop> stops = new ArrayList<>();
+                for(int s = 1 + rnd.nextInt(3); s > 0; s--) stops.add(new Stop(city(rnd), 10, 10));
+                MultiStopDelivery d = new MultiStopDelivery("D" + n, v, stops, 10, 10, cost, t);
+                index.add(d);
+                records.add(d);
+            } else {
+                Route r = new Route("R" + rnd.nextInt(40), 100, 100, city(rnd), city(rnd));
+                Allocation a = new Allocation(n + 1, r, v, cost, t);
+                index.add(a);
+                records.add(a);
+            }
+
+            if(n % 97 == 0 || n == 2999) {
+                for(int q = 0; q < 20; q++) {
+                    HistoryIndex.Query query = randomQuery(rnd, n);
+                    List<Object> want = expected(records, query);
+                    HistoryIndex.Page page = index.query(query);
+                    assertEquals(want.size(), page.total, "total, plan " + page.plan);
+                    int end = (int) Math.min(want.size(), (long) query.offset + query.limit);
+                    List<Object> slice = query.offset >= want.size() ? List.of() : want.subList(query.offset, end);
+                    assertEquals(slice, page.records, "page, plan " + page.plan);
+                }
+            }
+        }
+        assertEquals(3000, index.size());
+    }
+
+    @Test
+    void destinationMatchesEveryDeliveryStop() {
+        HistoryIndex index = new HistoryIndex();
+        Vehicle v = new Van("V1", 1000, 10, 100);
+        MultiStopDelivery d = new MultiStopDelivery("D1", v,
+            List.of(new Stop("Pune", 0, 0), new Stop("Nashik", 10, 5), new Stop("Goa", 10, 5)), 10, 20, 50, 1000);
+        index.add(d);
+
+        HistoryIndex.Query q = new HistoryIndex.Query();
+        q.destination = " nashik ";
+        assertEquals(List.of(d), index.query(q).records);
+        q.destination = "Mumbai";
+        assertEquals(0, index.query(q).total);
+    }
+
+    private static String city(Random rnd) {
+        return CITIES[rnd.nextInt(CITIES.length)];
+    }
+
+    private static HistoryIndex.Query randomQuery(Random rnd, int n) {
+        HistoryIndex.Query q = new HistoryIndex.Query();
+        if(rnd.nextBoolean()) q.vehicle = "T" + rnd.nextInt(6);
+        if(rnd.nextInt(4) == 0) q.route = "R" + rnd.nextInt(40);
+        if(rnd.nextInt(3) == 0) q.source = city(rnd).toUpperCase(Locale.ROOT);
+        if(rnd.nextInt(3) == 0) q.destination = city(rnd);
+        if(rnd.nextInt(4) == 0) {
+            boolean allocations = rnd.nextBoolean();
+            q.allocations = allocations;
+            q.deliveries = !allocations;
+        }
+        if(rnd.nextInt(3) == 0) {
+            q.minCost = rnd.nextInt(2500);
+            q.maxCost = q.minCost + rnd.nextInt(2500);
+        }
+        if(rnd.nextBoolean()) {
+            q.from = 1_000L * rnd.nextInt(n / 2 + 1);
+            q.to = q.from + 1_000L * rnd.nextInt(300);
+        }
+        q.newestFirst = rnd.nextBoolean();
+        q.offset = rnd.nextInt(4) == 0 ? rnd.nextInt(100) : 0;
+        q.limit = 1 + rnd.nextInt(50);
+        return q;
+    }
+
+    // Every record passing the filters, stably sorted by time
+    private static List<Object> expected(List<Object> records, HistoryIndex.Query q) {
+        List<Object> out = new ArrayList<>();
+        for(Object o : records) {
+            long t;
+            double cost;
+            String vehicle, route = null, source;
+            List<String> destinations = new ArrayList<>();
+            if(o instanceof Allocation a) {
+                if(!q.allocations) continue;
+                t = a.timestamp;
+                cost = a.cost;
+                vehicle = a.vehicle.id;
+                route = a.route.id;
+                source = a.route.source;
+                destinations.add(a.route.destination);
+            } else {
+                MultiStopDelivery d = (MultiStopDelivery) o;
+                if(!q.deliveries) continue;
+                t = d.timestamp;
+                cost = d.cost;
+                vehicle = d.vehicle.id;
+                source = d.stops.get(0).city;
+                for(Stop s : d.stops) destinations.add(s.city);
+            }
+            if(t < q.from || t >= q.to || cost < q.minCost || cost > q.maxCost) continue;
+            if(q.vehicle != null && !q.vehicle.equals(vehicle)) continue;
+            if(q.route != null && !q.route.equals(route)) continue;
+            if(q.source != null && !q.source.equalsIgnoreCase(source)) continue;
+            if(q.destination != null && destinations.stream().noneMatch(q.destination::equalsIgnoreCase)) continue;
+            out.add(o);
+        }
+        out.sort(Comparator.comparingLong(HistoryIndexTest::time));
+        if(q.newestFirst) Collections.reverse(out);
+        return out;
+    }
+
+    private static long time(Object o) {
+        return o instanceof Allocation a ? a.timestamp : ((MultiStopDelivery) o).timestamp;
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntervalTreeTest {
+
+    @Test
+    void halfOpenBoundsDoNotOverlap() {
+        IntervalTree<String> tree = new IntervalTree<>();
+        tree.add(10, 20, "a");
+        assertNull(tree.firstOverlap(0, 10));
+        assertNull(tree.firstOverlap(20, 30));
+        assertEquals("a", tree.firstOverlap(19, 25).value());
+        assertEquals("a", tree.firstOverlap(0, 11).value());
+        assertEquals("a", tree.firstOverlap(12, 13).value());
+        assertNull(new IntervalTree<String>().firstOverlap(0, 100));
+    }
+
+    @Test
+    void returnsTheEarliestStartingOverlap() {
+        IntervalTree<Integer> tree = new IntervalTree<>();
+        tree.add(50, 60, 1);
+        tree.add(0, 100, 2);        // long interval starting first
+        tree.add(55, 58, 3);
+        assertEquals(2, tree.firstOverlap(56, 57).value());
+        assertEquals(3, tree.size());
+    }
+
+    @Test
+    void firstOverlapMatchesALinearScan() {
+        Random rnd = new Random(11);
+        IntervalTree<Integer> tree = new IntervalTree<>();
+        List<long[]> all = new ArrayList<>();
+        for(int i = 0; i < 2000; i++) {
+            // Ascending starts as well as random ones, to exercise rebalancing
+            long start = i < 500 ? i * 10L : rnd.nextInt(100_000);
+            long end = start + 1 + rnd.nextInt(i % 7 == 0 ? 5000 : 50);
+            tree.add(start, end, i);
+            all.add(new long[] {start, end});
+
+            long from = rnd.nextInt(101_000), to = from + 1 + rnd.nextInt(200);
+            IntervalTree.Interval<Integer> got = tree.firstOverlap(from, to);
+            long bestStart = Long.MAX_VALUE;
+            for(long[] iv : all) {
+                if(iv[0] < to && iv[1] > from) bestStart = Math.min(bestStart, iv[0]);
+            }
+            if(bestStart == Long.MAX_VALUE) {
+                assertNull(got);
+            } else {
+                assertNotNull(got);
+                assertEquals(bestStart, got.start());
+                assertTrue(got.start() < to && got.end() > from);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalTest {
+    @TempDir
+    Path dir;
+
+    private final Vehicle truck = new Truck("T, 1", 5000, 8, 100);
+    private final Route route = new Route("R1", 120, 900, "Pune, MH", "Mumbai");
+
+    @Test
+    void replaysRecordsWrittenBeforeACrash() throws IOException {
+        String file = dir.resolve("journal.log").toString();
+        Journal journal = Journal.open(file);
+        journal.appendVehicle(truck);
+        journal.appendRoute(route);
+        journal.appendAllocation(new Allocation(7, route, truck, 1500, 1_700_000_000_000L));
+        // No close(): the process dies with the records written but not forced
+
+        List<String> rows = new ArrayList<>();
+        assertEquals(3, Journal.replay(file, row -> rows.add(row.text(0) + ":" + row.text(1))));
+        assertEquals(List.of("V:T, 1", "R:R1", "A:7"), rows);
+        assertEquals(7, Journal.lastAllocationId(file));
+
+        List<String> sources = new ArrayList<>();
+        Journal.replay(file, row -> {
+            if(row.equalsIgnoreCase(0, "R")) sources.add(row.text(4));
+        });
+        assertEquals(List.of("Pune, MH"), sources);
+        journal.close();
+    }
+
+    @Test
+    void replaysTheRotatedFileFirstUntilItIsDiscarded() throws IOException {
+        String file = dir.resolve("journal.log").toString();
+        try (Journal journal = Journal.open(file)) {
+            journal.appendAllocation(new Allocation(1, route, truck, 10, 1_700_000_000_000L));
+            journal.rotate();
+            assertEquals(0, journal.pendingRecords());
+            journal.appendAllocation(new Allocation(2, route, truck, 20, 1_700_000_000_000L));
+            // Crash before the snapshot finished: the rotated file is still there
+
+            assertEquals(List.of("1", "2"), allocationIds(file));
+
+            // A second rotation folds the live records into the leftover one
+            journal.rotate();
+            journal.appendAllocation(new Allocation(3, route, truck, 30, 1_700_000_000_000L));
+            assertEquals(List.of("1", "2", "3"), allocationIds(file));
+
+            journal.discardRotated();
+            assertEquals(List.of("3"), allocationIds(file));
+        }
+    }
+
+    @Test
+    void tornTailIsIgnoredByLastAllocationId() throws IOException {
+        String file = dir.resolve("journal.log").toString();
+        try (Journal journal = Journal.open(file)) {
+            journal.appendAllocation(new Allocation(41, route, truck, 10, 1_700_000_000_000L));
+        }
+        Files.writeString(Paths.get(file), "A,4x", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        assertEquals(2, Journal.replay(file, row -> {}));
+        assertEquals(41, Journal.lastAllocationId(file));
+    }
+
+    private static List<String> allocationIds(String file) {
+        List<String> ids = new ArrayList<>();
+        Journal.replay(file, row -> ids.add(row.text(1)));
+        return ids;
+    }
+}
@@ -0,0 +1,62 @@
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoadGraphTest {
+
+    @Test
+    void shortestDistancesMatchFloydWarshall() {
+        Random rnd = new Random(3);
+        for(int trial = 0; trial < 50; trial++) {
+            int n = 2 + rnd.nextInt(12);
+            double[][] d = new double[n][n];
+            for(double[] row : d) Arrays.fill(row, Double.POSITIVE_INFINITY);
+            for(int i = 0; i < n; i++) d[i][i] = 0;
+
+            RoadGraph g = new RoadGraph();
+            for(int i = 0; i < n; i++) g.addRoad("C" + i, "C" + i, 0);
+            for(int e = rnd.nextInt(3 * n); e > 0; e--) {
+                int a = rnd.nextInt(n), b = rnd.nextInt(n);
+                double km = 1 + rnd.nextInt(500);
+                g.addRoad("C" + a, "c" + b, km);
+                d[a][b] = d[b][a] = Math.min(d[a][b], km);
+            }
+            for(int k = 0; k < n; k++) {
+                for(int i = 0; i < n; i++) {
+                    for(int j = 0; j < n; j++) d[i][j] = Math.min(d[i][j], d[i][k] + d[k][j]);
+                }
+            }
+
+            String[] all = new String[n];
+            for(int j = 0; j < n; j++) all[j] = "C" + j;
+            for(int i = 0; i < n; i++) {
+                double[] many = g.distances("C" + i, all);
+                for(int j = 0; j < n; j++) {
+                    double want = d[i][j] == Double.POSITIVE_INFINITY ? Double.NaN : d[i][j];
+                    assertEquals(want, g.distance("C" + i, "C" + j), 1e-9);
+                    assertEquals(want, many[j], 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    void unknownCitiesAndCachedPairs() {
+        RoadGraph g = new RoadGraph();
+        g.addRoad("Pune", "Lonavala", 65);
+        g.addRoad("Lonavala", "Mumbai", 83);
+
+        assertTrue(Double.isNaN(g.distance("Pune", "Goa")));
+        assertEquals(148, g.distance(" pune ", "MUMBAI"));
+        long misses = g.cacheMisses();
+        assertEquals(148, g.distance("Pune", "Mumbai"));
+        assertEquals(misses, g.cacheMisses());
+        assertTrue(g.cacheHits() > 0);
+
+        // A new road drops cached distances it could shorten
+        g.addRoad("Pune", "Mumbai", 140);
+        assertEquals(140, g.distance("Pune", "Mumbai"));
+    }
+}
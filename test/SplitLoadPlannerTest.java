@@ -0,0 +1,96 @@
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SplitLoadPlannerTest {
+
+    @Test
+    void smallFleetsMatchBruteForce() {
+        Random rnd = new Random(20);
+        for(int trial = 0; trial < 400; trial++) {
+            Vehicle[] fleet = randomFleet(rnd, 1 + rnd.nextInt(14));
+            // Both sides of BUCKETS; at most 14 vehicles always take the exact search
+            Route r = new Route("R" + trial, 100, 500 + rnd.nextInt(9500), "A", "B");
+
+            SplitLoadPlanner.Plan plan = SplitLoadPlanner.plan(r, fleet);
+            double best = Double.POSITIVE_INFINITY;
+            for(int mask = 1; mask < 1 << fleet.length; mask++) {
+                double capacity = 0, cost = 0;
+                for(int i = 0; i < fleet.length; i++) {
+                    if((mask >> i & 1) == 0) continue;
+                    capacity += fleet[i].capacity;
+                    cost += TransportLogisticSystem2.calculateCost(r, fleet[i]);
+                }
+                if(capacity >= r.cargoAmount) best = Math.min(best, cost);
+            }
+
+            if(best == Double.POSITIVE_INFINITY) {
+                assertNull(plan, "trial " + trial);
+                continue;
+            }
+            assertFeasible(r, fleet, plan);
+            assertEquals(best, plan.totalCost, 1e-6, "trial " + trial);
+        }
+    }
+
+    @Test
+    void largeCargoPlansAreFeasible() {
+        Random rnd = new Random(21);
+        for(int trial = 0; trial < 100; trial++) {
+            // Enough distinct capacities that the bucket DP plans it
+            Vehicle[] fleet = randomFleet(rnd, 60 + rnd.nextInt(200));
+            double total = 0;
+            for(Vehicle v : fleet) total += v.capacity;
+            Route r = new Route("R" + trial, 250, SplitLoadPlanner.BUCKETS + 1 + rnd.nextInt((int) total), "A", "B");
+
+            SplitLoadPlanner.Plan plan = SplitLoadPlanner.plan(r, fleet);
+            if(total < r.cargoAmount) {
+                assertNull(plan);
+            } else {
+                assertFeasible(r, fleet, plan);
+            }
+        }
+    }
+
+    @Test
+    void fleetTooSmallGivesNoPlan() {
+        Vehicle[] fleet = {new Truck("T1", 1000, 6, 100), new Van("V1", 500, 12, 100)};
+        assertNull(SplitLoadPlanner.plan(new Route("R", 100, 1501, "A", "B"), fleet));
+        assertNull(SplitLoadPlanner.plan(new Route("R", 100, 10, "A", "B"), new Vehicle[0]));
+    }
+
+    // Vehicles come from the fleet, each used once; loads cover the cargo
+    // within capacity and costs add up as calculateCost
+    private static void assertFeasible(Route r, Vehicle[] fleet, SplitLoadPlanner.Plan plan) {
+        assertNotNull(plan);
+        Set<Vehicle> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Vehicle> inFleet = Collections.newSetFromMap(new IdentityHashMap<>());
+        inFleet.addAll(Arrays.asList(fleet));
+        double loaded = 0, capacity = 0, cost = 0;
+        for(int i = 0; i < plan.size(); i++) {
+            Vehicle v = plan.vehicles.get(i);
+            assertTrue(inFleet.contains(v), "vehicle not in the fleet");
+            assertTrue(seen.add(v), "vehicle used twice: " + v.id);
+            assertTrue(plan.cargo[i] <= v.capacity + 1e-9);
+            assertEquals(TransportLogisticSystem2.calculateCost(r, v), plan.cost[i], 1e-9);
+            loaded += plan.cargo[i];
+            capacity += v.capacity;
+            cost += plan.cost[i];
+        }
+        assertEquals(r.cargoAmount, loaded, 1e-6);
+        assertTrue(capacity >= r.cargoAmount);
+        assertEquals(capacity, plan.capacity, 1e-6);
+        assertEquals(cost, plan.totalCost, 1e-6);
+    }
+
+    private static Vehicle[] randomFleet(Random rnd, int n) {
+        Vehicle[] fleet = new Vehicle[n];
+        for(int i = 0; i < n; i++) {
+            double capacity = 50 + rnd.nextInt(rnd.nextBoolean() ? 950 : 3000), mileage = 1 + rnd.nextInt(20), rate = 10 + rnd.nextInt(90);
+            fleet[i] = rnd.nextBoolean() ? new Truck("T" + i, capacity, mileage, rate) : new Van("V" + i, capacity, mileage, rate);
+        }
+        return fleet;
+    }
+}
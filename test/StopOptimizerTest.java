@@ -0,0 +1,75 @@
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StopOptimizerTest {
+
+    @Test
+    void tourIsAPermutationNoLongerThanNearestNeighbourOrTheInputOrder() {
+        Random rnd = new Random(9);
+        long saved = StopOptimizer.budgetMillis;
+        StopOptimizer.budgetMillis = 50;
+        try {
+            for(int trial = 0; trial < 300; trial++) {
+                int n = rnd.nextInt(trial < 200 ? 8 : 60);
+                double[][] dist = trial % 2 == 0 ? planar(rnd, n) : arbitrary(rnd, n);
+
+                int[] order = StopOptimizer.optimize(dist);
+                assertEquals(n, order.length);
+                boolean[] seen = new boolean[n + 1];
+                for(int stop : order) {
+                    assertTrue(stop >= 1 && stop <= n, "not a stop: " + stop);
+                    assertFalse(seen[stop], "stop visited twice: " + stop);
+                    seen[stop] = true;
+                }
+
+                double length = StopOptimizer.length(dist, order);
+                int[] nearest = StopOptimizer.nearestNeighbour(dist);
+                int[] given = new int[n];
+                for(int i = 0; i < n; i++) given[i] = i + 1;
+                assertTrue(length <= StopOptimizer.length(dist, Arrays.copyOfRange(nearest, 1, n + 1)) + 1e-9, "trial " + trial);
+                assertTrue(length <= StopOptimizer.length(dist, given) + 1e-9, "trial " + trial);
+            }
+        } finally {
+            StopOptimizer.budgetMillis = saved;
+        }
+    }
+
+    @Test
+    void findsTheShortestOrderOnALine() {
+        // Depot at 0 km, stops given out of order along a road
+        double[] at = {0, 30, 10, 50, 20, 40};
+        double[][] dist = new double[at.length][at.length];
+        for(int i = 0; i < at.length; i++) {
+            for(int j = 0; j < at.length; j++) dist[i][j] = Math.abs(at[i] - at[j]);
+        }
+        int[] order = StopOptimizer.optimize(dist);
+        assertArrayEquals(new int[] {2, 4, 1, 5, 3}, order);
+        assertEquals(50, StopOptimizer.length(dist, order), 1e-9);
+    }
+
+    // Euclidean distances between random points, depot first
+    private static double[][] planar(Random rnd, int n) {
+        double[] x = new double[n + 1], y = new double[n + 1];
+        for(int i = 0; i <= n; i++) {
+            x[i] = rnd.nextDouble() * 500;
+            y[i] = rnd.nextDouble() * 500;
+        }
+        double[][] dist = new double[n + 1][n + 1];
+        for(int i = 0; i <= n; i++) {
+            for(int j = 0; j <= n; j++) dist[i][j] = Math.hypot(x[i] - x[j], y[i] - y[j]);
+        }
+        return dist;
+    }
+
+    // Symmetric, but free to break the triangle inequality
+    private static double[][] arbitrary(Random rnd, int n) {
+        double[][] dist = new double[n + 1][n + 1];
+        for(int i = 0; i <= n; i++) {
+            for(int j = i + 1; j <= n; j++) dist[i][j] = dist[j][i] = 1 + rnd.nextInt(300);
+        }
+        return dist;
+    }
+}